@@ -0,0 +1,151 @@
+package com.king.gamescores.handler;
+
+import com.king.gamescores.properties.PropertiesManager;
+import com.king.gamescores.service.ScoresService;
+import com.king.gamescores.service.Session;
+import com.king.gamescores.service.SessionKeyService;
+import com.king.gamescores.service.SingletonScoresService;
+import com.king.gamescores.service.SingletonSessionKeyService;
+import com.king.gamescores.util.CachedClock;
+import com.king.gamescores.util.ParamsValidator;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.SignatureException;
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+import static com.king.gamescores.server.HttpMethod.POST;
+import static com.king.gamescores.util.HttpMethodValidator.isNotValid;
+import static com.king.gamescores.util.ParamsValidator.SESSION_KEY;
+import static com.king.gamescores.util.ParamsValidator.isSessionKeyProvided;
+import static java.net.HttpURLConnection.*;
+import static java.util.logging.Level.SEVERE;
+
+/**
+ * Handles POST /scores?sessionkey=&lt;sessionkey&gt;, the batch submission of many scores at once for game servers.
+ * The body is a stream of lines, either {@code <levelid>,<score>} for the user of the session key or
+ * {@code <levelid>,<userid>,<score>} for any user. Only the game server users listed in scores.batchServerUsers may
+ * submit the scores of other users, the three field lines of anyone else are rejected. The session key is validated
+ * once per batch, the scores are grouped by level and each level merges its group in one pass.
+ * <p>
+ * The response is one status character per line in submission order: 1 if the score has been accepted, 0 if the line
+ * has been rejected because it is malformed or not allowed. Batches of more than {@value #MAX_LINES} lines are rejected
+ * as a whole.
+ */
+public class BatchScoreHandler implements HttpHandler {
+
+    private static final Logger LOG = Logger.getLogger(BatchScoreHandler.class.getName());
+
+    public static final int MAX_LINES = 10000;
+
+    private static final String BATCH_SERVER_USERS = "scores.batchServerUsers";
+
+    private final SessionKeyService sessionKeyService;
+    private final ScoresService scoresService;
+    // Sorted userIds of the game servers trusted to submit the scores of any user
+    private final int[] serverUserIds;
+
+    public BatchScoreHandler() {
+        this(SingletonSessionKeyService.getInstance(), SingletonScoresService.getInstance(),
+                parseUserIds(PropertiesManager.getInstance().getString(BATCH_SERVER_USERS, "")));
+    }
+
+    /**
+     * Constructs a {@link BatchScoreHandler} accepting only the scores of the users of the session keys
+     */
+    public BatchScoreHandler(SessionKeyService sessionKeyService, ScoresService scoresService) {
+        this(sessionKeyService, scoresService, new int[0]);
+    }
+
+    /**
+     * Constructs a {@link BatchScoreHandler}
+     *
+     * @param sessionKeyService the service the session keys are verified with
+     * @param scoresService     the service the scores are registered to
+     * @param serverUserIds     the userIds of the game servers trusted to submit the scores of any user
+     */
+    public BatchScoreHandler(SessionKeyService sessionKeyService, ScoresService scoresService, int[] serverUserIds) {
+        this.sessionKeyService = sessionKeyService;
+        this.scoresService = scoresService;
+        this.serverUserIds = serverUserIds.clone();
+        Arrays.sort(this.serverUserIds);
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        if (isNotValid(POST, exchange)) return;
+
+        String pSessionKey = RequestParameters.query(exchange, SESSION_KEY);
+
+        if (!isSessionKeyProvided(pSessionKey)) {
+            ResponseHandler.code(HTTP_BAD_REQUEST).handle(exchange);
+            return;
+        }
+
+        Session session;
+        try {
+            session = sessionKeyService.verifySessionKey(pSessionKey);
+        } catch (SignatureException e) {
+            LOG.log(SEVERE, SESSION_KEY + " is not valid", e);
+            ResponseHandler.code(HTTP_UNAUTHORIZED).handle(exchange);
+            return;
+        }
+        if (session.isExpired(CachedClock.currentTimeMillis())) {
+            LOG.log(SEVERE, SESSION_KEY + " has been expired");
+            ResponseHandler.code(HTTP_UNAUTHORIZED).handle(exchange);
+            return;
+        }
+
+        ScoreBatch batch = new ScoreBatch(MAX_LINES);
+        boolean read;
+        try (InputStream in = exchange.getRequestBody()) {
+            read = batch.read(in, session.getUserId(), Arrays.binarySearch(serverUserIds, session.getUserId()) >= 0);
+        }
+        if (!read) {
+            LOG.log(SEVERE, "Batch of more than " + MAX_LINES + " lines rejected");
+            ResponseHandler.code(HTTP_ENTITY_TOO_LARGE).handle(exchange);
+            return;
+        }
+
+        batch.groupByLevel();
+        int levels = 0;
+        for (int from = 0, to; from < batch.size(); from = to) {
+            int level = batch.levelAt(from);
+            to = from + 1;
+            while (to < batch.size() && batch.levelAt(to) == level) {
+                to++;
+            }
+            scoresService.registerScores(level, batch.userIds(), batch.scores(), from, to - from);
+            levels++;
+        }
+
+        LOG.info(String.format("Batch of %d scores out of %d lines successfully registered at %d levels",
+                batch.size(), batch.lines(), levels));
+        ResponseHandler.send(exchange, HTTP_OK, batch.statusBuffer());
+    }
+
+    /**
+     * Parses a comma separated list of userIds
+     *
+     * @param userIds the property value
+     * @return the userIds
+     * @throws IllegalArgumentException if any of them is not a 31 bit unsigned integer number
+     */
+    static int[] parseUserIds(String userIds) {
+        return Arrays.stream(userIds.split(","))
+                .map(String::trim)
+                .filter(userId -> !userId.isEmpty())
+                .mapToInt(userId -> {
+                    int parsed = ParamsValidator.parseNumber(userId);
+                    if (parsed == ParamsValidator.INVALID) {
+                        throw new IllegalArgumentException(
+                                "Invalid " + BATCH_SERVER_USERS + " userid '" + userId + "'");
+                    }
+                    return parsed;
+                })
+                .toArray();
+    }
+}
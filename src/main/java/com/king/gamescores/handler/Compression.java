@@ -0,0 +1,109 @@
+package com.king.gamescores.handler;
+
+import com.king.gamescores.properties.PropertiesManager;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.util.List;
+
+/**
+ * Negotiates the gzip compression of a response body: bodies of at least scores.gzipThreshold bytes are compressed
+ * when the Accept-Encoding of the request allows gzip, and are sent with a Vary: Accept-Encoding header whether they
+ * are compressed or not, so that caches keep both representations apart.
+ */
+final class Compression {
+
+    static final String GZIP_THRESHOLD = "scores.gzipThreshold";
+    static final int DEFAULT_GZIP_THRESHOLD = 1024;
+
+    private static final String ACCEPT_ENCODING_HEADER = "Accept-Encoding";
+    private static final String GZIP = "gzip";
+
+    private final int threshold;
+
+    /**
+     * Constructs a {@link Compression}
+     *
+     * @param threshold the length from which bodies are compressed, 0 to never compress
+     */
+    Compression(int threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("The gzip threshold cannot be negative");
+        }
+        this.threshold = threshold;
+    }
+
+    /**
+     * @return a {@link Compression} with the threshold of scores.gzipThreshold
+     */
+    static Compression fromProperties() {
+        return new Compression(PropertiesManager.getInstance().getInt(GZIP_THRESHOLD, DEFAULT_GZIP_THRESHOLD));
+    }
+
+    /**
+     * Decides whether a body is sent compressed, setting the Vary header of the compressible ones
+     *
+     * @param exchange the request
+     * @param length   the length of the plain body
+     * @return true if the body must be sent compressed
+     */
+    boolean gzip(HttpExchange exchange, int length) {
+        if (threshold == 0 || length < threshold) {
+            return false;
+        }
+        ResponseHandler.varyOnEncoding(exchange);
+        return accepts(exchange.getRequestHeaders().get(ACCEPT_ENCODING_HEADER));
+    }
+
+    /**
+     * Checks whether Accept-Encoding headers allow gzip, by name or by *, and not with a zero quality
+     *
+     * @param acceptEncodings the values of the Accept-Encoding headers, may be null
+     * @return true if a gzip body is acceptable
+     */
+    static boolean accepts(List<String> acceptEncodings) {
+        if (acceptEncodings == null) {
+            return false;
+        }
+        // An explicit gzip coding takes precedence over *
+        int gzip = -1;
+        int any = -1;
+        for (String value : acceptEncodings) {
+            int start = 0;
+            while (start < value.length()) {
+                int end = value.indexOf(',', start);
+                if (end < 0) {
+                    end = value.length();
+                }
+                int nameEnd = value.indexOf(';', start);
+                if (nameEnd < 0 || nameEnd > end) {
+                    nameEnd = end;
+                }
+                String name = value.substring(start, nameEnd).trim();
+                if (name.equalsIgnoreCase(GZIP)) {
+                    gzip = Math.max(gzip, accepted(value, nameEnd, end) ? 1 : 0);
+                } else if (name.equals("*")) {
+                    any = Math.max(any, accepted(value, nameEnd, end) ? 1 : 0);
+                }
+                start = end + 1;
+            }
+        }
+        return gzip >= 0 ? gzip == 1 : any == 1;
+    }
+
+    /**
+     * @return false if the parameters of a coding hold a zero quality, q=0 or q=0.000
+     */
+    private static boolean accepted(String value, int start, int end) {
+        int q = value.indexOf("q=", start);
+        if (q < 0 || q >= end) {
+            return true;
+        }
+        for (int i = q + 2; i < end; i++) {
+            char c = value.charAt(i);
+            if (c != '0' && c != '.' && c != ' ') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
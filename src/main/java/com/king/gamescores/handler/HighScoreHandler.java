@@ -1,8 +1,9 @@
 package com.king.gamescores.handler;
 
+import com.king.gamescores.server.RequestContext;
+import com.king.gamescores.service.HighScoresSnapshot;
 import com.king.gamescores.service.ScoresService;
 import com.king.gamescores.service.SingletonScoresService;
-import com.king.gamescores.util.Strings;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 
@@ -11,46 +12,99 @@ import java.util.logging.Logger;
 
 import static com.king.gamescores.server.HttpMethod.GET;
 import static com.king.gamescores.util.HttpMethodValidator.isNotValid;
-import static com.king.gamescores.util.ParamsValidator.isNumeric;
 import static java.net.HttpURLConnection.HTTP_BAD_REQUEST;
+import static java.net.HttpURLConnection.HTTP_NOT_MODIFIED;
 import static java.net.HttpURLConnection.HTTP_OK;
+import static java.util.logging.Level.FINE;
 
+/**
+ * Handles GET /&lt;levelid&gt;/highscorelist, which responds the high score list of a level as a CSV of
+ * &lt;userid&gt;=&lt;score&gt;.
+ * <p>
+ * Versioned lists are sent with their {@link HighScoresSnapshot#getETag() ETag}, and a poll whose If-None-Match
+ * holds the tag of the current version is answered 304 without body. Long lists are sent gzip compressed to the
+ * clients accepting it, compressed once per version.
+ */
 public class HighScoreHandler implements HttpHandler {
 
     private static final Logger LOG = Logger.getLogger(HighScoreHandler.class.getName());
 
+    private static final String ETAG_HEADER = "ETag";
+    private static final String IF_NONE_MATCH_HEADER = "If-None-Match";
+
     private final ScoresService scoresService;
+    private final Compression compression;
 
     public HighScoreHandler() {
         scoresService = SingletonScoresService.getInstance();
+        compression = Compression.fromProperties();
     }
 
     public HighScoreHandler(ScoresService scoresService) {
+        this(scoresService, Compression.DEFAULT_GZIP_THRESHOLD);
+    }
+
+    /**
+     * Constructs a {@link HighScoreHandler}
+     *
+     * @param scoresService the service the lists are read from
+     * @param gzipThreshold the length from which the lists are sent gzip compressed to the clients accepting it, 0 to
+     *                      never compress them
+     */
+    public HighScoreHandler(ScoresService scoresService, int gzipThreshold) {
         this.scoresService = scoresService;
+        compression = new Compression(gzipThreshold);
     }
 
     @Override
     public void handle(HttpExchange exchange) throws IOException {
         if (isNotValid(GET, exchange)) return;
 
-        String path = exchange.getRequestURI().getPath();
-        String[] paths = path.split("/");
+        int level = RequestContext.of(exchange).getLevel();
+        if (level > 0) {
 
-        String pLevel = paths[1];
-        if (isNumeric(pLevel)) {
+            HighScoresSnapshot result = scoresService.getHighScoresSnapshot(level);
 
-            int level = Integer.parseInt(pLevel);
-            String result = scoresService.getHighScoresForLevel(level);
+            byte[] bytes = result.getBytes();
+            boolean gzip = compression.gzip(exchange, bytes.length);
+            String eTag = gzip ? result.getGzipETag() : result.getETag();
+            if (eTag != null) {
+                exchange.getResponseHeaders().set(ETAG_HEADER, eTag);
+                if (matches(exchange.getRequestHeaders().getFirst(IF_NONE_MATCH_HEADER), eTag)) {
+                    if (LOG.isLoggable(FINE)) {
+                        LOG.fine(String.format("High score list version %d of level %d has not been modified",
+                                result.getVersion(), level));
+                    }
+                    ResponseHandler.code(HTTP_NOT_MODIFIED).handle(exchange);
+                    return;
+                }
+            }
 
-            if (Strings.isNotEmpty(result)) {
-                LOG.info(String.format("High score list '%s' has been retrieved for level %d", result, level));
+            if (!result.isEmpty()) {
+                LOG.info(String.format("High score list version %d has been retrieved for level %d",
+                        result.getVersion(), level));
             } else {
                 LOG.warning(String.format("High score list empty has been retrieved for level %d", level));
             }
-            ResponseHandler.code(HTTP_OK).response(result).handle(exchange);
+            if (gzip) {
+                ResponseHandler.sendGzip(exchange, HTTP_OK, result.getGzipBytes());
+            } else {
+                ResponseHandler.send(exchange, HTTP_OK, bytes);
+            }
 
         } else {
             ResponseHandler.code(HTTP_BAD_REQUEST).handle(exchange);
         }
     }
+
+    /**
+     * Weak comparison of If-None-Match, a list of quoted entity tags or *, against the current tag
+     *
+     * @param ifNoneMatch the If-None-Match header, may be null
+     * @param eTag        the quoted tag of the current version
+     * @return true if the client already has the current version
+     */
+    static boolean matches(String ifNoneMatch, String eTag) {
+        return ifNoneMatch != null && (ifNoneMatch.trim().equals("*") || ifNoneMatch.contains(eTag));
+    }
 }
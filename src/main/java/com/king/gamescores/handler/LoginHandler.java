@@ -1,49 +1,85 @@
 package com.king.gamescores.handler;
 
+import com.king.gamescores.properties.PropertiesManager;
+import com.king.gamescores.server.RequestContext;
 import com.king.gamescores.service.SessionKeyService;
-import com.king.gamescores.service.TokenSessionKeyService;
+import com.king.gamescores.service.SingletonSessionKeyService;
+import com.king.gamescores.util.CachedClock;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.security.SignatureException;
 import java.util.logging.Logger;
 
 import static com.king.gamescores.server.HttpMethod.GET;
 import static com.king.gamescores.util.HttpMethodValidator.isNotValid;
-import static com.king.gamescores.util.ParamsValidator.isNumeric;
 import static java.net.HttpURLConnection.*;
 import static java.util.logging.Level.INFO;
 import static java.util.logging.Level.SEVERE;
 
+/**
+ * Issues session keys. With scores.loginReusePercent above 0, a user logging in again gets the session key already
+ * issued to them as long as more than that percentage of its lifetime is left, so a storm of login retries costs cache
+ * lookups instead of signatures. Session keys which can be revoked are never reused, a revoked key could be returned.
+ */
 public class LoginHandler implements HttpHandler {
 
     private static final Logger LOG = Logger.getLogger(LoginHandler.class.getName());
 
+    private static final String SESSION_EXPIRATION = "scores.sessionExpiration";
+    private static final String LOGIN_REUSE_PERCENT = "scores.loginReusePercent";
+    private static final String LOGIN_CACHE_SIZE = "scores.loginCacheSize";
+    private static final int DEFAULT_LOGIN_CACHE_SIZE = 4096;
+
     private final SessionKeyService sessionKeyService;
+    // Milliseconds a session key can be reused after it has been issued
+    private final long reusePeriod;
+    private final LoginTokenCache cache;
 
     public LoginHandler() {
-        sessionKeyService = new TokenSessionKeyService();
+        this(SingletonSessionKeyService.getInstance(),
+                PropertiesManager.getInstance().getLong(SESSION_EXPIRATION),
+                PropertiesManager.getInstance().getInt(LOGIN_REUSE_PERCENT, 0),
+                PropertiesManager.getInstance().getInt(LOGIN_CACHE_SIZE, DEFAULT_LOGIN_CACHE_SIZE));
     }
 
     public LoginHandler(SessionKeyService sessionKeyService) {
+        this(sessionKeyService, 0, 0, 0);
+    }
+
+    /**
+     * Constructs a {@link LoginHandler}
+     *
+     * @param sessionKeyService the issuer of the session keys
+     * @param sessionExpiration the lifetime of a session key, in milliseconds
+     * @param reusePercent      the percentage of its lifetime a session key must have left to be reused, 0 to always
+     *                          issue a new one
+     * @param cacheSize         the number of slots of the reused session keys cache
+     */
+    public LoginHandler(SessionKeyService sessionKeyService, long sessionExpiration, int reusePercent,
+                        int cacheSize) {
+        if (reusePercent > 100) {
+            throw new IllegalArgumentException("reusePercent must be between 0 and 100");
+        }
         this.sessionKeyService = sessionKeyService;
+        boolean reuse = reusePercent > 0 && cacheSize > 0 && !sessionKeyService.isRevocable();
+        reusePeriod = sessionExpiration * (100 - reusePercent) / 100;
+        cache = reuse ? new LoginTokenCache(cacheSize) : null;
     }
 
     @Override
     public void handle(HttpExchange exchange) throws IOException {
         if (isNotValid(GET, exchange)) return;
 
-        String path = exchange.getRequestURI().getPath();
-        String[] paths = path.split("/");
-
-        String pUserId = paths[1];
-        if (isNumeric(pUserId)) {
+        int userId = RequestContext.of(exchange).getUserId();
+        if (userId > 0) {
 
             try {
-                String token = sessionKeyService.generateSessionKey(Integer.parseInt(pUserId));
+                String token = generateSessionKey(userId);
                 LOG.log(INFO, "Token successfully generated");
-                ResponseHandler.code(HTTP_OK).response(token).handle(exchange);
+                ResponseHandler.send(exchange, HTTP_OK, token.getBytes(StandardCharsets.US_ASCII));
 
             } catch (SignatureException e) {
                 LOG.log(SEVERE, e.getMessage(), e);
@@ -54,4 +90,17 @@ public class LoginHandler implements HttpHandler {
             ResponseHandler.code(HTTP_BAD_REQUEST).handle(exchange);
         }
     }
+
+    private String generateSessionKey(int userId) throws SignatureException {
+        if (cache == null) {
+            return sessionKeyService.generateSessionKey(userId);
+        }
+        long now = CachedClock.currentTimeMillis();
+        String token = cache.get(userId, now);
+        if (token == null) {
+            token = sessionKeyService.generateSessionKey(userId);
+            cache.put(userId, token, now + reusePeriod);
+        }
+        return token;
+    }
 }
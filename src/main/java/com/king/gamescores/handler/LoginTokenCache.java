@@ -0,0 +1,66 @@
+package com.king.gamescores.handler;
+
+import com.king.gamescores.util.Hashing;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded cache of the last session key issued to each user, so that a user logging in again while the key still has
+ * enough of its lifetime left gets the same key instead of a newly signed one. The cache is direct-mapped by userId:
+ * every user has a single slot and a new key simply replaces the one in its slot.
+ */
+final class LoginTokenCache {
+
+    private final int mask;
+    private final AtomicReferenceArray<Entry> entries;
+
+    /**
+     * Constructs an empty {@link LoginTokenCache}
+     *
+     * @param capacity the number of slots, rounded up to a power of two
+     */
+    LoginTokenCache(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("capacity must be between 1 and 2^30");
+        }
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        mask = size - 1;
+        entries = new AtomicReferenceArray<>(size);
+    }
+
+    /**
+     * Returns the session key of a user, if it can still be reused
+     *
+     * @param userId the userId
+     * @param now    the current time, in milliseconds since the epoch
+     * @return the session key of the user, null if it is not cached or can no longer be reused
+     */
+    String get(int userId, long now) {
+        Entry entry = entries.get(Hashing.mix(userId) & mask);
+        return entry != null && entry.userId == userId && now < entry.reuseUntil ? entry.sessionKey : null;
+    }
+
+    /**
+     * Caches the session key issued to a user, replacing whatever the slot of the user held
+     *
+     * @param userId     the userId
+     * @param sessionKey the session key issued to the user
+     * @param reuseUntil the time until which the key can be reused, in milliseconds since the epoch
+     */
+    void put(int userId, String sessionKey, long reuseUntil) {
+        entries.set(Hashing.mix(userId) & mask, new Entry(userId, sessionKey, reuseUntil));
+    }
+
+    private static final class Entry {
+
+        private final int userId;
+        private final String sessionKey;
+        private final long reuseUntil;
+
+        private Entry(int userId, String sessionKey, long reuseUntil) {
+            this.userId = userId;
+            this.sessionKey = sessionKey;
+            this.reuseUntil = reuseUntil;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.king.gamescores.handler;
+
+import com.king.gamescores.service.SessionKeyService;
+import com.king.gamescores.service.SingletonSessionKeyService;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.security.SignatureException;
+import java.util.logging.Logger;
+
+import static com.king.gamescores.server.HttpMethod.POST;
+import static com.king.gamescores.util.HttpMethodValidator.isNotValid;
+import static com.king.gamescores.util.ParamsValidator.SESSION_KEY;
+import static com.king.gamescores.util.ParamsValidator.isSessionKeyProvided;
+import static java.net.HttpURLConnection.*;
+import static java.util.logging.Level.SEVERE;
+
+/**
+ * Ends a session before it expires: POST /logout?sessionkey=&lt;sessionkey&gt;. Answers 401 if the session is unknown,
+ * expired or already ended, 501 if the session keys in use cannot be revoked.
+ */
+public class LogoutHandler implements HttpHandler {
+
+    private static final Logger LOG = Logger.getLogger(LogoutHandler.class.getName());
+
+    private final SessionKeyService sessionKeyService;
+
+    public LogoutHandler() {
+        sessionKeyService = SingletonSessionKeyService.getInstance();
+    }
+
+    public LogoutHandler(SessionKeyService sessionKeyService) {
+        this.sessionKeyService = sessionKeyService;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        if (isNotValid(POST, exchange)) return;
+
+        if (!sessionKeyService.isRevocable()) {
+            LOG.log(SEVERE, "Session keys cannot be revoked");
+            ResponseHandler.code(HTTP_NOT_IMPLEMENTED).handle(exchange);
+            return;
+        }
+
+        String pSessionKey = RequestParameters.query(exchange, SESSION_KEY);
+
+        if (isSessionKeyProvided(pSessionKey)) {
+
+            boolean revoked;
+            try {
+                revoked = sessionKeyService.revokeSessionKey(pSessionKey);
+            } catch (SignatureException e) {
+                LOG.log(SEVERE, SESSION_KEY + " is not valid", e);
+                ResponseHandler.code(HTTP_UNAUTHORIZED).handle(exchange);
+                return;
+            }
+
+            if (revoked) {
+                LOG.info(SESSION_KEY + " successfully revoked");
+                ResponseHandler.code(HTTP_OK).handle(exchange);
+            } else {
+                LOG.log(SEVERE, SESSION_KEY + " is unknown or has been expired");
+                ResponseHandler.code(HTTP_UNAUTHORIZED).handle(exchange);
+            }
+
+        } else {
+            ResponseHandler.code(HTTP_BAD_REQUEST).handle(exchange);
+        }
+    }
+}
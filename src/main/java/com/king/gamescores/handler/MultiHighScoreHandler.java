@@ -0,0 +1,138 @@
+package com.king.gamescores.handler;
+
+import com.king.gamescores.service.HighScoresSnapshot;
+import com.king.gamescores.service.ScoresService;
+import com.king.gamescores.service.SingletonScoresService;
+import com.king.gamescores.util.Gzip;
+import com.king.gamescores.util.Strings;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.util.logging.Logger;
+
+import static com.king.gamescores.server.HttpMethod.GET;
+import static com.king.gamescores.util.HttpMethodValidator.isNotValid;
+import static java.net.HttpURLConnection.HTTP_BAD_REQUEST;
+import static java.net.HttpURLConnection.HTTP_OK;
+
+/**
+ * Handles GET /highscorelist?levels=&lt;levelid&gt;,&lt;levelid&gt;,..., which responds the high score lists of
+ * several levels at once, one &lt;levelid&gt;:&lt;CSV of userid=score&gt; line per requested level in request order.
+ * <p>
+ * The response is assembled by copying the encoded bytes of every level's {@link HighScoresSnapshot} into a single
+ * array sized upfront, without any intermediate String.
+ */
+public class MultiHighScoreHandler implements HttpHandler {
+
+    private static final Logger LOG = Logger.getLogger(MultiHighScoreHandler.class.getName());
+
+    public static final String LEVELS_PARAM = "levels";
+
+    static final int MAX_LEVELS = 100;
+
+    private final ScoresService scoresService;
+    private final Compression compression;
+
+    public MultiHighScoreHandler() {
+        scoresService = SingletonScoresService.getInstance();
+        compression = Compression.fromProperties();
+    }
+
+    public MultiHighScoreHandler(ScoresService scoresService) {
+        this(scoresService, Compression.DEFAULT_GZIP_THRESHOLD);
+    }
+
+    /**
+     * Constructs a {@link MultiHighScoreHandler}
+     *
+     * @param scoresService the service the lists are read from
+     * @param gzipThreshold the length from which the lists are sent gzip compressed to the clients accepting it, 0 to
+     *                      never compress them
+     */
+    public MultiHighScoreHandler(ScoresService scoresService, int gzipThreshold) {
+        this.scoresService = scoresService;
+        compression = new Compression(gzipThreshold);
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        if (isNotValid(GET, exchange)) return;
+
+        int[] levels = parseLevels(RequestParameters.query(exchange, LEVELS_PARAM));
+
+        if (levels != null) {
+
+            HighScoresSnapshot[] snapshots = new HighScoresSnapshot[levels.length];
+            int length = levels.length - 1;
+            for (int i = 0; i < levels.length; i++) {
+                snapshots[i] = scoresService.getHighScoresSnapshot(levels[i]);
+                length += Strings.digits(levels[i]) + 1 + snapshots[i].getBytes().length;
+            }
+
+            byte[] body = new byte[length];
+            int position = 0;
+            for (int i = 0; i < levels.length; i++) {
+                if (i > 0) {
+                    body[position++] = '\n';
+                }
+                position = Strings.writeDigits(levels[i], body, position);
+                body[position++] = ':';
+                byte[] bytes = snapshots[i].getBytes();
+                System.arraycopy(bytes, 0, body, position, bytes.length);
+                position += bytes.length;
+            }
+
+            LOG.info(String.format("High score lists have been retrieved for %d levels", levels.length));
+            if (compression.gzip(exchange, body.length)) {
+                ResponseHandler.sendGzip(exchange, HTTP_OK, Gzip.compress(body));
+            } else {
+                ResponseHandler.send(exchange, HTTP_OK, body);
+            }
+
+        } else {
+            ResponseHandler.code(HTTP_BAD_REQUEST).handle(exchange);
+        }
+    }
+
+    /**
+     * Parses a comma separated list of levels
+     *
+     * @param value the parameter value
+     * @return the levels, null if any of them is not a 31 bit unsigned integer number or there are more than
+     * {@link #MAX_LEVELS}
+     */
+    static int[] parseLevels(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        int count = 1;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) == ',' && ++count > MAX_LEVELS) {
+                LOG.warning(String.format("No more than %d levels can be requested at once", MAX_LEVELS));
+                return null;
+            }
+        }
+        int[] levels = new int[count];
+        int level = 0;
+        long current = 0;
+        boolean digits = false;
+        for (int i = 0; i <= value.length(); i++) {
+            char c = i < value.length() ? value.charAt(i) : ',';
+            if (c >= '0' && c <= '9') {
+                current = current * 10 + (c - '0');
+                if (current > Integer.MAX_VALUE) {
+                    return null;
+                }
+                digits = true;
+            } else if (c == ',' && digits && current > 0) {
+                levels[level++] = (int) current;
+                current = 0;
+                digits = false;
+            } else {
+                return null;
+            }
+        }
+        return levels;
+    }
+}
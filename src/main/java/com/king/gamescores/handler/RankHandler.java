@@ -0,0 +1,95 @@
+package com.king.gamescores.handler;
+
+import com.king.gamescores.server.RequestContext;
+import com.king.gamescores.service.HighScoresSnapshot;
+import com.king.gamescores.service.ScoresService;
+import com.king.gamescores.service.SingletonScoresService;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.logging.Logger;
+
+import static com.king.gamescores.server.HttpMethod.GET;
+import static com.king.gamescores.util.HttpMethodValidator.isNotValid;
+import static com.king.gamescores.util.ParamsValidator.INVALID;
+import static com.king.gamescores.util.ParamsValidator.parseNumber;
+import static java.net.HttpURLConnection.*;
+
+/**
+ * Handles GET /&lt;levelid&gt;/rank/&lt;userid&gt;, which responds the 1 based rank of the user in the level, and
+ * GET /&lt;levelid&gt;/rank/&lt;userid&gt;?around=&lt;n&gt;, which responds the CSV of &lt;userid&gt;=&lt;score&gt;
+ * of the n scores before and after the user's one, just the user's one for n = 0. Responds 404 if the user is not
+ * ranked in the level.
+ */
+public class RankHandler implements HttpHandler {
+
+    private static final Logger LOG = Logger.getLogger(RankHandler.class.getName());
+
+    public static final String AROUND_PARAM = "around";
+
+    private static final int MAX_RADIUS = 100;
+
+    private final ScoresService scoresService;
+    private final Compression compression;
+
+    public RankHandler() {
+        scoresService = SingletonScoresService.getInstance();
+        compression = Compression.fromProperties();
+    }
+
+    public RankHandler(ScoresService scoresService) {
+        this(scoresService, Compression.DEFAULT_GZIP_THRESHOLD);
+    }
+
+    /**
+     * Constructs a {@link RankHandler}
+     *
+     * @param scoresService the service the lists are read from
+     * @param gzipThreshold the length from which the lists are sent gzip compressed to the clients accepting it, 0 to
+     *                      never compress them
+     */
+    public RankHandler(ScoresService scoresService, int gzipThreshold) {
+        this.scoresService = scoresService;
+        compression = new Compression(gzipThreshold);
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        if (isNotValid(GET, exchange)) return;
+
+        RequestContext context = RequestContext.of(exchange);
+        int level = context.getLevel();
+        int userId = context.getUserId();
+
+        String pAround = RequestParameters.query(exchange, AROUND_PARAM);
+        // parseNumber rejects 0, a valid radius here
+        int around = pAround == null || "0".equals(pAround) ? 0 : parseNumber(pAround);
+
+        if (level > 0 && userId > 0 && around != INVALID) {
+
+            int rank = scoresService.getRank(level, userId);
+
+            if (rank == 0) {
+                LOG.warning(String.format("userid %d is not ranked at level %d", userId, level));
+                ResponseHandler.code(HTTP_NOT_FOUND).handle(exchange);
+            } else if (pAround != null) {
+                int radius = Math.min(around, MAX_RADIUS);
+                LOG.info(String.format("Scores around userid %d have been retrieved for level %d", userId, level));
+                HighScoresSnapshot scores = scoresService.getScoresAround(level, userId, radius);
+                if (compression.gzip(exchange, scores.getBytes().length)) {
+                    ResponseHandler.sendGzip(exchange, HTTP_OK, scores.getGzipBytes());
+                } else {
+                    ResponseHandler.send(exchange, HTTP_OK, scores.getBytes());
+                }
+            } else {
+                LOG.info(String.format("Rank %d has been retrieved for userid %d at level %d", rank, userId, level));
+                ResponseHandler.send(exchange, HTTP_OK, String.valueOf(rank).getBytes(StandardCharsets.US_ASCII));
+            }
+
+        } else {
+            ResponseHandler.code(HTTP_BAD_REQUEST).handle(exchange);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.king.gamescores.handler;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+
+import static com.king.gamescores.util.ParamsValidator.INVALID;
+
+/**
+ * Utility class extracting the request parameters a handler needs, when it needs them. Nothing is parsed for the
+ * requests without parameters, and the query of the others is scanned for the asked parameter only: no map, no
+ * regular expression, and only the value found is copied, URL-decoded only if it is encoded.
+ * <p>
+ * The score of POST /&lt;levelid&gt;/score is read as ASCII digits straight from the request body.
+ */
+public final class RequestParameters {
+
+    private static final int MAX_SCORE_DIGITS = 10;
+
+    private RequestParameters() {
+    }
+
+    /**
+     * Returns the value of a query parameter of the request
+     *
+     * @param exchange the request
+     * @param name     the name of the parameter
+     * @return the decoded value of its first occurrence, null if it is not provided, empty or not decodable
+     */
+    public static String query(HttpExchange exchange, String name) {
+        return query(exchange.getRequestURI().getRawQuery(), name);
+    }
+
+    /**
+     * Returns the value of a parameter of a raw query
+     *
+     * @param rawQuery the query, not decoded, may be null
+     * @param name     the name of the parameter
+     * @return the decoded value of its first occurrence, null if it is not provided, empty or not decodable
+     */
+    public static String query(String rawQuery, String name) {
+        if (rawQuery == null) {
+            return null;
+        }
+        int length = rawQuery.length();
+        int start = 0;
+        while (start < length) {
+            int end = rawQuery.indexOf('&', start);
+            if (end < 0) {
+                end = length;
+            }
+            int valueStart = start + name.length() + 1;
+            if (valueStart <= end && rawQuery.startsWith(name, start) && rawQuery.charAt(valueStart - 1) == '=') {
+                return valueStart == end ? null : decode(rawQuery, valueStart, end);
+            }
+            start = end + 1;
+        }
+        return null;
+    }
+
+    /**
+     * Reads a 31 bit unsigned integer number, the whole request body but for a trailing line break, and closes the
+     * body
+     *
+     * @param body the request body
+     * @return the number, {@link com.king.gamescores.util.ParamsValidator#INVALID} if the body is not one
+     * @throws IOException if the body cannot be read
+     */
+    public static int readNumber(InputStream body) throws IOException {
+        try (InputStream in = body) {
+            long number = 0;
+            int digits = 0;
+            int c;
+            while ((c = in.read()) >= '0' && c <= '9') {
+                if (++digits > MAX_SCORE_DIGITS) {
+                    return INVALID;
+                }
+                number = number * 10 + (c - '0');
+            }
+            if (c == '\r') {
+                c = in.read();
+            }
+            if (c == '\n') {
+                c = in.read();
+            }
+            return c < 0 && number > 0 && number <= Integer.MAX_VALUE ? (int) number : INVALID;
+        }
+    }
+
+    private static String decode(String rawQuery, int start, int end) {
+        String value = rawQuery.substring(start, end);
+        if (value.indexOf('%') < 0 && value.indexOf('+') < 0) {
+            return value;
+        }
+        try {
+            return URLDecoder.decode(value, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
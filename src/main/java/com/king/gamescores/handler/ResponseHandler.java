@@ -6,36 +6,167 @@ import com.sun.net.httpserver.HttpHandler;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
 
+import static java.net.HttpURLConnection.*;
+
+/**
+ * Writes a response. The handlers are immutable: the empty responses of the usual codes are shared instances, and a
+ * response with a header, like a 503 with its Retry-After, can be built once and reused for every request.
+ * <p>
+ * Empty responses are sent without body, the bodies are sent with their exact byte length in a single write, and the
+ * header values are shared lists put as they are in the response headers, so that no response encodes anything again.
+ */
 public class ResponseHandler implements HttpHandler {
 
-    private final int responseCode;
+    private static final String CONTENT_TYPE = "Content-Type";
+    private static final List<String> TEXT_PLAIN = Collections.singletonList("text/plain; charset=utf-8");
+    private static final String CONTENT_ENCODING = "Content-Encoding";
+    private static final List<String> GZIP = Collections.singletonList("gzip");
+    private static final String VARY = "Vary";
+    private static final List<String> ACCEPT_ENCODING = Collections.singletonList("Accept-Encoding");
+    private static final byte[] EMPTY = new byte[0];
+    private static final int NO_BODY = -1;
 
-    private String body = "";
+    private static final ResponseHandler[] SHARED = new ResponseHandler[600];
+
+    static {
+        int[] codes = {HTTP_OK, HTTP_NOT_MODIFIED, HTTP_BAD_REQUEST, HTTP_UNAUTHORIZED, HTTP_NOT_FOUND,
+                HTTP_BAD_METHOD, HTTP_ENTITY_TOO_LARGE, HTTP_INTERNAL_ERROR, HTTP_NOT_IMPLEMENTED, HTTP_UNAVAILABLE};
+        for (int code : codes) {
+            SHARED[code] = new ResponseHandler(code, EMPTY, null, null);
+        }
+    }
+
+    private final int responseCode;
+    private final byte[] body;
+    private final String headerName;
+    private final List<String> headerValue;
 
-    private ResponseHandler(int responseCode) {
+    private ResponseHandler(int responseCode, byte[] body, String headerName, List<String> headerValue) {
         this.responseCode = responseCode;
+        this.body = body;
+        this.headerName = headerName;
+        this.headerValue = headerValue;
     }
 
+    /**
+     * @param responseCode the response code
+     * @return the empty response of the given code, a shared instance for the usual codes
+     */
     public static ResponseHandler code(int responseCode) {
-        return new ResponseHandler(responseCode);
+        ResponseHandler shared = responseCode >= 0 && responseCode < SHARED.length ? SHARED[responseCode] : null;
+        return shared != null ? shared : new ResponseHandler(responseCode, EMPTY, null, null);
     }
 
+    /**
+     * @param body the response body, UTF-8 encoded once here
+     * @return a response with the given body, this one if the body is null
+     */
     public ResponseHandler response(String body) {
-        if (body != null) {
-            this.body = body;
-        }
-        return this;
+        return body == null ? this : response(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Sets an already UTF-8 encoded response body, which is written as is
+     *
+     * @param body the encoded body, not modified
+     * @return a response with the given body, this one if the body is null
+     */
+    public ResponseHandler response(byte[] body) {
+        return body == null ? this : new ResponseHandler(responseCode, body, headerName, headerValue);
+    }
+
+    /**
+     * Sets an additional response header
+     *
+     * @param name  the header name
+     * @param value the header value
+     * @return a response with the given header
+     */
+    public ResponseHandler header(String name, String value) {
+        return new ResponseHandler(responseCode, body, name, Collections.singletonList(value));
     }
 
     @Override
     public void handle(HttpExchange exchange) throws IOException {
+        if (headerName != null) {
+            exchange.getResponseHeaders().put(headerName, headerValue);
+        }
+        if (body.length == 0) {
+            exchange.sendResponseHeaders(responseCode, NO_BODY);
+            exchange.close();
+        } else {
+            send(exchange, responseCode, body);
+        }
+    }
+
+    /**
+     * Sends a text response in a single write, without building a handler
+     *
+     * @param exchange     the request
+     * @param responseCode the response code
+     * @param body         the UTF-8 encoded body, written as is
+     * @throws IOException if the response cannot be sent
+     */
+    public static void send(HttpExchange exchange, int responseCode, byte[] body) throws IOException {
+        send(exchange, responseCode, body, 0, body.length);
+    }
+
+    /**
+     * Sends the remaining bytes of a buffer as a text response, without moving its position
+     *
+     * @param exchange     the request
+     * @param responseCode the response code
+     * @param body         the UTF-8 encoded body, written as is
+     * @throws IOException if the response cannot be sent
+     */
+    public static void send(HttpExchange exchange, int responseCode, ByteBuffer body) throws IOException {
+        if (body.hasArray()) {
+            send(exchange, responseCode, body.array(), body.arrayOffset() + body.position(), body.remaining());
+        } else {
+            byte[] bytes = new byte[body.remaining()];
+            body.duplicate().get(bytes);
+            send(exchange, responseCode, bytes, 0, bytes.length);
+        }
+    }
+
+    /**
+     * Sends a gzip compressed text response in a single write, without building a handler
+     *
+     * @param exchange     the request
+     * @param responseCode the response code
+     * @param gzipBody     the gzip compressed UTF-8 body, written as is
+     * @throws IOException if the response cannot be sent
+     */
+    public static void sendGzip(HttpExchange exchange, int responseCode, byte[] gzipBody) throws IOException {
+        exchange.getResponseHeaders().put(CONTENT_ENCODING, GZIP);
+        send(exchange, responseCode, gzipBody, 0, gzipBody.length);
+    }
+
+    /**
+     * Marks a response as depending on the Accept-Encoding of the request
+     */
+    static void varyOnEncoding(HttpExchange exchange) {
+        exchange.getResponseHeaders().put(VARY, ACCEPT_ENCODING);
+    }
+
+    private static void send(HttpExchange exchange, int responseCode, byte[] body, int offset, int length)
+            throws IOException {
+        if (length == 0) {
+            exchange.sendResponseHeaders(responseCode, NO_BODY);
+            exchange.close();
+            return;
+        }
         Headers headers = exchange.getResponseHeaders();
-        headers.set("Content-Type", "text/plain; charset=utf-8");
-        exchange.sendResponseHeaders(responseCode, body.length());
+        // Shared, the response headers are only written
+        headers.put(CONTENT_TYPE, TEXT_PLAIN);
+        exchange.sendResponseHeaders(responseCode, length);
         try (OutputStream out = exchange.getResponseBody()) {
-            out.write(body.getBytes(StandardCharsets.UTF_8));
+            out.write(body, offset, length);
         }
     }
 }
@@ -0,0 +1,175 @@
+package com.king.gamescores.handler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The scores of a batch submission, parsed from a stream of {@code <levelid>,<score>} or
+ * {@code <levelid>,<userid>,<score>} lines into parallel int arrays, without any intermediate String. Every line gets a
+ * status: accepted or rejected because it is malformed, any of its numbers is not a 31 bit unsigned integer number, or
+ * it names a user while the submitter is not trusted to submit the scores of other users.
+ * <p>
+ * The accepted scores are then grouped by level, so every level is updated once per batch.
+ */
+final class ScoreBatch {
+
+    static final byte ACCEPTED = '1';
+    static final byte REJECTED = '0';
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int MAX_FIELDS = 3;
+
+    private final int maxLines;
+
+    private int[] levels = new int[INITIAL_CAPACITY];
+    private int[] userIds = new int[INITIAL_CAPACITY];
+    private int[] scores = new int[INITIAL_CAPACITY];
+    private byte[] statuses = new byte[INITIAL_CAPACITY];
+    private int size;
+    private int lines;
+
+    /**
+     * Constructs an empty {@link ScoreBatch}
+     *
+     * @param maxLines the maximum number of lines accepted in a batch
+     */
+    ScoreBatch(int maxLines) {
+        this.maxLines = maxLines;
+    }
+
+    /**
+     * Reads the lines of a batch. Lines with two fields are scores of the given userId, lines with three fields are
+     * rejected unless the submitter is trusted. Empty lines are ignored.
+     *
+     * @param in      the stream of lines, ASCII digits, commas and line breaks
+     * @param userId  the userId of the submitter, of the lines without one
+     * @param trusted true if the submitter is a game server allowed to submit the scores of any user
+     * @return false if the batch has more than the maximum number of lines, true otherwise
+     * @throws IOException if the stream cannot be read
+     */
+    boolean read(InputStream in, int userId, boolean trusted) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long[] fields = new long[MAX_FIELDS];
+        int field = 0;
+        boolean digits = false;
+        boolean malformed = false;
+        boolean blank = true;
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            for (int i = 0; i < read; i++) {
+                byte b = buffer[i];
+                if (b >= '0' && b <= '9') {
+                    if (field < MAX_FIELDS && fields[field] <= Integer.MAX_VALUE) {
+                        fields[field] = fields[field] * 10 + (b - '0');
+                    }
+                    digits = true;
+                    blank = false;
+                } else if (b == ',') {
+                    malformed |= !digits;
+                    field++;
+                    digits = false;
+                    blank = false;
+                } else if (b == '\n') {
+                    if (!blank) {
+                        if (!add(fields, field + 1, digits && !malformed, userId, trusted)) {
+                            return false;
+                        }
+                    }
+                    Arrays.fill(fields, 0);
+                    field = 0;
+                    digits = false;
+                    malformed = false;
+                    blank = true;
+                } else if (b != '\r' && b != ' ') {
+                    malformed = true;
+                    blank = false;
+                }
+            }
+        }
+        return blank || add(fields, field + 1, digits && !malformed, userId, trusted);
+    }
+
+    private boolean add(long[] fields, int count, boolean wellFormed, int userId, boolean trusted) {
+        if (lines == maxLines) {
+            return false;
+        }
+        if (lines == statuses.length) {
+            statuses = Arrays.copyOf(statuses, lines * 2);
+        }
+        boolean valid = wellFormed && (count == 2 || count == 3 && trusted);
+        for (int i = 0; valid && i < count; i++) {
+            valid = fields[i] >= 1 && fields[i] <= Integer.MAX_VALUE;
+        }
+        statuses[lines++] = valid ? ACCEPTED : REJECTED;
+        if (valid) {
+            if (size == levels.length) {
+                levels = Arrays.copyOf(levels, size * 2);
+                userIds = Arrays.copyOf(userIds, size * 2);
+                scores = Arrays.copyOf(scores, size * 2);
+            }
+            levels[size] = (int) fields[0];
+            userIds[size] = count == 3 ? (int) fields[1] : userId;
+            scores[size] = (int) fields[count - 1];
+            size++;
+        }
+        return true;
+    }
+
+    /**
+     * Sorts the accepted scores by level, keeping their submission order within each level
+     */
+    void groupByLevel() {
+        long[] order = new long[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = (long) levels[i] << 32 | i;
+        }
+        Arrays.sort(order);
+        int[] sortedUserIds = new int[size];
+        int[] sortedScores = new int[size];
+        for (int i = 0; i < size; i++) {
+            int index = (int) order[i];
+            sortedUserIds[i] = userIds[index];
+            sortedScores[i] = scores[index];
+            levels[i] = (int) (order[i] >>> 32);
+        }
+        userIds = sortedUserIds;
+        scores = sortedScores;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int lines() {
+        return lines;
+    }
+
+    int levelAt(int index) {
+        return levels[index];
+    }
+
+    int[] userIds() {
+        return userIds;
+    }
+
+    int[] scores() {
+        return scores;
+    }
+
+    /**
+     * @return one status byte per line, {@link #ACCEPTED} or {@link #REJECTED}, in submission order
+     */
+    byte[] statuses() {
+        return Arrays.copyOf(statuses, lines);
+    }
+
+    /**
+     * @return the status bytes of {@link #statuses()}, without copying them
+     */
+    ByteBuffer statusBuffer() {
+        return ByteBuffer.wrap(statuses, 0, lines);
+    }
+}
@@ -1,20 +1,21 @@
 package com.king.gamescores.handler;
 
-import com.king.gamescores.filter.ParameterFilter;
+import com.king.gamescores.properties.PropertiesManager;
+import com.king.gamescores.server.RequestContext;
 import com.king.gamescores.service.DefaultScoresService;
 import com.king.gamescores.service.ScoresService;
+import com.king.gamescores.service.Session;
 import com.king.gamescores.service.SessionKeyService;
 import com.king.gamescores.service.SingletonScoresService;
-import com.king.gamescores.service.TokenSessionKeyService;
+import com.king.gamescores.service.SingletonSessionKeyService;
+import com.king.gamescores.util.CachedClock;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 
 import java.io.IOException;
 import java.security.SignatureException;
-import java.util.Map;
 import java.util.logging.Logger;
 
-import static com.king.gamescores.filter.ParameterFilter.SCORE_PARAM;
 import static com.king.gamescores.server.HttpMethod.POST;
 import static com.king.gamescores.util.HttpMethodValidator.isNotValid;
 import static com.king.gamescores.util.ParamsValidator.*;
@@ -25,39 +26,46 @@ public class ScoreHandler implements HttpHandler {
 
     private static final Logger LOG = Logger.getLogger(ScoreHandler.class.getName());
 
+    private static final String RETRY_AFTER = "scores.retryAfter";
+    private static final String RETRY_AFTER_HEADER = "Retry-After";
+    private static final int DEFAULT_RETRY_AFTER = 1;
+
     private final SessionKeyService sessionKeyService;
     private final ScoresService scoresService;
+    // Answers the scores which cannot be queued, asking the client to wait the configured seconds
+    private final ResponseHandler unavailable;
 
     public ScoreHandler() {
-        sessionKeyService = new TokenSessionKeyService();
+        sessionKeyService = SingletonSessionKeyService.getInstance();
         scoresService = SingletonScoresService.getInstance();
+        unavailable = ResponseHandler.code(HTTP_UNAVAILABLE).header(RETRY_AFTER_HEADER,
+                String.valueOf(PropertiesManager.getInstance().getInt(RETRY_AFTER, DEFAULT_RETRY_AFTER)));
     }
 
     public ScoreHandler(SessionKeyService sessionKeyService, ScoresService scoresService) {
         this.sessionKeyService = sessionKeyService;
         this.scoresService = scoresService;
+        unavailable = ResponseHandler.code(HTTP_UNAVAILABLE)
+                .header(RETRY_AFTER_HEADER, String.valueOf(DEFAULT_RETRY_AFTER));
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public void handle(HttpExchange exchange) throws IOException {
         if (isNotValid(POST, exchange)) return;
 
-        String path = exchange.getRequestURI().getPath();
-        String[] paths = path.split("/");
-
-        String pLevel = paths[1];
+        int level = RequestContext.of(exchange).getLevel();
 
-        Map<String, Object> params = (Map<String, Object>) exchange.getAttribute(ParameterFilter.PARAMETERS);
-        String pScore = (String) params.getOrDefault(SCORE_PARAM, SCORE_PARAM);
-        String pSessionKey = (String) params.get(SESSION_KEY);
+        String pSessionKey = RequestParameters.query(exchange, SESSION_KEY);
+        int score = level > 0 && isSessionKeyProvided(pSessionKey)
+                ? RequestParameters.readNumber(exchange.getRequestBody())
+                : INVALID;
 
-        if (isNumeric(pLevel) && isSessionKeyProvided(pSessionKey) && isNumeric(pScore)) {
+        if (score != INVALID) {
 
-            int userId;
+            Session session;
             try {
 
-                userId = sessionKeyService.getUserIdFromSessionKey(pSessionKey);
+                session = sessionKeyService.verifySessionKey(pSessionKey);
 
             } catch (SignatureException e) {
                 LOG.log(SEVERE, SESSION_KEY + " is not valid", e);
@@ -65,25 +73,23 @@ public class ScoreHandler implements HttpHandler {
                 return;
             }
 
-            try {
-                if (sessionKeyService.isSessionKeyValid(pSessionKey)) {
-                    LOG.info(SESSION_KEY + " successfully validated");
-
-                    int level = Integer.parseInt(pLevel);
-                    int score = Integer.parseInt(pScore);
-                    scoresService.registerScore(level, userId, score);
+            if (!session.isExpired(CachedClock.currentTimeMillis())) {
+                LOG.info(SESSION_KEY + " successfully validated");
 
-                    LOG.info(String.format("Score %d successfully registered for userid %d at level %d",
+                int userId = session.getUserId();
+                if (!scoresService.offerScore(level, userId, score)) {
+                    LOG.warning(String.format("Score %d for userid %d at level %d refused, ingestion is full",
                             score, userId, level));
-                    ResponseHandler.code(HTTP_OK).handle(exchange);
-
-                } else {
-                    LOG.log(SEVERE, SESSION_KEY + " has been expired");
-                    ResponseHandler.code(HTTP_UNAUTHORIZED).handle(exchange);
+                    unavailable.handle(exchange);
+                    return;
                 }
 
-            } catch (SignatureException e) {
-                LOG.log(SEVERE, e.getMessage(), e);
+                LOG.info(String.format("Score %d successfully registered for userid %d at level %d",
+                        score, userId, level));
+                ResponseHandler.code(HTTP_OK).handle(exchange);
+
+            } else {
+                LOG.log(SEVERE, SESSION_KEY + " has been expired");
                 ResponseHandler.code(HTTP_UNAUTHORIZED).handle(exchange);
             }
 
@@ -1,20 +1,35 @@
 package com.king.gamescores.log;
 
-import java.util.Date;
+import com.king.gamescores.util.CachedClock;
+
 import java.util.logging.Formatter;
 import java.util.logging.LogRecord;
 
+/**
+ * Formats log lines as {@code yyyy-MM-dd HH:mm:ss.SSS LEVEL logger : message}, the level padded to 7 characters and the
+ * logger name to 50. The date-time comes from the {@link CachedClock}, so a line is formatted without any lock nor
+ * intermediate {@link java.util.Date}.
+ */
 public class ScoresLoggerFormatter extends Formatter {
 
-    private static final String FORMAT = "%1$tF %1$tT.%1$tL %2$-7s %3$-50s : %4$s %n";
+    private static final int LEVEL_WIDTH = 7;
+    private static final int LOGGER_WIDTH = 50;
+    private static final String LINE_SEPARATOR = System.lineSeparator();
 
     @Override
-    public synchronized String format(LogRecord lr) {
-        return String.format(FORMAT,
-                new Date(lr.getMillis()),
-                lr.getLevel().getLocalizedName(),
-                lr.getLoggerName(),
-                lr.getMessage()
-        );
+    public String format(LogRecord lr) {
+        StringBuilder line = new StringBuilder(128);
+        CachedClock.appendTimestamp(line, lr.getMillis()).append(' ');
+        pad(line, lr.getLevel().getLocalizedName(), LEVEL_WIDTH).append(' ');
+        pad(line, lr.getLoggerName(), LOGGER_WIDTH).append(" : ");
+        return line.append(lr.getMessage()).append(' ').append(LINE_SEPARATOR).toString();
+    }
+
+    private static StringBuilder pad(StringBuilder line, String value, int width) {
+        line.append(value);
+        for (int i = String.valueOf(value).length(); i < width; i++) {
+            line.append(' ');
+        }
+        return line;
     }
 }
@@ -14,6 +14,7 @@ public class PropertiesManager {
     private static final Logger LOG = Logger.getLogger(PropertiesManager.class.getName());
 
     private static final String PROPERTY_IS_MANDATORY = " property is mandatory";
+    private static final String PROPERTY_IS_NEGATIVE = " property must not be negative";
     private static final String APPLICATION_PROPERTIES = "/scores.properties";
 
     private static PropertiesManager instance = null;
@@ -65,4 +66,54 @@ public class PropertiesManager {
         }
         return value;
     }
+
+    /**
+     * Returns the value of an optional property
+     *
+     * @param property     the property name
+     * @param defaultValue the value returned when the property is not defined
+     * @return the value of the property or the defaultValue if not defined
+     */
+    public String getString(String property, String defaultValue) {
+        String value = properties.getProperty(property);
+        return Strings.isNotEmpty(value) ? value.trim() : defaultValue;
+    }
+
+    /**
+     * Returns the value of an optional, non negative, int property
+     *
+     * @param property     the property name
+     * @param defaultValue the value returned when the property is not defined
+     * @return the value of the property or the defaultValue if not defined
+     */
+    public int getInt(String property, int defaultValue) {
+        String value = properties.getProperty(property);
+        if (!Strings.isNotEmpty(value)) {
+            return defaultValue;
+        }
+        int intValue = Integer.parseInt(value.trim());
+        if (intValue < 0) {
+            throw new IllegalArgumentException(property + PROPERTY_IS_NEGATIVE);
+        }
+        return intValue;
+    }
+
+    /**
+     * Returns the value of an optional, non negative, long property
+     *
+     * @param property     the property name
+     * @param defaultValue the value returned when the property is not defined
+     * @return the value of the property or the defaultValue if not defined
+     */
+    public long getLong(String property, long defaultValue) {
+        String value = properties.getProperty(property);
+        if (!Strings.isNotEmpty(value)) {
+            return defaultValue;
+        }
+        long longValue = Long.parseLong(value.trim());
+        if (longValue < 0) {
+            throw new IllegalArgumentException(property + PROPERTY_IS_NEGATIVE);
+        }
+        return longValue;
+    }
 }
@@ -0,0 +1,88 @@
+package com.king.gamescores.server;
+
+import java.lang.reflect.Method;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static java.util.logging.Level.WARNING;
+
+/**
+ * The strategies the requests are executed with by the {@link RequestExecutor}, whatever the {@link Transport}, selected
+ * with the scores.executor property
+ */
+public enum ExecutorMode {
+
+    /**
+     * A fixed pool of workers with an unbounded queue: no request is refused but the latency grows without limit under
+     * overload
+     */
+    FIXED {
+        @Override
+        ExecutorService create(int workers, int queueCapacity, RejectedExecutionHandler rejectionHandler) {
+            return Executors.newFixedThreadPool(workers);
+        }
+    },
+
+    /**
+     * A fixed pool of workers with a bounded queue: the requests arriving when the queue is full are refused
+     * immediately with a 503. With a capacity of 0 a request is handed directly to an idle worker or refused.
+     */
+    BOUNDED {
+        @Override
+        ExecutorService create(int workers, int queueCapacity, RejectedExecutionHandler rejectionHandler) {
+            if (queueCapacity < 0) {
+                throw new IllegalArgumentException("The queue capacity must be 0 or more, was " + queueCapacity);
+            }
+            BlockingQueue<Runnable> queue = queueCapacity == 0
+                    ? new SynchronousQueue<>() : new ArrayBlockingQueue<>(queueCapacity);
+            return new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS, queue, rejectionHandler);
+        }
+    },
+
+    /**
+     * A new virtual thread per request, on JDK 21 or newer. Falls back to {@link #BOUNDED} on older JDKs.
+     */
+    VIRTUAL {
+        @Override
+        ExecutorService create(int workers, int queueCapacity, RejectedExecutionHandler rejectionHandler) {
+            try {
+                // Looked up by reflection, the sources target Java 8
+                Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                return (ExecutorService) factory.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                Logger.getLogger(ExecutorMode.class.getName())
+                        .log(WARNING, "Virtual threads are not available, falling back to a bounded pool");
+                return BOUNDED.create(workers, queueCapacity, rejectionHandler);
+            }
+        }
+    };
+
+    /**
+     * Creates the executor of the requests
+     *
+     * @param workers          the number of worker threads of the pools
+     * @param queueCapacity    the number of requests the bounded queue can hold, 0 for none
+     * @param rejectionHandler the handler of the requests refused by the bounded pool
+     * @return the executor
+     */
+    abstract ExecutorService create(int workers, int queueCapacity, RejectedExecutionHandler rejectionHandler);
+
+    /**
+     * Returns the mode of the given name, case insensitive
+     *
+     * @param name the name of the mode
+     * @return the mode
+     * @throws IllegalArgumentException if there is no mode with the given name
+     */
+    public static ExecutorMode of(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+}
@@ -4,6 +4,22 @@ public enum HttpMethod {
 
     GET, POST;
 
+    /**
+     * Returns the method of the given name, exact case as HTTP methods are case sensitive, without the exception of
+     * {@link #valueOf(String)} for the unknown ones
+     *
+     * @param name the method of a request
+     * @return the method, null if it is not supported
+     */
+    public static HttpMethod of(String name) {
+        if (GET.name().equals(name)) {
+            return GET;
+        } else if (POST.name().equals(name)) {
+            return POST;
+        }
+        return null;
+    }
+
     @Override
     public String toString() {
         return this.name();
@@ -0,0 +1,310 @@
+package com.king.gamescores.server;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpPrincipal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@link HttpExchange} of a request received by the {@link NioHttpServer}, so that the same handlers serve both
+ * transports. The request headers are parsed only if a handler asks for them, and the response is buffered until its
+ * body is closed, then handed back to the event loop of the connection which appends it to the write buffer with its
+ * Content-Length.
+ * <p>
+ * There is no {@link HttpContext}: the routing is done by the {@link ScoresServer} itself.
+ */
+final class NioExchange extends HttpExchange {
+
+    private static final byte[] EMPTY = new byte[0];
+    private static final String[] REASONS = new String[600];
+
+    static {
+        REASONS[200] = "OK";
+        REASONS[304] = "Not Modified";
+        REASONS[400] = "Bad Request";
+        REASONS[401] = "Unauthorized";
+        REASONS[404] = "Not Found";
+        REASONS[405] = "Method Not Allowed";
+        REASONS[411] = "Length Required";
+        REASONS[413] = "Request Entity Too Large";
+        REASONS[500] = "Internal Server Error";
+        REASONS[501] = "Not Implemented";
+        REASONS[503] = "Service Unavailable";
+    }
+
+    private final NioHttpServer.Connection connection;
+    private final String method;
+    private final URI uri;
+    private final String protocol;
+    private final String header;
+    private final int requestLineEnd;
+    private final boolean keepAlive;
+    private final Headers responseHeaders = new Headers();
+    private volatile boolean closeConnection;
+
+    private Headers requestHeaders;
+    private Map<String, Object> attributes;
+    private InputStream requestBody;
+    private ResponseBody responseBody;
+    private int responseCode = -1;
+    private boolean responseSent;
+    // The response, written by the event loop once handed back
+    private byte[] responseHead;
+    private byte[] responseBytes;
+    private int responseLength;
+
+    /**
+     * Constructs the exchange of a fully received request
+     *
+     * @throws IllegalArgumentException if the request target is not a valid URI
+     */
+    NioExchange(NioHttpServer.Connection connection, String method, String target, String protocol, String header,
+                int requestLineEnd, byte[] bytes, int bodyOffset, int bodyLength, boolean keepAlive) {
+        this.connection = connection;
+        this.method = method;
+        this.uri = URI.create(target);
+        this.protocol = protocol;
+        this.header = header;
+        this.requestLineEnd = requestLineEnd;
+        this.keepAlive = keepAlive;
+        // The read buffer keeps being filled while the request is executed on another thread
+        requestBody = new ByteArrayInputStream(bodyLength == 0
+                ? EMPTY : Arrays.copyOfRange(bytes, bodyOffset, bodyOffset + bodyLength));
+    }
+
+    @Override
+    public Headers getRequestHeaders() {
+        if (requestHeaders == null) {
+            requestHeaders = new Headers();
+            int lineStart = requestLineEnd;
+            while (lineStart >= 0 && lineStart < header.length()) {
+                lineStart += 2;
+                int lineEnd = header.indexOf("\r\n", lineStart);
+                if (lineEnd < 0) {
+                    lineEnd = header.length();
+                }
+                int colon = header.indexOf(':', lineStart);
+                if (colon > lineStart && colon < lineEnd) {
+                    requestHeaders.add(header.substring(lineStart, colon).trim(),
+                            header.substring(colon + 1, lineEnd).trim());
+                }
+                lineStart = lineEnd;
+            }
+        }
+        return requestHeaders;
+    }
+
+    @Override
+    public Headers getResponseHeaders() {
+        return responseHeaders;
+    }
+
+    @Override
+    public URI getRequestURI() {
+        return uri;
+    }
+
+    @Override
+    public String getRequestMethod() {
+        return method;
+    }
+
+    @Override
+    public HttpContext getHttpContext() {
+        return null;
+    }
+
+    @Override
+    public void close() {
+        if (responseBody != null) {
+            responseBody.close();
+        }
+    }
+
+    @Override
+    public InputStream getRequestBody() {
+        return requestBody;
+    }
+
+    @Override
+    public OutputStream getResponseBody() {
+        if (responseBody == null) {
+            throw new IllegalStateException("sendResponseHeaders has not been called");
+        }
+        return responseBody;
+    }
+
+    /**
+     * Starts the response. Whatever the length, the body is buffered and sent with its exact Content-Length.
+     *
+     * @param rCode          the response code
+     * @param responseLength the length of the body, -1 for none
+     */
+    @Override
+    public void sendResponseHeaders(int rCode, long responseLength) {
+        if (responseCode >= 0) {
+            throw new IllegalStateException("The response headers have already been sent");
+        }
+        responseCode = rCode;
+        responseBody = new ResponseBody(responseLength > 0 ? (int) Math.min(responseLength, Integer.MAX_VALUE) : 0);
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        return connection.remoteAddress();
+    }
+
+    @Override
+    public int getResponseCode() {
+        return responseCode;
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        return connection.localAddress();
+    }
+
+    @Override
+    public String getProtocol() {
+        return protocol;
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        return attributes == null ? null : attributes.get(name);
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        if (attributes == null) {
+            attributes = new HashMap<>();
+        }
+        attributes.put(name, value);
+    }
+
+    @Override
+    public void setStreams(InputStream i, OutputStream o) {
+        if (i != null) {
+            requestBody = i;
+        }
+        if (o != null) {
+            throw new UnsupportedOperationException("The response stream cannot be replaced");
+        }
+    }
+
+    @Override
+    public HttpPrincipal getPrincipal() {
+        return null;
+    }
+
+    NioHttpServer.Connection getConnection() {
+        return connection;
+    }
+
+    boolean isResponseSent() {
+        return responseSent;
+    }
+
+    /**
+     * Closes the connection once the response has been written, after a handler failure
+     */
+    void closeConnection() {
+        closeConnection = true;
+    }
+
+    /**
+     * @return true if the connection must be closed once the response has been written
+     */
+    boolean closesConnection() {
+        return closeConnection || !keepAlive;
+    }
+
+    /**
+     * Appends the response to the write buffer of the connection, on its event loop
+     */
+    void writeResponse(NioHttpServer.Connection connection) {
+        connection.send(responseHead, responseHead.length, responseBytes, responseLength);
+    }
+
+    /**
+     * Answers with an empty response of the given code, if nothing has been answered yet
+     */
+    void sendError(int code) {
+        if (responseCode < 0) {
+            sendResponseHeaders(code, -1);
+        }
+        close();
+    }
+
+    /**
+     * Answers a request which cannot be parsed, the connection is closed afterwards
+     */
+    static void writeError(NioHttpServer.Connection connection, int code) {
+        byte[] head = (statusLine(code) + "Content-Length: 0\r\nConnection: close\r\n\r\n")
+                .getBytes(StandardCharsets.ISO_8859_1);
+        connection.send(head, head.length, EMPTY, 0);
+    }
+
+    /**
+     * Tells a client waiting for it before sending the body of its request that it is expected
+     */
+    static void writeContinue(NioHttpServer.Connection connection) {
+        byte[] head = "HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+        connection.send(head, head.length, EMPTY, 0);
+    }
+
+    private static String statusLine(int code) {
+        String reason = code >= 0 && code < REASONS.length && REASONS[code] != null ? REASONS[code] : "Status";
+        return "HTTP/1.1 " + code + ' ' + reason + "\r\n";
+    }
+
+    private void send(byte[] body, int length) {
+        StringBuilder head = new StringBuilder(128).append(statusLine(responseCode));
+        for (Map.Entry<String, List<String>> entry : responseHeaders.entrySet()) {
+            for (String value : entry.getValue()) {
+                head.append(entry.getKey()).append(": ").append(value).append("\r\n");
+            }
+        }
+        head.append("Content-Length: ").append(length).append("\r\n");
+        if (!keepAlive) {
+            head.append("Connection: close\r\n");
+        }
+        responseHead = head.append("\r\n").toString().getBytes(StandardCharsets.ISO_8859_1);
+        responseBytes = body;
+        responseLength = length;
+        responseSent = true;
+        connection.complete(this);
+    }
+
+    /**
+     * The response body, handed to the connection when closed
+     */
+    private final class ResponseBody extends ByteArrayOutputStream {
+
+        private boolean closed;
+
+        private ResponseBody(int size) {
+            super(size);
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                send(buf, count);
+            }
+        }
+    }
+}
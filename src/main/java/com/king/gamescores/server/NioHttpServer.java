@@ -0,0 +1,625 @@
+package com.king.gamescores.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Logger;
+
+import static java.net.HttpURLConnection.HTTP_BAD_REQUEST;
+import static java.net.HttpURLConnection.HTTP_ENTITY_TOO_LARGE;
+import static java.net.HttpURLConnection.HTTP_INTERNAL_ERROR;
+import static java.net.HttpURLConnection.HTTP_LENGTH_REQUIRED;
+import static java.util.logging.Level.FINE;
+import static java.util.logging.Level.SEVERE;
+
+/**
+ * HTTP/1.1 front end on non-blocking sockets, an alternative to the {@link com.sun.net.httpserver.HttpServer}. An
+ * acceptor thread hands the connections round-robin to the event loops, each one a thread with its own
+ * {@link Selector} which reads and parses the requests of its connections and writes their responses. The handlers
+ * may block, on logging, on the locks of some engines or on parsing a batch, so they are not run on the event loops:
+ * every request is executed by the {@link RequestExecutor}, and the response is handed back to the event loop of its
+ * connection to be written.
+ * <p>
+ * Connections are kept alive unless the client asks otherwise, and pipelined requests are answered in order: a
+ * connection has at most one request executing, the next one is parsed once its response has been queued for
+ * writing. The bodies are sent with a Content-Length or chunked, a client expecting 100-continue is answered once the
+ * header has been read. The headers are of at most {@value #MAX_HEADER_SIZE} bytes and the bodies of at most
+ * {@value #MAX_BODY_SIZE} bytes.
+ */
+final class NioHttpServer {
+
+    private static final Logger LOG = Logger.getLogger(NioHttpServer.class.getName());
+
+    static final int MAX_HEADER_SIZE = 8 * 1024;
+    static final int MAX_BODY_SIZE = 1024 * 1024;
+
+    // Results of chunkedBodyEnd other than the end of the body
+    private static final int INCOMPLETE = -1;
+    private static final int MALFORMED = -2;
+    private static final int TOO_LARGE = -3;
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final String CONTENT_LENGTH = "content-length";
+    private static final String TRANSFER_ENCODING = "transfer-encoding";
+    private static final String CONNECTION = "connection";
+    private static final String EXPECT = "expect";
+    private static final String HTTP_1_1 = "HTTP/1.1";
+
+    private final ServerSocketChannel serverChannel;
+    private final HttpHandler handler;
+    private final RequestExecutor executor;
+    private final EventLoop[] loops;
+    private final Thread acceptor;
+
+    /**
+     * Binds the server socket and starts the acceptor and the event loops
+     *
+     * @param address  the address to listen to
+     * @param loops    the number of event loops
+     * @param handler  the handler of every request
+     * @param executor the executor of the handler
+     * @throws IOException if the socket cannot be bound or a selector cannot be opened
+     */
+    NioHttpServer(InetSocketAddress address, int loops, HttpHandler handler, RequestExecutor executor)
+            throws IOException {
+        this.handler = handler;
+        this.executor = executor;
+        this.loops = new EventLoop[Math.max(1, loops)];
+        serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            serverChannel.bind(address, 1024);
+            for (int i = 0; i < this.loops.length; i++) {
+                this.loops[i] = new EventLoop(i);
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+        for (EventLoop loop : this.loops) {
+            loop.thread.start();
+        }
+        acceptor = new Thread(this::accept, "nio-acceptor");
+        acceptor.start();
+    }
+
+    /**
+     * Stops accepting connections and closes every open one
+     */
+    void stop() {
+        close();
+        try {
+            acceptor.join(1000);
+            for (EventLoop loop : loops) {
+                loop.thread.join(1000);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void close() {
+        try {
+            serverChannel.close();
+        } catch (IOException e) {
+            LOG.log(FINE, e.getMessage(), e);
+        }
+        for (EventLoop loop : loops) {
+            if (loop != null) {
+                loop.running = false;
+                loop.selector.wakeup();
+            }
+        }
+    }
+
+    private void accept() {
+        int next = 0;
+        while (serverChannel.isOpen()) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                loops[next].register(channel);
+                next = next + 1 == loops.length ? 0 : next + 1;
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                LOG.log(SEVERE, e.getMessage(), e);
+            }
+        }
+    }
+
+    private final class EventLoop implements Runnable {
+
+        private final Selector selector;
+        private final Queue<SocketChannel> accepted = new ConcurrentLinkedQueue<>();
+        // Requests whose response is ready to be written, handed back by the workers
+        private final Queue<NioExchange> completed = new ConcurrentLinkedQueue<>();
+        private final Thread thread;
+        private volatile boolean running = true;
+
+        private EventLoop(int index) throws IOException {
+            selector = Selector.open();
+            thread = new Thread(this, "nio-loop-" + index);
+            thread.setDaemon(true);
+        }
+
+        private void register(SocketChannel channel) {
+            accepted.add(channel);
+            selector.wakeup();
+        }
+
+        private void complete(NioExchange exchange) {
+            completed.add(exchange);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    selector.select();
+                } catch (IOException e) {
+                    LOG.log(SEVERE, e.getMessage(), e);
+                    continue;
+                }
+                SocketChannel channel;
+                while ((channel = accepted.poll()) != null) {
+                    Connection connection = new Connection(channel, this);
+                    try {
+                        connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+                    } catch (IOException e) {
+                        LOG.log(FINE, e.getMessage(), e);
+                        connection.close();
+                    }
+                }
+                NioExchange exchange;
+                while ((exchange = completed.poll()) != null) {
+                    Connection connection = exchange.getConnection();
+                    try {
+                        connection.respond(exchange);
+                    } catch (IOException | RuntimeException e) {
+                        LOG.log(FINE, e.getMessage(), e);
+                        connection.close();
+                    }
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    Connection connection = (Connection) key.attachment();
+                    try {
+                        if (key.isValid() && key.isReadable()) {
+                            connection.read();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            connection.write();
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        LOG.log(FINE, e.getMessage(), e);
+                        connection.close();
+                    }
+                }
+            }
+            for (SelectionKey key : selector.keys()) {
+                ((Connection) key.attachment()).close();
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                LOG.log(FINE, e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * A client connection: its read buffer, holding the requests not handled yet, and its write buffer, holding the
+     * responses not written yet. Both buffers are in write mode between events and only touched by the event loop.
+     */
+    final class Connection {
+
+        private final SocketChannel channel;
+        private final EventLoop loop;
+        private SelectionKey key;
+        private ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE);
+        private ByteBuffer out = ByteBuffer.allocate(BUFFER_SIZE);
+        // Length of the request partially received, once its header has been
+        private int pending;
+        // Whether the client has been told to send the body of the pending request
+        private boolean continued;
+        private boolean closeAfterWrite;
+        // The request being executed, the following ones are not parsed before it is answered
+        private NioExchange executing;
+
+        private Connection(SocketChannel channel, EventLoop loop) {
+            this.channel = channel;
+            this.loop = loop;
+        }
+
+        private void read() throws IOException {
+            if (channel.read(in) < 0) {
+                close();
+                return;
+            }
+            process();
+        }
+
+        private void write() throws IOException {
+            if (flush() && !closeAfterWrite && executing == null && in.position() > 0) {
+                // Requests pipelined while the previous responses were being written
+                process();
+            }
+        }
+
+        private void process() throws IOException {
+            in.flip();
+            while (!closeAfterWrite && executing == null && in.hasRemaining() && handleNext()) {
+                // Every complete request is handled in order
+            }
+            in.compact();
+            if (pending > in.capacity()) {
+                // The pending request, now at the start of the buffer, is longer than it. Its size has been checked
+                in = grow(in, pending);
+            }
+            flush();
+        }
+
+        /**
+         * Writes the response of the executing request, then handles the requests pipelined meanwhile
+         */
+        private void respond(NioExchange exchange) throws IOException {
+            executing = null;
+            if (!channel.isOpen()) {
+                return;
+            }
+            exchange.writeResponse(this);
+            closeAfterWrite |= exchange.closesConnection();
+            process();
+        }
+
+        /**
+         * Hands the request at the position of the read buffer to the executor, if it has been fully received
+         *
+         * @return true if a request has been handed over or answered
+         */
+        private boolean handleNext() {
+            byte[] bytes = in.array();
+            int start = in.position();
+            int headerEnd = indexOfHeaderEnd(bytes, start, in.limit());
+            if (headerEnd < 0) {
+                if (in.remaining() > MAX_HEADER_SIZE) {
+                    fail(HTTP_BAD_REQUEST);
+                }
+                return false;
+            }
+            String header = new String(bytes, start, headerEnd - start, StandardCharsets.ISO_8859_1);
+            int lineEnd = header.indexOf("\r\n");
+            String requestLine = lineEnd < 0 ? header : header.substring(0, lineEnd);
+            int methodEnd = requestLine.indexOf(' ');
+            int uriEnd = requestLine.lastIndexOf(' ');
+            if (methodEnd <= 0 || uriEnd <= methodEnd) {
+                fail(HTTP_BAD_REQUEST);
+                return false;
+            }
+            String protocol = requestLine.substring(uriEnd + 1);
+            String connection = headerValue(header, CONNECTION);
+            boolean keepAlive = HTTP_1_1.equals(protocol)
+                    ? !"close".equalsIgnoreCase(connection)
+                    : "keep-alive".equalsIgnoreCase(connection);
+            int bodyStart = headerEnd + 4;
+            String transferEncoding = headerValue(header, TRANSFER_ENCODING);
+            byte[] body;
+            int bodyOffset;
+            int bodyLength;
+            if (transferEncoding != null) {
+                if (!"chunked".equalsIgnoreCase(transferEncoding)) {
+                    fail(HTTP_LENGTH_REQUIRED);
+                    return false;
+                }
+                int end = chunkedBodyEnd(bytes, bodyStart, in.limit());
+                if (end == MALFORMED) {
+                    fail(HTTP_BAD_REQUEST);
+                    return false;
+                } else if (end == TOO_LARGE || end == INCOMPLETE && in.limit() - bodyStart > 2 * MAX_BODY_SIZE) {
+                    // The chunk sizes and extensions are bounded too, not only the decoded body
+                    fail(HTTP_ENTITY_TOO_LARGE);
+                    return false;
+                } else if (end == INCOMPLETE) {
+                    // The size of the body is not known, the buffer is doubled whenever the request fills it
+                    int received = in.limit() - start;
+                    pending = received == in.capacity() ? 2 * received : 0;
+                    expectContinue(header, protocol);
+                    return false;
+                }
+                body = decodeChunks(bytes, bodyStart);
+                bodyOffset = 0;
+                bodyLength = body.length;
+                in.position(end);
+            } else {
+                long contentLength;
+                try {
+                    String value = headerValue(header, CONTENT_LENGTH);
+                    contentLength = value == null ? 0 : Long.parseLong(value);
+                } catch (NumberFormatException e) {
+                    contentLength = -1;
+                }
+                if (contentLength < 0) {
+                    fail(HTTP_BAD_REQUEST);
+                    return false;
+                } else if (contentLength > MAX_BODY_SIZE) {
+                    fail(HTTP_ENTITY_TOO_LARGE);
+                    return false;
+                }
+                if (in.limit() - bodyStart < contentLength) {
+                    pending = bodyStart - start + (int) contentLength;
+                    expectContinue(header, protocol);
+                    return false;
+                }
+                body = bytes;
+                bodyOffset = bodyStart;
+                bodyLength = (int) contentLength;
+                in.position(bodyStart + bodyLength);
+            }
+            pending = 0;
+            continued = false;
+
+            NioExchange exchange;
+            try {
+                exchange = new NioExchange(this, requestLine.substring(0, methodEnd),
+                        requestLine.substring(methodEnd + 1, uriEnd), protocol, header, lineEnd,
+                        body, bodyOffset, bodyLength, keepAlive);
+            } catch (IllegalArgumentException e) {
+                fail(HTTP_BAD_REQUEST);
+                return false;
+            }
+            executing = exchange;
+            executor.execute(exchange, NioHttpServer.this::execute);
+            return true;
+        }
+
+        /**
+         * Answers 100 Continue the first time the body of a request is awaited, if its client waits for it
+         */
+        private void expectContinue(String header, String protocol) {
+            if (!continued && HTTP_1_1.equals(protocol)
+                    && "100-continue".equalsIgnoreCase(headerValue(header, EXPECT))) {
+                continued = true;
+                NioExchange.writeContinue(this);
+            }
+        }
+
+        /**
+         * Hands a response back to the event loop of the connection, from the thread which has handled the request
+         */
+        void complete(NioExchange exchange) {
+            loop.complete(exchange);
+        }
+
+        private void fail(int code) {
+            pending = 0;
+            continued = false;
+            NioExchange.writeError(this, code);
+            closeAfterWrite = true;
+        }
+
+        /**
+         * Appends a response to the write buffer
+         */
+        void send(byte[] head, int headLength, byte[] body, int bodyLength) {
+            int needed = headLength + bodyLength;
+            if (out.remaining() < needed) {
+                out = grow(out, out.position() + needed);
+            }
+            out.put(head, 0, headLength).put(body, 0, bodyLength);
+        }
+
+        /**
+         * @return true if every response has been written
+         */
+        private boolean flush() throws IOException {
+            out.flip();
+            channel.write(out);
+            boolean drained = !out.hasRemaining();
+            out.compact();
+            if (drained && closeAfterWrite) {
+                close();
+            } else if (key.isValid()) {
+                // No more requests are read while one is executing, the read buffer would fill up
+                key.interestOps((drained ? 0 : SelectionKey.OP_WRITE) | (executing == null ? SelectionKey.OP_READ : 0));
+            }
+            return drained;
+        }
+
+        InetSocketAddress remoteAddress() {
+            return (InetSocketAddress) channel.socket().getRemoteSocketAddress();
+        }
+
+        InetSocketAddress localAddress() {
+            return (InetSocketAddress) channel.socket().getLocalSocketAddress();
+        }
+
+        private void close() {
+            if (key != null) {
+                key.cancel();
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LOG.log(FINE, e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Handles a request on a worker thread, answering 500 if the handler has not answered it
+     */
+    private void execute(HttpExchange exchange) {
+        NioExchange nioExchange = (NioExchange) exchange;
+        try {
+            handler.handle(exchange);
+        } catch (IOException | RuntimeException e) {
+            LOG.log(SEVERE, e.getMessage(), e);
+            nioExchange.closeConnection();
+        }
+        if (!nioExchange.isResponseSent()) {
+            nioExchange.sendError(HTTP_INTERNAL_ERROR);
+        }
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer, int capacity) {
+        ByteBuffer grown = ByteBuffer.allocate(Math.max(capacity, buffer.capacity()));
+        buffer.flip();
+        return grown.put(buffer);
+    }
+
+    /**
+     * @return the index of the CRLF CRLF ending the header of a request, -1 if it has not been received yet
+     */
+    private static int indexOfHeaderEnd(byte[] bytes, int start, int end) {
+        for (int i = start; i + 3 < end; i++) {
+            if (bytes[i + 3] == '\n' && bytes[i + 2] == '\r' && bytes[i + 1] == '\n' && bytes[i] == '\r') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks a chunked body, made of chunks each preceded by its hexadecimal size, ended by a chunk of size 0 and by
+     * the trailer headers, which are skipped
+     *
+     * @return the index following the body, {@link #INCOMPLETE} if it has not been fully received yet,
+     * {@link #MALFORMED} if it cannot be parsed or {@link #TOO_LARGE} if it is longer than
+     * {@value #MAX_BODY_SIZE} bytes
+     */
+    private static int chunkedBodyEnd(byte[] bytes, int start, int end) {
+        int position = start;
+        long length = 0;
+        while (true) {
+            int lineEnd = indexOfLineEnd(bytes, position, end);
+            if (lineEnd < 0) {
+                return INCOMPLETE;
+            }
+            long size = chunkSize(bytes, position, lineEnd);
+            if (size < 0) {
+                return MALFORMED;
+            }
+            length += size;
+            if (length > MAX_BODY_SIZE) {
+                return TOO_LARGE;
+            }
+            position = lineEnd + 2;
+            if (size == 0) {
+                break;
+            }
+            if (end - position < size + 2) {
+                return INCOMPLETE;
+            }
+            position += (int) size;
+            if (bytes[position] != '\r' || bytes[position + 1] != '\n') {
+                return MALFORMED;
+            }
+            position += 2;
+        }
+        // The trailer, ended by an empty line
+        while (true) {
+            int lineEnd = indexOfLineEnd(bytes, position, end);
+            if (lineEnd < 0) {
+                return INCOMPLETE;
+            } else if (lineEnd == position) {
+                return lineEnd + 2;
+            }
+            position = lineEnd + 2;
+        }
+    }
+
+    /**
+     * @return the data of a chunked body which has been checked by {@link #chunkedBodyEnd(byte[], int, int)}
+     */
+    private static byte[] decodeChunks(byte[] bytes, int start) {
+        byte[] body = new byte[0];
+        int length = 0;
+        int position = start;
+        while (true) {
+            int lineEnd = indexOfLineEnd(bytes, position, bytes.length);
+            int size = (int) chunkSize(bytes, position, lineEnd);
+            if (size == 0) {
+                return body.length == length ? body : Arrays.copyOf(body, length);
+            }
+            if (body.length - length < size) {
+                body = Arrays.copyOf(body, Math.max(length + size, 2 * body.length));
+            }
+            System.arraycopy(bytes, lineEnd + 2, body, length, size);
+            length += size;
+            position = lineEnd + 2 + size + 2;
+        }
+    }
+
+    /**
+     * @return the hexadecimal size starting a chunk line, its extensions ignored, -1 if it is not one. A size longer
+     * than {@value #MAX_BODY_SIZE} is returned as {@value #MAX_BODY_SIZE} + 1
+     */
+    private static long chunkSize(byte[] bytes, int start, int end) {
+        long size = 0;
+        int i = start;
+        for (int digit; i < end && (digit = Character.digit(bytes[i], 16)) >= 0; i++) {
+            size = Math.min(size << 4 | digit, MAX_BODY_SIZE + 1);
+        }
+        if (i == start) {
+            return -1;
+        }
+        for (; i < end && bytes[i] != ';'; i++) {
+            if (bytes[i] != ' ' && bytes[i] != '\t') {
+                return -1;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return the index of the CRLF ending the line starting at the given index, -1 if it has not been received yet
+     */
+    private static int indexOfLineEnd(byte[] bytes, int start, int end) {
+        for (int i = start; i + 1 < end; i++) {
+            if (bytes[i] == '\r' && bytes[i + 1] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the trimmed value of the first header of the given lower case name, null if there is none
+     */
+    private static String headerValue(String header, String name) {
+        int lineStart = header.indexOf("\r\n");
+        while (lineStart >= 0) {
+            lineStart += 2;
+            int lineEnd = header.indexOf("\r\n", lineStart);
+            if (lineEnd < 0) {
+                lineEnd = header.length();
+            }
+            int colon = header.indexOf(':', lineStart);
+            if (colon > 0 && colon < lineEnd && colon - lineStart == name.length()
+                    && header.regionMatches(true, lineStart, name, 0, name.length())) {
+                return header.substring(colon + 1, lineEnd).trim();
+            }
+            lineStart = lineEnd < header.length() ? lineEnd : -1;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,73 @@
+package com.king.gamescores.server;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import static com.king.gamescores.util.ParamsValidator.INVALID;
+
+/**
+ * The routing of a request, resolved once by the {@link Router} and handed to the handlers as an attribute of the
+ * exchange: the {@link Route} and the ids parsed out of the path. An id the route does not have is 0, an id which is
+ * not a 31 bit unsigned integer number is {@link com.king.gamescores.util.ParamsValidator#INVALID}.
+ */
+public final class RequestContext {
+
+    public static final String ATTRIBUTE = "requestContext";
+
+    static final RequestContext UNKNOWN = new RequestContext(Route.UNKNOWN, 0, 0);
+
+    private final Route route;
+    private final int level;
+    private final int userId;
+
+    RequestContext(Route route, int level, int userId) {
+        this.route = route;
+        this.level = level;
+        this.userId = userId;
+    }
+
+    /**
+     * Returns the routing of a request, resolving it from the path when the request has not been routed by the
+     * {@link ScoresServer}
+     *
+     * @param exchange the request
+     * @return its routing
+     */
+    public static RequestContext of(HttpExchange exchange) {
+        RequestContext context = (RequestContext) exchange.getAttribute(ATTRIBUTE);
+        if (context == null) {
+            context = Router.route(exchange.getRequestURI().getPath());
+            exchange.setAttribute(ATTRIBUTE, context);
+        }
+        return context;
+    }
+
+    public Route getRoute() {
+        return route;
+    }
+
+    /**
+     * @return the level of the path, {@link com.king.gamescores.util.ParamsValidator#INVALID} if it is not a valid one
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * @return the userid of the path, {@link com.king.gamescores.util.ParamsValidator#INVALID} if it is not a valid one
+     */
+    public int getUserId() {
+        return userId;
+    }
+
+    /**
+     * @return true if every id of the path is a 31 bit unsigned integer number
+     */
+    public boolean hasValidIds() {
+        return level != INVALID && userId != INVALID;
+    }
+
+    @Override
+    public String toString() {
+        return route + "{level=" + level + ", userId=" + userId + '}';
+    }
+}
@@ -0,0 +1,148 @@
+package com.king.gamescores.server;
+
+import com.king.gamescores.handler.ResponseHandler;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+import static java.net.HttpURLConnection.HTTP_UNAVAILABLE;
+import static java.util.logging.Level.SEVERE;
+import static java.util.logging.Level.WARNING;
+
+/**
+ * Executes the requests handed over by the {@link com.sun.net.httpserver.HttpServer} dispatcher thread or by the
+ * {@link NioHttpServer} event loops with the selected {@link ExecutorMode}, measuring how long each one waits for a
+ * worker. A request refused by a full bounded queue is answered 503 with a Retry-After header right away, on the
+ * thread which has handed it over.
+ */
+final class RequestExecutor implements RequestExecutorMXBean {
+
+    private static final Logger LOG = Logger.getLogger(RequestExecutor.class.getName());
+
+    private static final String RETRY_AFTER_HEADER = "Retry-After";
+
+    private final ExecutorMode mode;
+    private final ExecutorService executor;
+    private final ResponseHandler unavailable;
+
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder queueWaitNanos = new LongAdder();
+    private volatile long maxQueueWaitNanos;
+
+    /**
+     * Constructs a {@link RequestExecutor} and starts its workers
+     *
+     * @param mode          the execution strategy
+     * @param workers       the number of worker threads of the pools
+     * @param queueCapacity the number of requests the bounded queue can hold
+     * @param retryAfter    the seconds a refused client is asked to wait
+     */
+    RequestExecutor(ExecutorMode mode, int workers, int queueCapacity, int retryAfter) {
+        this.mode = mode;
+        unavailable = ResponseHandler.code(HTTP_UNAVAILABLE).header(RETRY_AFTER_HEADER, String.valueOf(retryAfter));
+        executor = mode.create(workers, queueCapacity, (task, pool) -> ((Request) task).reject());
+    }
+
+    /**
+     * Executes the handler of a request
+     *
+     * @param exchange the request
+     * @param handler  the handler of the request
+     */
+    void execute(HttpExchange exchange, HttpHandler handler) {
+        try {
+            executor.execute(new Request(exchange, handler));
+        } catch (RejectedExecutionException e) {
+            // Only once shut down, the bounded pool answers the refused requests itself
+            exchange.close();
+        }
+    }
+
+    /**
+     * Stops accepting requests, the ones already accepted are still handled without being interrupted
+     */
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    @Override
+    public String getMode() {
+        return executor instanceof ThreadPoolExecutor && mode == ExecutorMode.VIRTUAL
+                ? ExecutorMode.BOUNDED.name()
+                : mode.name();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return executor instanceof ThreadPoolExecutor ? ((ThreadPoolExecutor) executor).getQueue().size() : 0;
+    }
+
+    @Override
+    public long getExecuted() {
+        return executed.sum();
+    }
+
+    @Override
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    @Override
+    public long getAverageQueueWaitMicros() {
+        long count = executed.sum();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(queueWaitNanos.sum() / count);
+    }
+
+    @Override
+    public long getMaxQueueWaitMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(maxQueueWaitNanos);
+    }
+
+    private final class Request implements Runnable {
+
+        private final HttpExchange exchange;
+        private final HttpHandler handler;
+        private final long enqueuedAt = System.nanoTime();
+
+        private Request(HttpExchange exchange, HttpHandler handler) {
+            this.exchange = exchange;
+            this.handler = handler;
+        }
+
+        @Override
+        public void run() {
+            long wait = System.nanoTime() - enqueuedAt;
+            queueWaitNanos.add(wait);
+            executed.increment();
+            if (wait > maxQueueWaitNanos) {
+                // Racy maximum, a concurrent larger wait may be overwritten, good enough for a metric
+                maxQueueWaitNanos = wait;
+            }
+            try {
+                handler.handle(exchange);
+            } catch (IOException | RuntimeException e) {
+                LOG.log(SEVERE, e.getMessage(), e);
+                exchange.close();
+            }
+        }
+
+        private void reject() {
+            rejected.increment();
+            LOG.log(WARNING, "Request refused, the queue is full");
+            try {
+                unavailable.handle(exchange);
+            } catch (IOException e) {
+                LOG.log(SEVERE, e.getMessage(), e);
+                exchange.close();
+            }
+        }
+    }
+}
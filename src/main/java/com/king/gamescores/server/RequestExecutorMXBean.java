@@ -0,0 +1,37 @@
+package com.king.gamescores.server;
+
+/**
+ * Management interface of the metrics of the executor of the {@link ScoresServer} requests
+ */
+public interface RequestExecutorMXBean {
+
+    /**
+     * @return the execution strategy, see {@link ExecutorMode}
+     */
+    String getMode();
+
+    /**
+     * @return the number of requests waiting for a worker, 0 for virtual threads
+     */
+    int getQueueDepth();
+
+    /**
+     * @return the total number of requests executed
+     */
+    long getExecuted();
+
+    /**
+     * @return the total number of requests refused with a 503 because the queue was full
+     */
+    long getRejected();
+
+    /**
+     * @return the average time the requests waited for a worker, in microseconds
+     */
+    long getAverageQueueWaitMicros();
+
+    /**
+     * @return the longest time a request waited for a worker, in microseconds
+     */
+    long getMaxQueueWaitMicros();
+}
@@ -0,0 +1,47 @@
+package com.king.gamescores.server;
+
+/**
+ * The endpoints of the {@link ScoresServer}, as resolved by the {@link Router}
+ */
+public enum Route {
+
+    /**
+     * GET /&lt;userid&gt;/login
+     */
+    LOGIN,
+
+    /**
+     * POST /&lt;levelid&gt;/score?sessionkey=&lt;sessionkey&gt;
+     */
+    SCORE,
+
+    /**
+     * GET /&lt;levelid&gt;/highscorelist
+     */
+    HIGH_SCORE_LIST,
+
+    /**
+     * GET /&lt;levelid&gt;/rank/&lt;userid&gt;
+     */
+    RANK,
+
+    /**
+     * GET /highscorelist?levels=&lt;levelid&gt;,...
+     */
+    MULTI_HIGH_SCORE_LIST,
+
+    /**
+     * POST /logout?sessionkey=&lt;sessionkey&gt;
+     */
+    LOGOUT,
+
+    /**
+     * POST /scores
+     */
+    BATCH_SCORE,
+
+    /**
+     * Any other path, answered 400
+     */
+    UNKNOWN
+}
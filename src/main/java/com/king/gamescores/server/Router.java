@@ -0,0 +1,85 @@
+package com.king.gamescores.server;
+
+import static com.king.gamescores.util.ParamsValidator.parseNumber;
+
+/**
+ * Utility class resolving the {@link Route} of a request path in a single pass over its characters, without splitting
+ * it, matching a regular expression or throwing: a junk path costs a few comparisons before its 400.
+ * <p>
+ * The ids of the path are parsed on the way, so that the handlers do not parse the path again. An id which is not a
+ * 31 bit unsigned integer number still resolves its route, the handler answers it after validating the method, like
+ * any other invalid parameter. Trailing slashes are ignored.
+ */
+public final class Router {
+
+    private static final String LOGIN = "login";
+    private static final String SCORE = "score";
+    private static final String HIGH_SCORE_LIST = "highscorelist";
+    private static final String RANK = "rank";
+    private static final String LOGOUT = "logout";
+    private static final String SCORES = "scores";
+
+    private Router() {
+    }
+
+    /**
+     * Resolves the route of a request path
+     *
+     * @param path the decoded path of the request URI
+     * @return the routing of the path, {@link Route#UNKNOWN} if no endpoint matches it
+     */
+    public static RequestContext route(String path) {
+        int end = path == null ? 0 : path.length();
+        while (end > 1 && path.charAt(end - 1) == '/') {
+            end--;
+        }
+        if (end < 2 || path.charAt(0) != '/') {
+            return RequestContext.UNKNOWN;
+        }
+
+        int first = 1;
+        int firstEnd = segmentEnd(path, first, end);
+        if (firstEnd == end) {
+            if (is(path, first, firstEnd, HIGH_SCORE_LIST)) {
+                return new RequestContext(Route.MULTI_HIGH_SCORE_LIST, 0, 0);
+            } else if (is(path, first, firstEnd, LOGOUT)) {
+                return new RequestContext(Route.LOGOUT, 0, 0);
+            } else if (is(path, first, firstEnd, SCORES)) {
+                return new RequestContext(Route.BATCH_SCORE, 0, 0);
+            }
+            return RequestContext.UNKNOWN;
+        }
+
+        int second = firstEnd + 1;
+        int secondEnd = segmentEnd(path, second, end);
+        int id = parseNumber(path, first, firstEnd);
+        if (secondEnd == end) {
+            if (is(path, second, secondEnd, LOGIN)) {
+                return new RequestContext(Route.LOGIN, 0, id);
+            } else if (is(path, second, secondEnd, SCORE)) {
+                return new RequestContext(Route.SCORE, id, 0);
+            } else if (is(path, second, secondEnd, HIGH_SCORE_LIST)) {
+                return new RequestContext(Route.HIGH_SCORE_LIST, id, 0);
+            }
+            return RequestContext.UNKNOWN;
+        }
+
+        int third = secondEnd + 1;
+        if (is(path, second, secondEnd, RANK) && segmentEnd(path, third, end) == end) {
+            return new RequestContext(Route.RANK, id, parseNumber(path, third, end));
+        }
+        return RequestContext.UNKNOWN;
+    }
+
+    private static int segmentEnd(String path, int start, int end) {
+        int i = start;
+        while (i < end && path.charAt(i) != '/') {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean is(String path, int start, int end, String segment) {
+        return end - start == segment.length() && path.regionMatches(start, segment, 0, segment.length());
+    }
+}
@@ -1,49 +1,93 @@
 package com.king.gamescores.server;
 
-import com.king.gamescores.filter.ParameterFilter;
+import com.king.gamescores.handler.BatchScoreHandler;
 import com.king.gamescores.handler.HighScoreHandler;
 import com.king.gamescores.handler.LoginHandler;
+import com.king.gamescores.handler.LogoutHandler;
+import com.king.gamescores.handler.MultiHighScoreHandler;
+import com.king.gamescores.handler.RankHandler;
 import com.king.gamescores.handler.ResponseHandler;
 import com.king.gamescores.handler.ScoreHandler;
-import com.sun.net.httpserver.HttpContext;
+import com.king.gamescores.properties.PropertiesManager;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpServer;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.net.InetSocketAddress;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.logging.Logger;
 
 import static java.net.HttpURLConnection.HTTP_BAD_REQUEST;
 import static java.util.logging.Level.CONFIG;
 import static java.util.logging.Level.SEVERE;
+import static java.util.logging.Level.WARNING;
 
+/**
+ * Routes the requests to their handlers. The requests are served by the {@link Transport} selected with
+ * scores.transport and executed, whatever the transport, by the {@link ExecutorMode} selected with scores.executor,
+ * whose metrics are registered in the platform MBean server as com.king.gamescores:type=RequestExecutor.
+ */
 public class ScoresServer {
 
     private static final Logger LOG = Logger.getLogger(ScoresServer.class.getName());
 
-    private static final int DEFAULT_WORKERS = Runtime.getRuntime().availableProcessors() - 1;
+    private static final String TRANSPORT = "scores.transport";
+    private static final String EXECUTOR = "scores.executor";
+    private static final String WORKERS = "scores.workers";
+    private static final String EXECUTOR_QUEUE = "scores.executorQueue";
+    private static final String RETRY_AFTER = "scores.retryAfter";
+    private static final String MBEAN_NAME = "com.king.gamescores:type=RequestExecutor";
+
+    // One core is left to the HttpServer dispatcher thread, but a single core container still gets a worker
+    private static final int DEFAULT_WORKERS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    private static final int DEFAULT_EVENT_LOOPS = Runtime.getRuntime().availableProcessors();
+    private static final int DEFAULT_EXECUTOR_QUEUE = 1024;
+    private static final int DEFAULT_RETRY_AFTER = 1;
 
     private HttpServer httpServer;
-    private ExecutorService executor;
+    private RequestExecutor executor;
+    private NioHttpServer nioServer;
 
     private LoginHandler loginHandler;
+    private LogoutHandler logoutHandler;
     private ScoreHandler scoreHandler;
     private HighScoreHandler highScoreHandler;
+    private MultiHighScoreHandler multiHighScoreHandler;
+    private RankHandler rankHandler;
+    private BatchScoreHandler batchScoreHandler;
 
     private ScoresServer(int port) throws IOException {
         this.loginHandler = new LoginHandler();
+        this.logoutHandler = new LogoutHandler();
         this.scoreHandler = new ScoreHandler();
         this.highScoreHandler = new HighScoreHandler();
-        startServer(port, DEFAULT_WORKERS);
+        this.multiHighScoreHandler = new MultiHighScoreHandler();
+        this.rankHandler = new RankHandler();
+        this.batchScoreHandler = new BatchScoreHandler();
+        PropertiesManager propertiesManager = PropertiesManager.getInstance();
+        Transport transport = Transport.of(propertiesManager.getString(TRANSPORT, Transport.HTTPSERVER.name()));
+        int workers = propertiesManager.getInt(WORKERS, 0);
+        if (workers == 0) {
+            workers = transport == Transport.NIO ? DEFAULT_EVENT_LOOPS : DEFAULT_WORKERS;
+        }
+        startServer(port, workers, transport,
+                ExecutorMode.of(propertiesManager.getString(EXECUTOR, ExecutorMode.FIXED.name())),
+                propertiesManager.getInt(EXECUTOR_QUEUE, DEFAULT_EXECUTOR_QUEUE),
+                propertiesManager.getInt(RETRY_AFTER, DEFAULT_RETRY_AFTER));
     }
 
-    private ScoresServer(int port, int workers) throws IOException {
+    private ScoresServer(int port, int workers, Transport transport, ExecutorMode executorMode, int queueCapacity)
+            throws IOException {
         this.loginHandler = null;
+        this.logoutHandler = null;
         this.scoreHandler = null;
         this.highScoreHandler = null;
-        startServer(port, workers);
+        this.multiHighScoreHandler = null;
+        this.rankHandler = null;
+        this.batchScoreHandler = null;
+        startServer(port, workers, transport, executorMode, queueCapacity, DEFAULT_RETRY_AFTER);
     }
 
     public static void start(int port) throws IOException {
@@ -51,7 +95,35 @@ public class ScoresServer {
     }
 
     public static ScoresServer start(int port, int workers) throws IOException {
-        return new ScoresServer(port, workers);
+        return new ScoresServer(port, workers, Transport.HTTPSERVER, ExecutorMode.FIXED, 0);
+    }
+
+    /**
+     * Starts a server without handlers, to be set before it is requested
+     *
+     * @param port      the port to listen to
+     * @param workers   the number of worker threads, and of event loops with the {@link Transport#NIO} transport
+     * @param transport the HTTP front end
+     * @return the started server
+     * @throws IOException if the server cannot be started
+     */
+    public static ScoresServer start(int port, int workers, Transport transport) throws IOException {
+        return new ScoresServer(port, workers, transport, ExecutorMode.FIXED, 0);
+    }
+
+    /**
+     * Starts a JDK HttpServer without handlers, to be set before it is requested
+     *
+     * @param port          the port to listen to
+     * @param workers       the number of worker threads
+     * @param executorMode  the execution strategy of the requests
+     * @param queueCapacity the number of requests the queue of the {@link ExecutorMode#BOUNDED} pool can hold
+     * @return the started server
+     * @throws IOException if the server cannot be started
+     */
+    public static ScoresServer start(int port, int workers, ExecutorMode executorMode, int queueCapacity)
+            throws IOException {
+        return new ScoresServer(port, workers, Transport.HTTPSERVER, executorMode, queueCapacity);
     }
 
     public ScoresServer loginHandler(LoginHandler loginHandler) {
@@ -59,6 +131,11 @@ public class ScoresServer {
         return this;
     }
 
+    public ScoresServer logoutHandler(LogoutHandler logoutHandler) {
+        this.logoutHandler = logoutHandler;
+        return this;
+    }
+
     public ScoresServer scoreHandler(ScoreHandler scoreHandler) {
         this.scoreHandler = scoreHandler;
         return this;
@@ -69,49 +146,106 @@ public class ScoresServer {
         return this;
     }
 
-    private void startServer(int port, int workers) throws IOException {
+    public ScoresServer multiHighScoreHandler(MultiHighScoreHandler multiHighScoreHandler) {
+        this.multiHighScoreHandler = multiHighScoreHandler;
+        return this;
+    }
+
+    public ScoresServer rankHandler(RankHandler rankHandler) {
+        this.rankHandler = rankHandler;
+        return this;
+    }
+
+    public ScoresServer batchScoreHandler(BatchScoreHandler batchScoreHandler) {
+        this.batchScoreHandler = batchScoreHandler;
+        return this;
+    }
+
+    private void startServer(int port, int workers, Transport transport, ExecutorMode executorMode,
+                             int queueCapacity, int retryAfter) throws IOException {
         boolean started = false;
-        executor = Executors.newFixedThreadPool(workers);
+        executor = new RequestExecutor(executorMode, workers, queueCapacity, retryAfter);
         try {
-            httpServer = HttpServer.create(new InetSocketAddress(port), 0);
-            HttpContext context = httpServer.createContext("/", this::handle);
-            context.getFilters().add(new ParameterFilter());
-            httpServer.setExecutor(executor);
-            httpServer.start();
+            if (transport == Transport.NIO) {
+                // The event loops only read and write, the routing runs on the executor with the handler
+                nioServer = new NioHttpServer(new InetSocketAddress(port), workers, this::dispatch, executor);
+            } else {
+                httpServer = HttpServer.create(new InetSocketAddress(port), 0);
+                // The dispatcher thread only hands the exchange over, the routing runs on the executor with the handler
+                httpServer.createContext("/", exchange -> executor.execute(exchange, this::dispatch));
+                httpServer.start();
+            }
             started = true;
-            LOG.log(CONFIG, "Server started");
+            registerMBean();
+            LOG.log(CONFIG, "Server started with the " + transport + " transport and the " + executor.getMode()
+                    + " executor");
         } catch (IOException e) {
             LOG.log(SEVERE, e.getMessage(), e);
             throw e;
         } finally {
             if (!started) {
-                executor.shutdownNow();
+                executor.shutdown();
             }
         }
     }
 
     public void stopServer(int delay) {
-        executor.shutdownNow();
-        httpServer.stop(delay);
+        if (nioServer != null) {
+            nioServer.stop();
+        } else {
+            httpServer.stop(delay);
+        }
+        executor.shutdown();
+        unregisterMBean();
         LOG.log(CONFIG, "Server stopped");
     }
 
-    private void handle(HttpExchange exchange) throws IOException {
-        String path = exchange.getRequestURI().getPath();
-        String[] paths = path.split("/");
-        if (paths.length == 3) {
-            String endpoint = paths[2];
-            if (endpoint.equals("login")) {
+    private void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(executor, new ObjectName(MBEAN_NAME));
+        } catch (JMException e) {
+            LOG.log(WARNING, "Request executor metrics cannot be registered", e);
+        }
+    }
+
+    private void unregisterMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(MBEAN_NAME));
+        } catch (JMException e) {
+            LOG.log(WARNING, "Request executor metrics cannot be unregistered", e);
+        }
+    }
+
+    /**
+     * Routes the request and hands it to its handler, which extracts the parameters it needs itself
+     */
+    private void dispatch(HttpExchange exchange) throws IOException {
+        RequestContext context = Router.route(exchange.getRequestURI().getPath());
+        exchange.setAttribute(RequestContext.ATTRIBUTE, context);
+        switch (context.getRoute()) {
+            case LOGIN:
                 loginHandler.handle(exchange);
-                return;
-            } else if (endpoint.startsWith("score")) {
+                break;
+            case SCORE:
                 scoreHandler.handle(exchange);
-                return;
-            } else if (endpoint.equals("highscorelist")) {
+                break;
+            case HIGH_SCORE_LIST:
                 highScoreHandler.handle(exchange);
-                return;
-            }
+                break;
+            case RANK:
+                rankHandler.handle(exchange);
+                break;
+            case MULTI_HIGH_SCORE_LIST:
+                multiHighScoreHandler.handle(exchange);
+                break;
+            case LOGOUT:
+                logoutHandler.handle(exchange);
+                break;
+            case BATCH_SCORE:
+                batchScoreHandler.handle(exchange);
+                break;
+            default:
+                ResponseHandler.code(HTTP_BAD_REQUEST).handle(exchange);
         }
-        ResponseHandler.code(HTTP_BAD_REQUEST).handle(exchange);
     }
 }
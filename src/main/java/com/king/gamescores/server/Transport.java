@@ -0,0 +1,31 @@
+package com.king.gamescores.server;
+
+import java.util.Locale;
+
+/**
+ * The HTTP front ends the {@link ScoresServer} can be served by, selected with the scores.transport property
+ */
+public enum Transport {
+
+    /**
+     * The JDK {@link com.sun.net.httpserver.HttpServer}, its dispatcher thread handing the exchanges to the workers
+     */
+    HTTPSERVER,
+
+    /**
+     * Non-blocking event loops reading the requests and writing the responses, one selector per worker, see
+     * {@link NioHttpServer}
+     */
+    NIO;
+
+    /**
+     * Returns the transport of the given name, case insensitive
+     *
+     * @param name the name of the transport
+     * @return the transport
+     * @throws IllegalArgumentException if there is no transport with the given name
+     */
+    public static Transport of(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,25 @@
+package com.king.gamescores.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Exponential backoff of a thread waiting for a condition it cannot be notified of, such as a flush waiting for the
+ * background threads to catch up: the parking time doubles from {@value #MIN_PARK_NANOS} ns up to a millisecond, so
+ * a short wait returns quickly and a long one costs no CPU. Not thread-safe, one per waiting call.
+ */
+final class Backoff {
+
+    private static final long MIN_PARK_NANOS = 1000;
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private long parkNanos = MIN_PARK_NANOS;
+
+    /**
+     * Parks the current thread for the current backoff time and doubles it
+     */
+    void pause() {
+        LockSupport.parkNanos(this, parkNanos);
+        parkNanos = Math.min(parkNanos << 1, MAX_PARK_NANOS);
+    }
+}
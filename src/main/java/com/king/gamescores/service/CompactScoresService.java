@@ -0,0 +1,187 @@
+package com.king.gamescores.service;
+
+import com.king.gamescores.properties.PropertiesManager;
+import com.king.gamescores.util.IntIntMap;
+import com.king.gamescores.util.IntObjectMap;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+import static com.king.gamescores.service.Leaderboard.pack;
+
+/**
+ * Scores service built on primitive int keyed hash tables: an {@link IntObjectMap} indexes the levels and an
+ * {@link IntIntMap} keeps the userId to score entries of each level, so neither levels, users nor scores are boxed.
+ * <p>
+ * Approximate memory per level with 5 scores per level, on a 64 bit JVM with compressed oops and ids above the
+ * {@link Integer} cache:
+ * <table summary="Memory per level">
+ * <tr><th></th><th>ConcurrentHashMap&lt;Integer, Map&lt;Integer, Integer&gt;&gt;</th><th>this service</th></tr>
+ * <tr><td>level index entry</td><td>32 node + 16 Integer + ~8 bin = 56</td><td>4 key + 4 reference, ~11 at 0.75
+ * load</td></tr>
+ * <tr><td>per level map</td><td>64 map + 48 table</td><td>24 map + 48 keys + 48 values</td></tr>
+ * <tr><td>5 scores</td><td>5 x (32 node + 2 x 16 Integer) = 320</td><td>included in the arrays</td></tr>
+ * <tr><td>total</td><td>~490 bytes</td><td>~130 bytes</td></tr>
+ * </table>
+ * <p>
+ * The level index is guarded by a {@link StampedLock}, written only when a level is created, and the scores of each
+ * level by the monitor of its map. The index is looked up with an optimistic read, falling back to the read lock only
+ * when a level has been created meanwhile, so registering and reading scores do not contend on the lock.
+ */
+public class CompactScoresService implements ScoresService {
+
+    private static final String MAX_SCORES_PER_LEVEL = "scores.maxScoresPerLevel";
+    private static final int EXPECTED_LEVELS = 1024;
+
+    protected final int maxScoresPerLevel;
+
+    private final IntObjectMap<IntIntMap> scoresByLevel;
+    private final StampedLock lock;
+
+    /**
+     * Constructs a {@link CompactScoresService} with the default maximum number of scores per level
+     */
+    public CompactScoresService() {
+        this(PropertiesManager.getInstance().getInt(MAX_SCORES_PER_LEVEL));
+    }
+
+    /**
+     * Constructs a {@link CompactScoresService}
+     *
+     * @param maxScoresPerLevel the maximum number of scores kept per level
+     */
+    public CompactScoresService(int maxScoresPerLevel) {
+        this.maxScoresPerLevel = maxScoresPerLevel;
+        scoresByLevel = new IntObjectMap<>(EXPECTED_LEVELS);
+        lock = new StampedLock();
+    }
+
+    /**
+     * Registers a user's score to a level. Only the highest score of each user counts and no more than
+     * maxScoresPerLevel scores are kept for each level, the lowest one being replaced by a higher one.
+     *
+     * @param level  level of the score to register, 31 bit unsigned integer number
+     * @param userId userId of the score to register, 31 bit unsigned integer number
+     * @param score  score to register, 31 bit unsigned integer number
+     */
+    @Override
+    public void registerScore(int level, int userId, int score) {
+        IntIntMap scores = getScores(level);
+        if (scores == null) {
+            scores = createScores(level);
+        }
+        synchronized (scores) {
+            register(userId, score, scores);
+        }
+    }
+
+    /**
+     * Registers a group of users' scores to a level holding its lock once
+     *
+     * @param level   level of the scores to register, 31 bit unsigned integer number
+     * @param userIds userIds of the scores to register
+     * @param scores  scores to register, in the same order as the userIds
+     * @param offset  position of the first score of the group in the arrays
+     * @param length  number of scores of the group
+     */
+    @Override
+    public void registerScores(int level, int[] userIds, int[] scores, int offset, int length) {
+        IntIntMap levelScores = getScores(level);
+        if (levelScores == null) {
+            levelScores = createScores(level);
+        }
+        synchronized (levelScores) {
+            for (int i = offset; i < offset + length; i++) {
+                register(userIds[i], scores[i], levelScores);
+            }
+        }
+    }
+
+    private void register(int userId, int score, IntIntMap scores) {
+        int currentScore = scores.get(userId, -1);
+        if (currentScore >= score) {
+            return;
+        }
+        if (currentScore < 0 && scores.size() >= maxScoresPerLevel) {
+            int minSlot = -1;
+            long min = Long.MAX_VALUE;
+            for (int slot = 0; slot < scores.slots(); slot++) {
+                int key = scores.keyAt(slot);
+                if (key != 0) {
+                    long entry = pack(key, scores.valueAt(slot));
+                    if (entry < min) {
+                        min = entry;
+                        minSlot = slot;
+                    }
+                }
+            }
+            if (pack(userId, score) <= min) {
+                return;
+            }
+            scores.remove(scores.keyAt(minSlot));
+        }
+        scores.put(userId, score);
+    }
+
+    /**
+     * Retrieves the high scores for a specific level. The result is a comma separated list in descending score order,
+     * users with the same score in ascending userId order. A request for a high score list of a level without any
+     * scores submitted will be an empty string.
+     *
+     * @param level 31 bit unsigned integer number
+     * @return CSV of <userid>=<score>
+     */
+    @Override
+    public String getHighScoresForLevel(int level) {
+        IntIntMap scores = getScores(level);
+        if (scores == null) {
+            return "";
+        }
+        long[] ranking;
+        synchronized (scores) {
+            ranking = new long[scores.size()];
+            int i = 0;
+            for (int slot = 0; slot < scores.slots(); slot++) {
+                int key = scores.keyAt(slot);
+                if (key != 0) {
+                    ranking[i++] = pack(key, scores.valueAt(slot));
+                }
+            }
+        }
+        Arrays.sort(ranking);
+        for (int i = 0, j = ranking.length - 1; i < j; i++, j--) {
+            long entry = ranking[i];
+            ranking[i] = ranking[j];
+            ranking[j] = entry;
+        }
+        return HighScoresSnapshot.of(ranking, 0).toString();
+    }
+
+    private IntIntMap getScores(int level) {
+        long stamp = lock.tryOptimisticRead();
+        IntIntMap scores = scoresByLevel.get(level);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                scores = scoresByLevel.get(level);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return scores;
+    }
+
+    private IntIntMap createScores(int level) {
+        long stamp = lock.writeLock();
+        try {
+            IntIntMap scores = scoresByLevel.get(level);
+            if (scores == null) {
+                scores = new IntIntMap(maxScoresPerLevel);
+                scoresByLevel.put(level, scores);
+            }
+            return scores;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.king.gamescores.service;
+
+import com.king.gamescores.util.Gzip;
+import com.king.gamescores.util.Strings;
+
+import java.nio.charset.StandardCharsets;
+
+import static com.king.gamescores.service.Leaderboard.scoreOf;
+import static com.king.gamescores.service.Leaderboard.userIdOf;
+
+/**
+ * Immutable high score list of a level, ready to be sent: the CSV of <userid>=<score> already encoded in UTF-8 plus a
+ * version which is incremented every time the top K of the level changes. Snapshots are built once per change, so
+ * reading a high score list does no sorting, formatting nor encoding.
+ * <p>
+ * The version is exposed as an HTTP entity tag, prefixed with the start time of the process so that the tags of a
+ * restarted server never match the ones of the previous run.
+ * <p>
+ * The gzip compressed list and its own entity tag are built by the first request asking for them and kept with the
+ * snapshot, so that each version is compressed once whatever the number of requests.
+ */
+public final class HighScoresSnapshot {
+
+    /**
+     * The high score list of a level without any scores submitted
+     */
+    public static final HighScoresSnapshot EMPTY = new HighScoresSnapshot(Leaderboard.EMPTY, new byte[0], 0);
+
+    private static final String ETAG_PREFIX = "\"" + Long.toString(System.currentTimeMillis(), 36) + '-';
+
+    private final long[] ranking;
+    private final byte[] bytes;
+    private final long version;
+    // Built by the first reader asking for them, racing readers build equal ones
+    private String eTag;
+    private String gzipETag;
+    private volatile byte[] gzipBytes;
+
+    private HighScoresSnapshot(long[] ranking, byte[] bytes, long version) {
+        this.ranking = ranking;
+        this.bytes = bytes;
+        this.version = version;
+    }
+
+    /**
+     * Builds a snapshot from an already formatted high score list, for services which do not keep snapshots
+     *
+     * @param highScores CSV of <userid>=<score>
+     * @return the snapshot, unversioned
+     */
+    public static HighScoresSnapshot of(String highScores) {
+        if (highScores == null || highScores.isEmpty()) {
+            return EMPTY;
+        }
+        return new HighScoresSnapshot(Leaderboard.EMPTY, highScores.getBytes(StandardCharsets.UTF_8), 0);
+    }
+
+    /**
+     * Builds a snapshot from a ranking of packed (score, userId) entries, encoding it digit by digit
+     *
+     * @param ranking descending sorted packed entries, owned by the snapshot from now on
+     * @param version version of the high score list
+     * @return the snapshot
+     */
+    static HighScoresSnapshot of(long[] ranking, long version) {
+        int length = Math.max(0, ranking.length - 1);
+        for (long entry : ranking) {
+            length += Strings.digits(userIdOf(entry)) + 1 + Strings.digits(scoreOf(entry));
+        }
+        byte[] bytes = new byte[length];
+        int position = 0;
+        for (int i = 0; i < ranking.length; i++) {
+            if (i > 0) {
+                bytes[position++] = ',';
+            }
+            position = Strings.writeDigits(userIdOf(ranking[i]), bytes, position);
+            bytes[position++] = '=';
+            position = Strings.writeDigits(scoreOf(ranking[i]), bytes, position);
+        }
+        return new HighScoresSnapshot(ranking, bytes, version);
+    }
+
+    long[] ranking() {
+        return ranking;
+    }
+
+    /**
+     * @return the UTF-8 encoded CSV of <userid>=<score>, shared by every reader and which must not be modified
+     */
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return the version of the high score list, 0 for a level without scores or an unversioned list
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the quoted entity tag of the high score list, the same for every snapshot of the same version of a level,
+     * null for an unversioned list
+     */
+    public String getETag() {
+        String tag = eTag;
+        if (tag == null && (version > 0 || isEmpty())) {
+            tag = ETAG_PREFIX + Long.toString(version, 36) + '"';
+            eTag = tag;
+        }
+        return tag;
+    }
+
+    /**
+     * @return the quoted entity tag of the gzip compressed list, null for an unversioned list
+     */
+    public String getGzipETag() {
+        String tag = gzipETag;
+        if (tag == null && (version > 0 || isEmpty())) {
+            tag = ETAG_PREFIX + Long.toString(version, 36) + "-gzip\"";
+            gzipETag = tag;
+        }
+        return tag;
+    }
+
+    /**
+     * @return the gzip compressed CSV of <userid>=<score>, compressed on the first call, shared by every reader and
+     * which must not be modified
+     */
+    public byte[] getGzipBytes() {
+        byte[] compressed = gzipBytes;
+        if (compressed == null) {
+            compressed = Gzip.compress(bytes);
+            gzipBytes = compressed;
+        }
+        return compressed;
+    }
+
+    public boolean isEmpty() {
+        return bytes.length == 0;
+    }
+
+    /**
+     * @return CSV of <userid>=<score>
+     */
+    @Override
+    public String toString() {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
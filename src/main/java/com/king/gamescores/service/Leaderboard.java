@@ -0,0 +1,348 @@
+package com.king.gamescores.service;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The top K scores of a single level, kept as an immutable array of packed (score, userId) longs sorted in descending
+ * order. Every submission which changes the top K computes a new array from the current one, encodes it into a new
+ * {@link HighScoresSnapshot} and publishes it with a single CAS, so readers always see a consistent, ready-to-send
+ * high score list and the ranking never holds more than K entries, whatever the number of concurrent writers.
+ * <p>
+ * The packed layout keeps the score in the high 32 bits and {@code Integer.MAX_VALUE - userId} in the low 32 bits, so
+ * comparing two entries as plain longs orders them by score descending and, for equal scores, by userId ascending.
+ * <p>
+ * Every published change adds the size difference of the snapshots to a shared memory usage counter. An evicted
+ * leaderboard is retired by publishing a tombstone snapshot, after which offers fail so writers move to a new
+ * leaderboard of the level.
+ */
+final class Leaderboard {
+
+    static final long[] EMPTY = new long[0];
+
+    /**
+     * Estimated bytes taken by a level apart from its snapshot: the map node, the boxed level and the leaderboard
+     */
+    static final int LEVEL_OVERHEAD = 72;
+    private static final int SNAPSHOT_OVERHEAD = 56;
+    private static final HighScoresSnapshot RETIRED = HighScoresSnapshot.of(EMPTY, 0);
+
+    private static final AtomicReferenceFieldUpdater<Leaderboard, HighScoresSnapshot> SNAPSHOT =
+            AtomicReferenceFieldUpdater.newUpdater(Leaderboard.class, HighScoresSnapshot.class, "snapshot");
+
+    private final int capacity;
+    private final LongAdder usedBytes;
+    // Versions of this leaderboard start after it, so that a level evicted and created again never repeats a version
+    private final long versionBase;
+
+    private volatile HighScoresSnapshot snapshot = HighScoresSnapshot.EMPTY;
+    // CLOCK reference bit, set on every access but the creating one and cleared by the eviction hand
+    private volatile boolean referenced;
+
+    /**
+     * Constructs an empty {@link Leaderboard}
+     *
+     * @param capacity    the maximum number of scores kept, K
+     * @param usedBytes   the memory usage counter the size changes of the snapshots are added to
+     * @param versionBase the version the versions of the published snapshots start after
+     */
+    Leaderboard(int capacity, LongAdder usedBytes, long versionBase) {
+        this.capacity = capacity;
+        this.usedBytes = usedBytes;
+        this.versionBase = versionBase;
+    }
+
+    /**
+     * Offers a user's score to the leaderboard. Retries the CAS only while other writers keep changing the ranking
+     * and never allocates when the score does not make it into the top K.
+     *
+     * @param userId userId of the score, 31 bit unsigned integer number
+     * @param score  score to offer, 31 bit unsigned integer number
+     * @return false if the leaderboard has been retired and the score must be offered to a new one, true otherwise
+     */
+    boolean offer(int userId, int score) {
+        while (true) {
+            HighScoresSnapshot current = snapshot;
+            if (current == RETIRED) {
+                return false;
+            }
+            long[] ranking = current.ranking();
+            long[] updated = insert(ranking, userId, score, capacity);
+            if (updated == ranking) {
+                return true;
+            }
+            if (publish(current, updated)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Offers a group of users' scores to the leaderboard. The best score of each user of the group is sorted once,
+     * then merged with the current ranking into a single new array in one pass and published with a single CAS.
+     *
+     * @param userIds userIds of the scores
+     * @param scores  scores to offer, in the same order as the userIds
+     * @param offset  position of the first score of the group in the arrays
+     * @param length  number of scores of the group
+     * @return false if the leaderboard has been retired and the scores must be offered to a new one, true otherwise
+     */
+    boolean offerAll(int[] userIds, int[] scores, int offset, int length) {
+        Group group = new Group(userIds, scores, offset, length);
+        while (true) {
+            HighScoresSnapshot current = snapshot;
+            if (current == RETIRED) {
+                return false;
+            }
+            long[] ranking = current.ranking();
+            long[] updated = merge(ranking, group, capacity);
+            if (updated == ranking || publish(current, updated)) {
+                return true;
+            }
+        }
+    }
+
+    private boolean publish(HighScoresSnapshot current, long[] updated) {
+        HighScoresSnapshot next = HighScoresSnapshot.of(updated, Math.max(current.getVersion(), versionBase) + 1);
+        if (SNAPSHOT.compareAndSet(this, current, next)) {
+            usedBytes.add(footprint(next) - footprint(current));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the current high score list, empty once retired
+     */
+    HighScoresSnapshot snapshot() {
+        touch();
+        HighScoresSnapshot current = snapshot;
+        return current != RETIRED ? current : HighScoresSnapshot.EMPTY;
+    }
+
+    /**
+     * Retires the leaderboard, releasing its memory from the usage counter. Later offers fail.
+     *
+     * @return true if the leaderboard has been retired by this call
+     */
+    boolean retire() {
+        while (true) {
+            HighScoresSnapshot current = snapshot;
+            if (current == RETIRED) {
+                return false;
+            }
+            if (SNAPSHOT.compareAndSet(this, current, RETIRED)) {
+                usedBytes.add(-LEVEL_OVERHEAD - footprint(current));
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Clears the reference bit for the eviction hand
+     *
+     * @return true if the leaderboard had been accessed since the last call
+     */
+    boolean clearReferenced() {
+        if (referenced) {
+            referenced = false;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Sets the reference bit of the leaderboard
+     */
+    void touch() {
+        // Reading first keeps the cache line shared while the bit is already set
+        if (!referenced) {
+            referenced = true;
+        }
+    }
+
+    /**
+     * @return the estimated bytes taken by a snapshot, its ranking and its encoded bytes
+     */
+    static long footprint(HighScoresSnapshot snapshot) {
+        return SNAPSHOT_OVERHEAD + 8L * snapshot.ranking().length + snapshot.getBytes().length;
+    }
+
+    static long pack(int userId, int score) {
+        return ((long) score << 32) | (Integer.MAX_VALUE - userId);
+    }
+
+    static int scoreOf(long entry) {
+        return (int) (entry >>> 32);
+    }
+
+    static int userIdOf(long entry) {
+        return Integer.MAX_VALUE - (int) entry;
+    }
+
+    /**
+     * Computes the ranking resulting from registering a user's score. Only the highest score of each user counts and a
+     * full ranking only accepts entries that rank above its last one.
+     *
+     * @param ranking  descending sorted packed entries, not modified
+     * @param userId   userId of the score
+     * @param score    score to register
+     * @param capacity the maximum number of entries of the ranking
+     * @return the given ranking if the score does not change it, a new array otherwise
+     */
+    static long[] insert(long[] ranking, int userId, int score, int capacity) {
+        long entry = pack(userId, score);
+        int size = ranking.length;
+        if (size >= capacity && entry <= ranking[size - 1]) {
+            return ranking;
+        }
+
+        int position = position(ranking, entry);
+        if (position < size && ranking[position] == entry) {
+            return ranking;
+        }
+        // A better entry of the same user ranks before the new one
+        for (int i = 0; i < position; i++) {
+            if (userIdOf(ranking[i]) == userId) {
+                return ranking;
+            }
+        }
+        int previous = -1;
+        for (int i = position; i < size; i++) {
+            if (userIdOf(ranking[i]) == userId) {
+                previous = i;
+                break;
+            }
+        }
+
+        long[] updated;
+        if (previous >= 0) {
+            updated = new long[size];
+            System.arraycopy(ranking, 0, updated, 0, position);
+            System.arraycopy(ranking, position, updated, position + 1, previous - position);
+            System.arraycopy(ranking, previous + 1, updated, previous + 1, size - previous - 1);
+        } else {
+            updated = new long[Math.min(size + 1, capacity)];
+            System.arraycopy(ranking, 0, updated, 0, position);
+            System.arraycopy(ranking, position, updated, position + 1, updated.length - position - 1);
+        }
+        updated[position] = entry;
+        return updated;
+    }
+
+    /**
+     * Computes the ranking resulting from registering a group of scores, following the same rules as
+     * {@link #insert(long[], int, int, int)}: both descending sequences are walked once, each user keeping its best
+     * entry, until the capacity is reached.
+     *
+     * @param ranking  descending sorted packed entries, not modified
+     * @param group    the best scores of the users of the group
+     * @param capacity the maximum number of entries of the ranking
+     * @return the given ranking if the group does not change it, a new array otherwise
+     */
+    static long[] merge(long[] ranking, Group group, int capacity) {
+        long[] entries = group.entries;
+        long[] updated = new long[Math.min(capacity, ranking.length + entries.length)];
+        // Users of the group whose entry in the ranking is at least as good as the one of the group
+        boolean[] outranked = new boolean[entries.length];
+        boolean changed = false;
+        int size = 0;
+        int r = 0;
+        int g = 0;
+        while (size < updated.length && (r < ranking.length || g < entries.length)) {
+            if (g == entries.length || r < ranking.length && ranking[r] >= entries[g]) {
+                long entry = ranking[r++];
+                int user = group.indexOf(userIdOf(entry));
+                if (user < 0 || group.best[user] <= entry) {
+                    updated[size++] = entry;
+                    if (user >= 0) {
+                        outranked[user] = true;
+                    }
+                }
+                // Otherwise the better entry of the group has already been taken
+            } else {
+                long entry = entries[g++];
+                int user = group.indexOf(userIdOf(entry));
+                if (!outranked[user]) {
+                    updated[size++] = entry;
+                    changed = true;
+                }
+            }
+        }
+        if (!changed) {
+            return ranking;
+        }
+        return size == updated.length ? updated : Arrays.copyOf(updated, size);
+    }
+
+    /**
+     * Binary searches the index of the first entry ranking at or below the given one
+     */
+    private static int position(long[] ranking, long entry) {
+        int low = 0;
+        int high = ranking.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ranking[mid] > entry) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * The best score of each user of a group of submissions, both in userId order, to look the users up, and in
+     * ranking order, to be merged
+     */
+    static final class Group {
+
+        private final int[] userIds;
+        private final long[] best;
+        private final long[] entries;
+
+        /**
+         * Sorts a group of scores
+         *
+         * @param userIds userIds of the scores
+         * @param scores  scores, in the same order as the userIds
+         * @param offset  position of the first score of the group in the arrays
+         * @param length  number of scores of the group
+         */
+        Group(int[] userIds, int[] scores, int offset, int length) {
+            // userId then score, both 31 bit unsigned, so the best score of a user ends its run
+            long[] keys = new long[length];
+            for (int i = 0; i < length; i++) {
+                keys[i] = (long) userIds[offset + i] << 32 | scores[offset + i];
+            }
+            Arrays.sort(keys);
+            int count = 0;
+            for (int i = 0; i < length; i++) {
+                if (i == length - 1 || keys[i] >>> 32 != keys[i + 1] >>> 32) {
+                    keys[count++] = keys[i];
+                }
+            }
+            this.userIds = new int[count];
+            best = new long[count];
+            for (int i = 0; i < count; i++) {
+                this.userIds[i] = (int) (keys[i] >>> 32);
+                best[i] = pack(this.userIds[i], (int) keys[i]);
+            }
+            long[] ascending = best.clone();
+            Arrays.sort(ascending);
+            entries = new long[count];
+            for (int i = 0; i < count; i++) {
+                entries[i] = ascending[count - 1 - i];
+            }
+        }
+
+        /**
+         * @return the index of the user in the group, negative if it is not part of it
+         */
+        private int indexOf(int userId) {
+            return Arrays.binarySearch(userIds, userId);
+        }
+    }
+}
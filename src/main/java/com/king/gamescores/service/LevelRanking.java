@@ -0,0 +1,124 @@
+package com.king.gamescores.service;
+
+import com.king.gamescores.util.IndexedSkipList;
+import com.king.gamescores.util.IntIntMap;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.king.gamescores.service.Leaderboard.pack;
+
+/**
+ * The full ranking of a level: the best score of every user who has submitted one, not only the top K. The best scores
+ * are kept in an {@link IntIntMap} and ordered in an {@link IndexedSkipList} of inverted packed (score, userId)
+ * entries, so the rank of a user and the scores around it are found in O(log n).
+ * <p>
+ * Each ranked user costs around {@value #USER_BYTES} bytes: a skip list node of about 80 bytes plus its userId and
+ * score in the map. The estimated memory is added to a shared usage counter as users are ranked, and released when the
+ * ranking is retired by the eviction of its level, after which offers fail so writers move to a new ranking.
+ */
+final class LevelRanking {
+
+    /**
+     * Estimated bytes taken by an empty ranking: the map node, the initial hash table and the skip list head
+     */
+    static final int RANKING_OVERHEAD = 1400;
+    static final int USER_BYTES = 90;
+
+    private static final int EXPECTED_USERS = 64;
+
+    private final IntIntMap bestScores = new IntIntMap(EXPECTED_USERS);
+    private final IndexedSkipList ranking = new IndexedSkipList();
+    private final LongAdder usedBytes;
+    private boolean retired;
+
+    /**
+     * Constructs an empty {@link LevelRanking}
+     *
+     * @param usedBytes the memory usage counter the ranked users are added to
+     */
+    LevelRanking(LongAdder usedBytes) {
+        this.usedBytes = usedBytes;
+        usedBytes.add(RANKING_OVERHEAD);
+    }
+
+    /**
+     * Registers a user's score. Only the highest score of each user counts.
+     *
+     * @param userId userId of the score, 31 bit unsigned integer number
+     * @param score  score to register, 31 bit unsigned integer number
+     * @return false if the ranking has been retired and the score must be offered to a new one, true otherwise
+     */
+    synchronized boolean offer(int userId, int score) {
+        if (retired) {
+            return false;
+        }
+        int currentScore = bestScores.get(userId, -1);
+        if (currentScore >= score) {
+            return true;
+        }
+        if (currentScore >= 0) {
+            ranking.remove(key(userId, currentScore));
+        } else {
+            usedBytes.add(USER_BYTES);
+        }
+        ranking.add(key(userId, score));
+        bestScores.put(userId, score);
+        return true;
+    }
+
+    /**
+     * Retires the ranking, releasing its memory from the usage counter. Later offers fail.
+     *
+     * @return true if the ranking has been retired by this call
+     */
+    synchronized boolean retire() {
+        if (retired) {
+            return false;
+        }
+        retired = true;
+        usedBytes.add(-RANKING_OVERHEAD - (long) USER_BYTES * ranking.size());
+        return true;
+    }
+
+    /**
+     * @param userId the userId
+     * @return the 1 based rank of the user, 0 if the user has no score
+     */
+    synchronized int rank(int userId) {
+        int score = bestScores.get(userId, -1);
+        return score >= 0 ? ranking.indexOf(key(userId, score)) + 1 : 0;
+    }
+
+    /**
+     * Returns the entries ranked around a user
+     *
+     * @param userId the userId
+     * @param radius the number of entries before and after the user
+     * @return the packed (score, userId) entries in ranking order, empty if the user has no score
+     */
+    synchronized long[] around(int userId, int radius) {
+        int rank = rank(userId);
+        if (rank == 0) {
+            return Leaderboard.EMPTY;
+        }
+        int from = Math.max(0, rank - 1 - radius);
+        int to = (int) Math.min(ranking.size(), (long) rank + radius);
+        long[] entries = new long[to - from];
+        ranking.copy(from, entries, 0, entries.length);
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = ~entries[i];
+        }
+        return entries;
+    }
+
+    synchronized int size() {
+        return ranking.size();
+    }
+
+    /**
+     * Inverts the packed entry so that the ascending order of the skip list is the descending ranking order
+     */
+    private static long key(int userId, int score) {
+        return ~pack(userId, score);
+    }
+}
@@ -0,0 +1,304 @@
+package com.king.gamescores.service;
+
+import com.king.gamescores.properties.PropertiesManager;
+import com.king.gamescores.util.Hashing;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.StampedLock;
+
+import static com.king.gamescores.service.Leaderboard.pack;
+
+/**
+ * Scores service which keeps every level outside of the Java heap, so the heap footprint and the GC pauses do not
+ * grow with the number of levels. Levels are spread by hash across segments, each one an open addressing hash table in
+ * a direct {@link ByteBuffer} with linear probing and guarded by its own {@link StampedLock}.
+ * <p>
+ * Every level takes a fixed-width slot of the table:
+ * <pre>
+ * | level (int) | count (int) | version (long) | userId (int) | score (int) | ... K records ...
+ * </pre>
+ * A level 0 marks a free slot. The records are kept in descending score order, users with the same score in ascending
+ * userId order, so the high score list is read straight from the slot. A segment doubles its buffer when it is 3/4
+ * full; the direct memory must be sized accordingly with {@code -XX:MaxDirectMemorySize}.
+ * <p>
+ * The snapshot of a high score list is kept on the heap once read, until its level changes, so the polls of an
+ * unchanged list neither copy the records nor encode nor compress them again.
+ */
+public class OffHeapScoresService implements ScoresService {
+
+    private static final String MAX_SCORES_PER_LEVEL = "scores.maxScoresPerLevel";
+
+    private static final int DEFAULT_SEGMENTS = 64;
+    private static final int INITIAL_SLOTS = 1024;
+
+    private static final int LEVEL_OFFSET = 0;
+    private static final int COUNT_OFFSET = 4;
+    private static final int VERSION_OFFSET = 8;
+    private static final int RECORDS_OFFSET = 16;
+    private static final int RECORD_SIZE = 8;
+    private static final int USER_ID_OFFSET = 0;
+    private static final int SCORE_OFFSET = 4;
+
+    protected final int maxScoresPerLevel;
+
+    private final int slotSize;
+    private final int segmentShift;
+    private final Segment[] segments;
+
+    /**
+     * Constructs a {@link OffHeapScoresService} with the default maximum number of scores per level
+     */
+    public OffHeapScoresService() {
+        this(PropertiesManager.getInstance().getInt(MAX_SCORES_PER_LEVEL), DEFAULT_SEGMENTS);
+    }
+
+    /**
+     * Constructs a {@link OffHeapScoresService}
+     *
+     * @param maxScoresPerLevel the maximum number of scores kept per level
+     * @param segments          the number of segments, rounded up to a power of two
+     */
+    public OffHeapScoresService(int maxScoresPerLevel, int segments) {
+        this.maxScoresPerLevel = maxScoresPerLevel;
+        slotSize = RECORDS_OFFSET + RECORD_SIZE * maxScoresPerLevel;
+        int bits = 32 - Integer.numberOfLeadingZeros(Math.max(1, segments) - 1);
+        segmentShift = 32 - bits;
+        this.segments = new Segment[1 << bits];
+        for (int i = 0; i < this.segments.length; i++) {
+            this.segments[i] = new Segment(INITIAL_SLOTS);
+        }
+    }
+
+    /**
+     * Registers a user's score to a level. Only the highest score of each user counts and no more than
+     * maxScoresPerLevel scores are kept for each level.
+     *
+     * @param level  level of the score to register, 31 bit unsigned integer number
+     * @param userId userId of the score to register, 31 bit unsigned integer number
+     * @param score  score to register, 31 bit unsigned integer number
+     */
+    @Override
+    public void registerScore(int level, int userId, int score) {
+        int hash = Hashing.mix(level);
+        Segment segment = segmentFor(hash);
+        long stamp = segment.lock.writeLock();
+        try {
+            int slot = segment.findOrCreate(level, hash);
+            if (insert(segment.table, slot * slotSize, userId, score)) {
+                segment.snapshots[slot] = null;
+            }
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Registers a group of users' scores to a level locating its slot and holding its segment lock once
+     *
+     * @param level   level of the scores to register, 31 bit unsigned integer number
+     * @param userIds userIds of the scores to register
+     * @param scores  scores to register, in the same order as the userIds
+     * @param offset  position of the first score of the group in the arrays
+     * @param length  number of scores of the group
+     */
+    @Override
+    public void registerScores(int level, int[] userIds, int[] scores, int offset, int length) {
+        int hash = Hashing.mix(level);
+        Segment segment = segmentFor(hash);
+        long stamp = segment.lock.writeLock();
+        try {
+            int slot = segment.findOrCreate(level, hash);
+            boolean changed = false;
+            for (int i = offset; i < offset + length; i++) {
+                changed |= insert(segment.table, slot * slotSize, userIds[i], scores[i]);
+            }
+            if (changed) {
+                segment.snapshots[slot] = null;
+            }
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Retrieves the high scores for a specific level. The result is a comma separated list in descending score order,
+     * users with the same score in ascending userId order. A request for a high score list of a level without any
+     * scores submitted will be an empty string.
+     *
+     * @param level 31 bit unsigned integer number
+     * @return CSV of <userid>=<score>
+     */
+    @Override
+    public String getHighScoresForLevel(int level) {
+        return getHighScoresSnapshot(level).toString();
+    }
+
+    /**
+     * Retrieves the high score list of a level, encoded straight from its off-heap slot the first time the current
+     * version is read
+     *
+     * @param level 31 bit unsigned integer number
+     * @return the high score list of the level
+     */
+    @Override
+    public HighScoresSnapshot getHighScoresSnapshot(int level) {
+        int hash = Hashing.mix(level);
+        Segment segment = segmentFor(hash);
+        long stamp = segment.lock.readLock();
+        try {
+            int slot = segment.find(level, hash);
+            if (slot < 0) {
+                return HighScoresSnapshot.EMPTY;
+            }
+            HighScoresSnapshot snapshot = segment.snapshots[slot];
+            if (snapshot == null) {
+                ByteBuffer table = segment.table;
+                int offset = slot * slotSize;
+                long[] ranking = new long[table.getInt(offset + COUNT_OFFSET)];
+                for (int i = 0; i < ranking.length; i++) {
+                    int record = offset + RECORDS_OFFSET + i * RECORD_SIZE;
+                    ranking[i] = pack(table.getInt(record + USER_ID_OFFSET), table.getInt(record + SCORE_OFFSET));
+                }
+                snapshot = HighScoresSnapshot.of(ranking, table.getLong(offset + VERSION_OFFSET));
+                // Racing readers store equal snapshots, whose final fields are safely published
+                segment.snapshots[slot] = snapshot;
+            }
+            return snapshot;
+        } finally {
+            segment.lock.unlockRead(stamp);
+        }
+    }
+
+    private Segment segmentFor(int hash) {
+        return segments[segmentShift == 32 ? 0 : hash >>> segmentShift];
+    }
+
+    /**
+     * Inserts the score into the sorted records of a slot, following the same rules as {@link Leaderboard#insert}
+     *
+     * @return true if the records have changed
+     */
+    private boolean insert(ByteBuffer table, int offset, int userId, int score) {
+        long entry = pack(userId, score);
+        int records = offset + RECORDS_OFFSET;
+        int count = table.getInt(offset + COUNT_OFFSET);
+        if (count >= maxScoresPerLevel && entry <= packAt(table, records + (count - 1) * RECORD_SIZE)) {
+            return false;
+        }
+
+        int position = 0;
+        int previous = -1;
+        for (int i = 0; i < count; i++) {
+            int record = records + i * RECORD_SIZE;
+            long current = packAt(table, record);
+            if (current > entry) {
+                position = i + 1;
+            }
+            if (table.getInt(record + USER_ID_OFFSET) == userId) {
+                if (current >= entry) {
+                    return false;
+                }
+                previous = i;
+                break;
+            }
+        }
+
+        int last = previous >= 0 ? previous : Math.min(count, maxScoresPerLevel - 1);
+        for (int i = last; i > position; i--) {
+            int record = records + i * RECORD_SIZE;
+            table.putLong(record, table.getLong(record - RECORD_SIZE));
+        }
+        int record = records + position * RECORD_SIZE;
+        table.putInt(record + USER_ID_OFFSET, userId);
+        table.putInt(record + SCORE_OFFSET, score);
+        if (previous < 0 && count < maxScoresPerLevel) {
+            table.putInt(offset + COUNT_OFFSET, count + 1);
+        }
+        table.putLong(offset + VERSION_OFFSET, table.getLong(offset + VERSION_OFFSET) + 1);
+        return true;
+    }
+
+    private static long packAt(ByteBuffer table, int record) {
+        return pack(table.getInt(record + USER_ID_OFFSET), table.getInt(record + SCORE_OFFSET));
+    }
+
+    /**
+     * An open addressing hash table of level slots in a direct buffer
+     */
+    private final class Segment {
+
+        private final StampedLock lock = new StampedLock();
+
+        private ByteBuffer table;
+        // The snapshots of the current versions read, by slot
+        private HighScoresSnapshot[] snapshots;
+        private int slots;
+        private int size;
+
+        private Segment(int slots) {
+            this.slots = slots;
+            table = ByteBuffer.allocateDirect(slots * slotSize);
+            snapshots = new HighScoresSnapshot[slots];
+        }
+
+        private int find(int level, int hash) {
+            int mask = slots - 1;
+            int slot = hash & mask;
+            int current;
+            while ((current = table.getInt(slot * slotSize + LEVEL_OFFSET)) != 0) {
+                if (current == level) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        private int findOrCreate(int level, int hash) {
+            int slot = find(level, hash);
+            if (slot >= 0) {
+                return slot;
+            }
+            if (size + 1 > slots * 3 / 4) {
+                resize();
+            }
+            int mask = slots - 1;
+            slot = hash & mask;
+            while (table.getInt(slot * slotSize + LEVEL_OFFSET) != 0) {
+                slot = (slot + 1) & mask;
+            }
+            // Direct buffers are zeroed, a new slot only needs its level
+            table.putInt(slot * slotSize + LEVEL_OFFSET, level);
+            size++;
+            return slot;
+        }
+
+        private void resize() {
+            if ((long) slots * 2 * slotSize > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Off-heap segment cannot hold more than " + slots + " levels");
+            }
+            ByteBuffer oldTable = table;
+            int oldSlots = slots;
+            slots = oldSlots << 1;
+            table = ByteBuffer.allocateDirect(slots * slotSize);
+            // The levels move to other slots, their snapshots are rebuilt on the next read
+            snapshots = new HighScoresSnapshot[slots];
+            int mask = slots - 1;
+            for (int i = 0; i < oldSlots; i++) {
+                int oldOffset = i * slotSize;
+                int level = oldTable.getInt(oldOffset + LEVEL_OFFSET);
+                if (level != 0) {
+                    int slot = Hashing.mix(level) & mask;
+                    while (table.getInt(slot * slotSize + LEVEL_OFFSET) != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    ByteBuffer source = oldTable.duplicate();
+                    source.limit(oldOffset + slotSize).position(oldOffset);
+                    ByteBuffer target = table.duplicate();
+                    target.position(slot * slotSize);
+                    target.put(source);
+                }
+            }
+        }
+    }
+}
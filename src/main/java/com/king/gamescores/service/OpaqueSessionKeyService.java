@@ -0,0 +1,391 @@
+package com.king.gamescores.service;
+
+import com.king.gamescores.properties.PropertiesManager;
+import com.king.gamescores.token.Base64Codec;
+import com.king.gamescores.util.CachedClock;
+import com.king.gamescores.util.Hashing;
+
+import java.security.SecureRandom;
+import java.security.SignatureException;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Stateful alternative to the signed tokens: a session key is a random 64 bit session id, 11 URL safe Base64
+ * characters, and the sessions are kept in memory. Verifying a key is a single lookup in a primitive long keyed hash
+ * table, without any cryptography, and a session can be revoked before it expires.
+ * <p>
+ * The sessions are spread across stripes by id, each one an open addressing table of parallel arrays guarded by its
+ * own {@link StampedLock}, read optimistically. Sessions are expired by a hashed timer wheel of one second slots: a
+ * session is filed in the slot of the second after its expiration and a background thread sweeps one slot per
+ * second, so reads never need to compare timestamps to purge the table. The sessions of a slot expiring a whole wheel
+ * turn later stay filed until that turn.
+ * <p>
+ * Sessions are lost on restart, like the scores.
+ */
+public class OpaqueSessionKeyService implements SessionKeyService {
+
+    private static final String SESSION_EXPIRATION = "scores.sessionExpiration";
+
+    private static final int DEFAULT_STRIPES = 16;
+    private static final int ID_BYTES = 8;
+    private static final int KEY_LENGTH = Base64Codec.encodedLength(ID_BYTES);
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int WHEEL_SLOTS = 512;
+    private static final int WHEEL_MASK = WHEEL_SLOTS - 1;
+
+    private final long expirationMS;
+    private final SecureRandom random = new SecureRandom();
+    private final Stripe[] stripes;
+    private final int stripeMask;
+    private final ScheduledExecutorService ticker;
+
+    // Last second swept by the timer wheel, guarded by this
+    private long lastTick;
+
+    /**
+     * Constructs a {@link OpaqueSessionKeyService} with the default session expiration
+     */
+    public OpaqueSessionKeyService() {
+        this(PropertiesManager.getInstance().getLong(SESSION_EXPIRATION), DEFAULT_STRIPES);
+    }
+
+    /**
+     * Constructs a {@link OpaqueSessionKeyService} and starts its timer wheel
+     *
+     * @param expirationMS the lifetime of a session, in milliseconds
+     * @param stripes      the number of stripes, rounded up to a power of two
+     */
+    public OpaqueSessionKeyService(long expirationMS, int stripes) {
+        this.expirationMS = expirationMS;
+        this.stripes = new Stripe[stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new Stripe();
+        }
+        stripeMask = this.stripes.length - 1;
+        lastTick = CachedClock.currentTimeMillis() / 1000;
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "session-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(() -> expire(CachedClock.currentTimeMillis() / 1000), 1, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Issues a new session to the user
+     *
+     * @param userId The user identifier
+     * @return the session key, 11 URL safe characters
+     */
+    @Override
+    public String generateSessionKey(int userId) {
+        // Rounded up so that the session lasts at least the configured expiration
+        long expiration = (CachedClock.currentTimeMillis() + expirationMS + 999) / 1000;
+        long id;
+        do {
+            id = random.nextLong();
+        } while (id == 0 || !stripeFor(id).insert(id, userId, expiration));
+        byte[] bytes = new byte[ID_BYTES];
+        for (int i = ID_BYTES - 1; i >= 0; i--) {
+            bytes[i] = (byte) id;
+            id >>>= 8;
+        }
+        return Base64Codec.encode(bytes);
+    }
+
+    @Override
+    public int getUserIdFromSessionKey(String sessionKey) throws SignatureException {
+        return verifySessionKey(sessionKey).getUserId();
+    }
+
+    @Override
+    public boolean isSessionKeyValid(String sessionKey) throws SignatureException {
+        return !verifySessionKey(sessionKey).isExpired(CachedClock.currentTimeMillis());
+    }
+
+    /**
+     * Looks the session of the key up
+     *
+     * @param sessionKey the session key in string format
+     * @return the session of the key, which may have expired if the timer wheel has not swept it yet
+     * @throws SignatureException if the session key is malformed, unknown, expired or revoked
+     */
+    @Override
+    public Session verifySessionKey(String sessionKey) throws SignatureException {
+        long id = parseId(sessionKey);
+        Session session = stripeFor(id).get(id);
+        if (session == null) {
+            throw new SignatureException("Session key is unknown, expired or revoked");
+        }
+        return session;
+    }
+
+    /**
+     * Ends the session of the key immediately
+     *
+     * @param sessionKey the session key in string format
+     * @return true if the session has been revoked, false if it was unknown, expired or already revoked
+     * @throws SignatureException if the session key is malformed
+     */
+    @Override
+    public boolean revokeSessionKey(String sessionKey) throws SignatureException {
+        long id = parseId(sessionKey);
+        return stripeFor(id).remove(id);
+    }
+
+    @Override
+    public boolean isRevocable() {
+        return true;
+    }
+
+    /**
+     * @return the number of sessions held, expired ones not swept yet included
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            long stamp = stripe.lock.readLock();
+            try {
+                size += stripe.size;
+            } finally {
+                stripe.lock.unlockRead(stamp);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Stops the timer wheel, the sessions are no longer expired
+     */
+    public void shutdown() {
+        ticker.shutdownNow();
+    }
+
+    /**
+     * Sweeps the slots of the timer wheel from the last second swept to the given one, at most a whole turn, removing
+     * the sessions expired by then
+     *
+     * @param now the current time, in seconds since the epoch
+     */
+    synchronized void expire(long now) {
+        long slots = Math.min(now - lastTick, WHEEL_SLOTS);
+        for (long second = now - slots + 1; second <= now; second++) {
+            int slot = (int) second & WHEEL_MASK;
+            for (Stripe stripe : stripes) {
+                stripe.sweep(slot, now);
+            }
+        }
+        lastTick = Math.max(lastTick, now);
+    }
+
+    private Stripe stripeFor(long id) {
+        return stripes[(int) (id >>> 32) & stripeMask];
+    }
+
+    private static long parseId(String sessionKey) throws SignatureException {
+        if (sessionKey.length() != KEY_LENGTH) {
+            throw new SignatureException("Session key must be " + KEY_LENGTH + " characters long");
+        }
+        byte[] bytes = new byte[ID_BYTES];
+        try {
+            Base64Codec.decode(sessionKey, 0, KEY_LENGTH, bytes, 0);
+        } catch (IllegalArgumentException e) {
+            throw new SignatureException("Session key is not valid Base64", e);
+        }
+        long id = 0;
+        for (byte b : bytes) {
+            id = id << 8 | (b & 0xFF);
+        }
+        return id;
+    }
+
+    private static int hash(long id) {
+        return Hashing.mix((int) id ^ (int) (id >>> 32));
+    }
+
+    /**
+     * An open addressing table of sessions by id, with linear probing and the id 0 marking free slots, and the timer
+     * wheel slots of its sessions
+     */
+    private static final class Stripe {
+
+        private final StampedLock lock = new StampedLock();
+        private final long[][] wheel = new long[WHEEL_SLOTS][];
+        private final int[] wheelSizes = new int[WHEEL_SLOTS];
+
+        private long[] ids = new long[INITIAL_CAPACITY];
+        private int[] userIds = new int[INITIAL_CAPACITY];
+        private long[] expirations = new long[INITIAL_CAPACITY];
+        private int size;
+
+        private Session get(long id) {
+            long stamp = lock.tryOptimisticRead();
+            Session session = find(id);
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    session = find(id);
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            return session;
+        }
+
+        private Session find(long id) {
+            // Read through locals, an optimistic read may race with a resize and is validated afterwards
+            long[] ids = this.ids;
+            int[] userIds = this.userIds;
+            long[] expirations = this.expirations;
+            int length = Math.min(ids.length, Math.min(userIds.length, expirations.length));
+            int mask = length - 1;
+            int slot = hash(id) & mask;
+            for (int probes = 0; probes < length && ids[slot] != 0; probes++) {
+                if (ids[slot] == id) {
+                    return new Session(userIds[slot], expirations[slot] * 1000);
+                }
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+
+        private boolean insert(long id, int userId, long expiration) {
+            long stamp = lock.writeLock();
+            try {
+                int mask = ids.length - 1;
+                int slot = hash(id) & mask;
+                while (ids[slot] != 0) {
+                    if (ids[slot] == id) {
+                        return false;
+                    }
+                    slot = (slot + 1) & mask;
+                }
+                ids[slot] = id;
+                userIds[slot] = userId;
+                expirations[slot] = expiration;
+                if (++size > ids.length * 3 / 4) {
+                    resize(ids.length << 1);
+                }
+                // Swept the second after its expiration, once the session has expired
+                file(id, (int) (expiration + 1) & WHEEL_MASK);
+                return true;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        private boolean remove(long id) {
+            long stamp = lock.writeLock();
+            try {
+                return removeLocked(id);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        private boolean removeLocked(long id) {
+            int mask = ids.length - 1;
+            int slot = hash(id) & mask;
+            while (ids[slot] != id) {
+                if (ids[slot] == 0) {
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+            // Backward shift deletion keeps the probe sequences of the following ids unbroken
+            int free = slot;
+            int next = (free + 1) & mask;
+            while (ids[next] != 0) {
+                int home = hash(ids[next]) & mask;
+                if (((next - home) & mask) >= ((next - free) & mask)) {
+                    ids[free] = ids[next];
+                    userIds[free] = userIds[next];
+                    expirations[free] = expirations[next];
+                    free = next;
+                }
+                next = (next + 1) & mask;
+            }
+            ids[free] = 0;
+            size--;
+            return true;
+        }
+
+        private void file(long id, int slot) {
+            long[] filed = wheel[slot];
+            if (filed == null) {
+                filed = wheel[slot] = new long[16];
+            } else if (wheelSizes[slot] == filed.length) {
+                filed = wheel[slot] = Arrays.copyOf(filed, filed.length * 2);
+            }
+            filed[wheelSizes[slot]++] = id;
+        }
+
+        /**
+         * Removes the sessions of a wheel slot expired at the given second, keeping the ones of a later turn. The ids
+         * of sessions revoked meanwhile are simply dropped.
+         */
+        private void sweep(int slot, long now) {
+            long stamp = lock.writeLock();
+            try {
+                long[] filed = wheel[slot];
+                if (filed == null) {
+                    return;
+                }
+                int kept = 0;
+                for (int i = 0; i < wheelSizes[slot]; i++) {
+                    long id = filed[i];
+                    long expiration = expirationOf(id);
+                    if (expiration >= now) {
+                        filed[kept++] = id;
+                    } else if (expiration >= 0) {
+                        removeLocked(id);
+                    }
+                }
+                wheelSizes[slot] = kept;
+                if (kept == 0) {
+                    // Releases the slots grown by a burst of logins
+                    wheel[slot] = null;
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        private long expirationOf(long id) {
+            int mask = ids.length - 1;
+            int slot = hash(id) & mask;
+            while (ids[slot] != 0) {
+                if (ids[slot] == id) {
+                    return expirations[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        private void resize(int capacity) {
+            long[] oldIds = ids;
+            int[] oldUserIds = userIds;
+            long[] oldExpirations = expirations;
+            ids = new long[capacity];
+            userIds = new int[capacity];
+            expirations = new long[capacity];
+            int mask = capacity - 1;
+            for (int i = 0; i < oldIds.length; i++) {
+                if (oldIds[i] != 0) {
+                    int slot = hash(oldIds[i]) & mask;
+                    while (ids[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    ids[slot] = oldIds[i];
+                    userIds[slot] = oldUserIds[i];
+                    expirations[slot] = oldExpirations[i];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package com.king.gamescores.service;
+
+import com.king.gamescores.properties.PropertiesManager;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.king.gamescores.service.Leaderboard.userIdOf;
+
+/**
+ * Lock-free scores service. Each level keeps its top K scores in a {@link Leaderboard}, a sorted array of packed
+ * (score, userId) longs replaced atomically with CAS. A submission binary searches its position and allocates only when
+ * the top K changes, no boxing of users or scores and no streams are involved, and the maximum number of scores per
+ * level is never exceeded under concurrent updates. The high score list of every level is kept encoded in a versioned
+ * {@link HighScoresSnapshot}, rebuilt only when its top K changes.
+ * <p>
+ * The levels listed in the scores.rankedLevels property, or every level if it is {@code *}, are also kept in full
+ * ranking mode: a {@link LevelRanking} with the best score of every user answers rank and scores around a user queries
+ * in O(log n). For the other levels only the users in the top K are ranked.
+ * <p>
+ * The estimated memory taken by the levels, their top K snapshots and the full rankings, is accounted as they change.
+ * When the scores.memoryBudgetMB property is set and the usage reaches it, cold levels are evicted with the CLOCK
+ * policy before a new one is created: every access but the creating one sets a reference bit of the level and the
+ * eviction hand, run by one creating thread at a time, clears the bit of the referenced levels and evicts the others
+ * until the usage is back under budget. Levels created once and never accessed again, like the ones of a client
+ * looping over random ids, are therefore the first to go. A level in full ranking mode is evicted with its ranking, a
+ * score registered while its level is being evicted may be missing from the new ranking. Eviction counters are exposed
+ * through {@link PackedScoresServiceMXBean}.
+ */
+public class PackedScoresService implements ScoresService, PackedScoresServiceMXBean {
+
+    private static final String MAX_SCORES_PER_LEVEL = "scores.maxScoresPerLevel";
+    private static final String RANKED_LEVELS = "scores.rankedLevels";
+    private static final String MEMORY_BUDGET_MB = "scores.memoryBudgetMB";
+    private static final String ALL_LEVELS = "*";
+
+    protected final int maxScoresPerLevel;
+
+    private final ConcurrentMap<Integer, Leaderboard> leaderboards;
+    private final ConcurrentMap<Integer, LevelRanking> rankings;
+    // Sorted ids of the levels in full ranking mode, null when every level is
+    private final int[] rankedLevels;
+
+    private final long memoryBudget;
+    private final LongAdder usedBytes = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    // Gives every leaderboard its own range of 2^32 versions
+    private final AtomicLong leaderboardsCreated = new AtomicLong();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    // CLOCK hand, only moved by the thread holding evicting
+    private Iterator<Map.Entry<Integer, Leaderboard>> hand;
+
+    /**
+     * Constructs a {@link PackedScoresService} with the default maximum number of scores per level, ranked levels and
+     * memory budget
+     */
+    public PackedScoresService() {
+        this(PropertiesManager.getInstance().getInt(MAX_SCORES_PER_LEVEL),
+                PropertiesManager.getInstance().getString(RANKED_LEVELS, ""),
+                PropertiesManager.getInstance().getLong(MEMORY_BUDGET_MB, 0) << 20);
+    }
+
+    /**
+     * Constructs a {@link PackedScoresService} without levels in full ranking mode
+     *
+     * @param maxScoresPerLevel the maximum number of scores kept per level
+     */
+    public PackedScoresService(int maxScoresPerLevel) {
+        this(maxScoresPerLevel, "");
+    }
+
+    /**
+     * Constructs a {@link PackedScoresService}
+     *
+     * @param maxScoresPerLevel the maximum number of scores kept per level
+     * @param rankedLevels      comma separated ids of the levels in full ranking mode, {@code *} for every level
+     */
+    public PackedScoresService(int maxScoresPerLevel, String rankedLevels) {
+        this(maxScoresPerLevel, rankedLevels, 0);
+    }
+
+    /**
+     * Constructs a {@link PackedScoresService}
+     *
+     * @param maxScoresPerLevel the maximum number of scores kept per level
+     * @param rankedLevels      comma separated ids of the levels in full ranking mode, {@code *} for every level
+     * @param memoryBudget      the estimated bytes the top K levels may take before cold levels are evicted, 0 for no
+     *                          limit
+     */
+    public PackedScoresService(int maxScoresPerLevel, String rankedLevels, long memoryBudget) {
+        this.maxScoresPerLevel = maxScoresPerLevel;
+        this.rankedLevels = parseLevels(rankedLevels);
+        this.memoryBudget = memoryBudget;
+        leaderboards = new ConcurrentHashMap<>();
+        rankings = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Registers a user's score to a level. Only the highest score of each user counts and no more than
+     * maxScoresPerLevel scores are kept for each level.
+     *
+     * @param level  level of the score to register, 31 bit unsigned integer number
+     * @param userId userId of the score to register, 31 bit unsigned integer number
+     * @param score  score to register, 31 bit unsigned integer number
+     */
+    @Override
+    public void registerScore(int level, int userId, int score) {
+        if (isRanked(level)) {
+            while (!getRanking(level).offer(userId, score)) {
+                // The level has just been evicted, the score goes to a new ranking
+            }
+        }
+        while (!getLeaderboard(level).offer(userId, score)) {
+            // The level has just been evicted, the score goes to a new leaderboard
+        }
+    }
+
+    /**
+     * Registers a group of users' scores to a level, merged into its top K in one pass and published at once
+     *
+     * @param level   level of the scores to register, 31 bit unsigned integer number
+     * @param userIds userIds of the scores to register
+     * @param scores  scores to register, in the same order as the userIds
+     * @param offset  position of the first score of the group in the arrays
+     * @param length  number of scores of the group
+     */
+    @Override
+    public void registerScores(int level, int[] userIds, int[] scores, int offset, int length) {
+        if (isRanked(level)) {
+            LevelRanking ranking = getRanking(level);
+            for (int i = offset; i < offset + length; i++) {
+                while (!ranking.offer(userIds[i], scores[i])) {
+                    ranking = getRanking(level);
+                }
+            }
+        }
+        while (!getLeaderboard(level).offerAll(userIds, scores, offset, length)) {
+            // The level has just been evicted, the scores go to a new leaderboard
+        }
+    }
+
+    private Leaderboard getLeaderboard(int level) {
+        Leaderboard leaderboard = leaderboards.get(level);
+        if (leaderboard != null) {
+            leaderboard.touch();
+        } else {
+            // Making room before publishing the new level keeps it out of reach of its own eviction
+            if (memoryBudget > 0 && usedBytes.sum() >= memoryBudget) {
+                evict();
+            }
+            long versionBase = leaderboardsCreated.getAndIncrement() << 32;
+            Leaderboard created = new Leaderboard(maxScoresPerLevel, usedBytes, versionBase);
+            leaderboard = leaderboards.putIfAbsent(level, created);
+            if (leaderboard == null) {
+                leaderboard = created;
+                usedBytes.add(Leaderboard.LEVEL_OVERHEAD + Leaderboard.footprint(HighScoresSnapshot.EMPTY));
+            }
+        }
+        return leaderboard;
+    }
+
+    /**
+     * Moves the CLOCK hand over the levels, evicting the ones not accessed since its last pass until the usage is back
+     * under budget. A thread finding another one evicting carries on without waiting.
+     */
+    private void evict() {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            // Two full turns clear every reference bit on the first one and evict on the second one
+            long turns = 2L * leaderboards.size() + 1;
+            for (long i = 0; i < turns && usedBytes.sum() >= memoryBudget; i++) {
+                if (hand == null || !hand.hasNext()) {
+                    hand = leaderboards.entrySet().iterator();
+                    if (!hand.hasNext()) {
+                        return;
+                    }
+                }
+                Map.Entry<Integer, Leaderboard> entry = hand.next();
+                int level = entry.getKey();
+                Leaderboard leaderboard = entry.getValue();
+                if (!leaderboard.clearReferenced()
+                        && leaderboards.remove(level, leaderboard) && leaderboard.retire()) {
+                    LevelRanking ranking = rankings.remove(level);
+                    if (ranking != null) {
+                        ranking.retire();
+                    }
+                    evictions.increment();
+                }
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private LevelRanking getRanking(int level) {
+        LevelRanking ranking = rankings.get(level);
+        if (ranking == null) {
+            ranking = rankings.computeIfAbsent(level, l -> new LevelRanking(usedBytes));
+        }
+        return ranking;
+    }
+
+    /**
+     * Retrieves the high scores for a specific level. The result is a comma separated list in descending score order,
+     * users with the same score in ascending userId order. A request for a high score list of a level without any
+     * scores submitted will be an empty string.
+     *
+     * @param level 31 bit unsigned integer number
+     * @return CSV of <userid>=<score>
+     */
+    @Override
+    public String getHighScoresForLevel(int level) {
+        return getHighScoresSnapshot(level).toString();
+    }
+
+    /**
+     * Retrieves the current high score list of a level, without any sorting nor encoding
+     *
+     * @param level 31 bit unsigned integer number
+     * @return the current high score list of the level
+     */
+    @Override
+    public HighScoresSnapshot getHighScoresSnapshot(int level) {
+        Leaderboard leaderboard = leaderboards.get(level);
+        return leaderboard != null ? leaderboard.snapshot() : HighScoresSnapshot.EMPTY;
+    }
+
+    /**
+     * Retrieves the rank of a user in a level, in O(log n) for the levels in full ranking mode and among the top K for
+     * the rest
+     *
+     * @param level  31 bit unsigned integer number
+     * @param userId 31 bit unsigned integer number
+     * @return the 1 based rank of the user in descending score order, 0 if the user is not ranked
+     */
+    @Override
+    public int getRank(int level, int userId) {
+        if (isRanked(level)) {
+            touch(level);
+            LevelRanking ranking = rankings.get(level);
+            return ranking != null ? ranking.rank(userId) : 0;
+        }
+        return indexOf(getHighScoresSnapshot(level).ranking(), userId) + 1;
+    }
+
+    /**
+     * Retrieves the scores ranked around a user in a level, in O(log n + radius) for the levels in full ranking mode
+     * and among the top K for the rest
+     *
+     * @param level  31 bit unsigned integer number
+     * @param userId 31 bit unsigned integer number
+     * @param radius the number of scores before and after the user's one
+     * @return the scores around the user in descending score order, empty if the user is not ranked
+     */
+    @Override
+    public HighScoresSnapshot getScoresAround(int level, int userId, int radius) {
+        long[] around;
+        if (isRanked(level)) {
+            touch(level);
+            LevelRanking ranking = rankings.get(level);
+            around = ranking != null ? ranking.around(userId, radius) : Leaderboard.EMPTY;
+        } else {
+            long[] ranking = getHighScoresSnapshot(level).ranking();
+            int index = indexOf(ranking, userId);
+            around = index < 0 ? Leaderboard.EMPTY : Arrays.copyOfRange(ranking,
+                    Math.max(0, index - radius), (int) Math.min(ranking.length, (long) index + radius + 1));
+        }
+        return around.length > 0 ? HighScoresSnapshot.of(around, 0) : HighScoresSnapshot.EMPTY;
+    }
+
+    @Override
+    public int getLevels() {
+        return leaderboards.size();
+    }
+
+    @Override
+    public long getUsedBytes() {
+        return usedBytes.sum();
+    }
+
+    @Override
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    @Override
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Sets the reference bit of a level read through its ranking only
+     */
+    private void touch(int level) {
+        Leaderboard leaderboard = leaderboards.get(level);
+        if (leaderboard != null) {
+            leaderboard.touch();
+        }
+    }
+
+    private boolean isRanked(int level) {
+        return rankedLevels == null || (rankedLevels.length > 0 && Arrays.binarySearch(rankedLevels, level) >= 0);
+    }
+
+    private static int indexOf(long[] ranking, int userId) {
+        for (int i = 0; i < ranking.length; i++) {
+            if (userIdOf(ranking[i]) == userId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int[] parseLevels(String levels) {
+        if (ALL_LEVELS.equals(levels.trim())) {
+            return null;
+        }
+        return Arrays.stream(levels.split(","))
+                .map(String::trim)
+                .filter(level -> !level.isEmpty())
+                .mapToInt(Integer::parseInt)
+                .sorted()
+                .toArray();
+    }
+}
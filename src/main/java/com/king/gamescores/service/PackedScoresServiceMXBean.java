@@ -0,0 +1,27 @@
+package com.king.gamescores.service;
+
+/**
+ * Management interface of the {@link PackedScoresService} memory accounting and eviction metrics
+ */
+public interface PackedScoresServiceMXBean {
+
+    /**
+     * @return the number of levels currently kept
+     */
+    int getLevels();
+
+    /**
+     * @return the estimated bytes taken by the top K of the levels currently kept
+     */
+    long getUsedBytes();
+
+    /**
+     * @return the estimated bytes the levels may take before cold ones are evicted, 0 for no limit
+     */
+    long getMemoryBudget();
+
+    /**
+     * @return the total number of evicted levels
+     */
+    long getEvictions();
+}
@@ -0,0 +1,115 @@
+package com.king.gamescores.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free multi-producer multi-consumer ring buffer of (level, userId, score) submissions, kept in parallel
+ * primitive arrays so that queuing a score allocates nothing.
+ * <p>
+ * Every cell has a sequence number: a cell is free for the producer claiming position p when its sequence is p, and
+ * holds a submission for the consumer claiming position p when its sequence is p + 1. Producers and consumers claim
+ * positions with CAS and publish the cell by advancing its sequence after writing or reading it, the sequence write
+ * making the cell fields visible to the other side.
+ */
+final class ScoreRingBuffer {
+
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final int[] levels;
+    private final int[] userIds;
+    private final int[] scores;
+    private final long[] enqueuedAt;
+
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * Constructs an empty {@link ScoreRingBuffer}
+     *
+     * @param capacity the maximum number of queued submissions, rounded up to a power of two
+     */
+    ScoreRingBuffer(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("capacity must be between 1 and 2^30");
+        }
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        mask = size - 1;
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        levels = new int[size];
+        userIds = new int[size];
+        scores = new int[size];
+        enqueuedAt = new long[size];
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * @return the number of queued submissions, approximate while producers or consumers are active
+     */
+    int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    /**
+     * Queues a submission
+     *
+     * @return false if the buffer is full
+     */
+    boolean offer(int level, int userId, int score) {
+        while (true) {
+            long position = tail.get();
+            int cell = (int) position & mask;
+            long difference = sequences.get(cell) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    levels[cell] = level;
+                    userIds[cell] = userId;
+                    scores[cell] = score;
+                    enqueuedAt[cell] = System.nanoTime();
+                    sequences.lazySet(cell, position + 1);
+                    return true;
+                }
+            } else if (difference < 0) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Dequeues up to max submissions into the given arrays
+     *
+     * @param levels     destination of the levels
+     * @param userIds    destination of the userIds
+     * @param scores     destination of the scores
+     * @param enqueuedAt destination of the {@link System#nanoTime()} at which every submission was queued
+     * @param max        maximum number of submissions to dequeue, no more than the length of the arrays
+     * @return the number of dequeued submissions
+     */
+    int drain(int[] levels, int[] userIds, int[] scores, long[] enqueuedAt, int max) {
+        int count = 0;
+        while (count < max) {
+            long position = head.get();
+            int cell = (int) position & mask;
+            long difference = sequences.get(cell) - (position + 1);
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    levels[count] = this.levels[cell];
+                    userIds[count] = this.userIds[cell];
+                    scores[count] = this.scores[cell];
+                    enqueuedAt[count] = this.enqueuedAt[cell];
+                    sequences.lazySet(cell, position + mask + 1);
+                    count++;
+                }
+            } else if (difference < 0) {
+                break;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,63 @@
+package com.king.gamescores.service;
+
+import java.util.Locale;
+
+/**
+ * The {@link ScoresService} implementations which can back the {@link SingletonScoresService}, selected with the
+ * scores.engine property
+ */
+public enum ScoresEngine {
+
+    /**
+     * Lock-free top K of packed longs per level, see {@link PackedScoresService}
+     */
+    PACKED {
+        @Override
+        public ScoresService create() {
+            return new PackedScoresService();
+        }
+    },
+
+    /**
+     * Primitive int keyed hash tables, see {@link CompactScoresService}
+     */
+    COMPACT {
+        @Override
+        public ScoresService create() {
+            return new CompactScoresService();
+        }
+    },
+
+    /**
+     * Levels kept in direct buffers outside of the heap, see {@link OffHeapScoresService}
+     */
+    OFFHEAP {
+        @Override
+        public ScoresService create() {
+            return new OffHeapScoresService();
+        }
+    },
+
+    /**
+     * Levels partitioned across single writer shards, see {@link ShardedScoresService}
+     */
+    SHARDED {
+        @Override
+        public ScoresService create() {
+            return new ShardedScoresService();
+        }
+    };
+
+    public abstract ScoresService create();
+
+    /**
+     * Returns the engine of the given name, case insensitive
+     *
+     * @param name the name of the engine
+     * @return the engine
+     * @throws IllegalArgumentException if there is no engine with the given name
+     */
+    public static ScoresEngine of(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+}
@@ -6,4 +6,68 @@ public interface ScoresService {
 
     String getHighScoresForLevel(int level);
 
+    /**
+     * Offers a user's score to a level. Services which queue the scores return false instead of blocking when they
+     * cannot take more, the others register the score right away.
+     *
+     * @param level  level of the score to register, 31 bit unsigned integer number
+     * @param userId userId of the score to register, 31 bit unsigned integer number
+     * @param score  score to register, 31 bit unsigned integer number
+     * @return true if the score has been registered or queued, false if it has been refused
+     */
+    default boolean offerScore(int level, int userId, int score) {
+        registerScore(level, userId, score);
+        return true;
+    }
+
+    /**
+     * Registers a group of users' scores to a level at once, equivalent to registering them one by one. Services should
+     * override it to merge the whole group into the level in one pass.
+     *
+     * @param level   level of the scores to register, 31 bit unsigned integer number
+     * @param userIds userIds of the scores to register
+     * @param scores  scores to register, in the same order as the userIds
+     * @param offset  position of the first score of the group in the arrays
+     * @param length  number of scores of the group
+     */
+    default void registerScores(int level, int[] userIds, int[] scores, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            registerScore(level, userIds[i], scores[i]);
+        }
+    }
+
+    /**
+     * Retrieves the high score list of a level ready to be sent. Services which keep the lists already encoded should
+     * override it to avoid building them on every request.
+     *
+     * @param level 31 bit unsigned integer number
+     * @return the high score list of the level
+     */
+    default HighScoresSnapshot getHighScoresSnapshot(int level) {
+        return HighScoresSnapshot.of(getHighScoresForLevel(level));
+    }
+
+    /**
+     * Retrieves the rank of a user in a level. Services which do not keep rankings return 0.
+     *
+     * @param level  31 bit unsigned integer number
+     * @param userId 31 bit unsigned integer number
+     * @return the 1 based rank of the user in descending score order, 0 if the user is not ranked
+     */
+    default int getRank(int level, int userId) {
+        return 0;
+    }
+
+    /**
+     * Retrieves the scores ranked around a user in a level. Services which do not keep rankings return an empty list.
+     *
+     * @param level  31 bit unsigned integer number
+     * @param userId 31 bit unsigned integer number
+     * @param radius the number of scores before and after the user's one
+     * @return the scores around the user in descending score order, empty if the user is not ranked
+     */
+    default HighScoresSnapshot getScoresAround(int level, int userId, int radius) {
+        return HighScoresSnapshot.EMPTY;
+    }
+
 }
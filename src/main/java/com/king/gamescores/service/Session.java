@@ -0,0 +1,45 @@
+package com.king.gamescores.service;
+
+/**
+ * Immutable result of verifying a session key: the user it has been issued to and when it expires
+ */
+public final class Session {
+
+    private final int userId;
+    private final long expiresAt;
+
+    /**
+     * Constructs a {@link Session}
+     *
+     * @param userId    the userId of the session
+     * @param expiresAt the expiration time of the session, in milliseconds since the epoch
+     */
+    public Session(int userId, long expiresAt) {
+        this.userId = userId;
+        this.expiresAt = expiresAt;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    /**
+     * @return the expiration time of the session, in milliseconds since the epoch
+     */
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    /**
+     * @param now the current time, in milliseconds since the epoch
+     * @return true if the session has expired at the given time
+     */
+    public boolean isExpired(long now) {
+        return expiresAt < now;
+    }
+
+    @Override
+    public String toString() {
+        return "Session{userId=" + userId + ", expiresAt=" + expiresAt + '}';
+    }
+}
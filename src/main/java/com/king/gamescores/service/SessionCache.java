@@ -0,0 +1,85 @@
+package com.king.gamescores.service;
+
+import com.king.gamescores.util.Hashing;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded cache of verified sessions by session key, so that a key submitted again is checked with a hash lookup and a
+ * string comparison instead of an HMAC. The cache is direct-mapped: every key has a single slot, a new session simply
+ * replaces the one in its slot and there is no eviction bookkeeping at all. A cached session is never returned once
+ * expired, so an entry never outlives its token.
+ * <p>
+ * Keys are compared in constant time, the time taken by a lookup does not tell how much of a forged key matches a
+ * cached one.
+ */
+final class SessionCache {
+
+    private final int mask;
+    private final AtomicReferenceArray<Entry> entries;
+
+    /**
+     * Constructs an empty {@link SessionCache}
+     *
+     * @param capacity the number of slots, rounded up to a power of two
+     */
+    SessionCache(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("capacity must be between 1 and 2^30");
+        }
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        mask = size - 1;
+        entries = new AtomicReferenceArray<>(size);
+    }
+
+    /**
+     * Returns the cached session of a key
+     *
+     * @param sessionKey the session key
+     * @param now        the current time, in milliseconds since the epoch
+     * @return the session of the key, null if it is not cached or has expired
+     */
+    Session get(String sessionKey, long now) {
+        Entry entry = entries.get(slot(sessionKey));
+        if (entry != null && equals(entry.sessionKey, sessionKey) && !entry.session.isExpired(now)) {
+            return entry.session;
+        }
+        return null;
+    }
+
+    /**
+     * Caches the session of a key, replacing whatever the slot of the key held
+     *
+     * @param sessionKey the verified session key
+     * @param session    the session of the key
+     */
+    void put(String sessionKey, Session session) {
+        entries.set(slot(sessionKey), new Entry(sessionKey, session));
+    }
+
+    private int slot(String sessionKey) {
+        return Hashing.mix(sessionKey.hashCode()) & mask;
+    }
+
+    private static boolean equals(String a, String b) {
+        if (a.length() != b.length()) {
+            return false;
+        }
+        int difference = 0;
+        for (int i = 0; i < a.length(); i++) {
+            difference |= a.charAt(i) ^ b.charAt(i);
+        }
+        return difference == 0;
+    }
+
+    private static final class Entry {
+
+        private final String sessionKey;
+        private final Session session;
+
+        private Entry(String sessionKey, Session session) {
+            this.sessionKey = sessionKey;
+            this.session = session;
+        }
+    }
+}
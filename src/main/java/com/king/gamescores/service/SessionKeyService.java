@@ -9,4 +9,38 @@ public interface SessionKeyService {
     int getUserIdFromSessionKey(String sessionKey) throws SignatureException;
 
     boolean isSessionKeyValid(String sessionKey) throws SignatureException;
+
+    /**
+     * Verifies a session key once and returns its session. Services able to read the expiration of their keys should
+     * override it, the default implementation verifies the key twice and only knows whether it has expired.
+     *
+     * @param sessionKey the session key in string format
+     * @return the session of the key, which may have expired
+     * @throws SignatureException if the session key is not valid
+     */
+    default Session verifySessionKey(String sessionKey) throws SignatureException {
+        int userId = getUserIdFromSessionKey(sessionKey);
+        return new Session(userId, isSessionKeyValid(sessionKey) ? Long.MAX_VALUE : Long.MIN_VALUE);
+    }
+
+    /**
+     * Ends the session of a key before it expires. Only services keeping their sessions can revoke them, the default
+     * implementation does not support it.
+     *
+     * @param sessionKey the session key in string format
+     * @return true if the session has been revoked, false if it was unknown, expired or already revoked
+     * @throws SignatureException            if the session key is not valid
+     * @throws UnsupportedOperationException if the session keys of the service cannot be revoked, callers check
+     *                                       {@link #isRevocable()} first
+     */
+    default boolean revokeSessionKey(String sessionKey) throws SignatureException {
+        throw new UnsupportedOperationException("Session keys cannot be revoked");
+    }
+
+    /**
+     * @return true if the session keys of the service can be revoked with {@link #revokeSessionKey(String)}
+     */
+    default boolean isRevocable() {
+        return false;
+    }
 }
@@ -0,0 +1,351 @@
+package com.king.gamescores.service;
+
+import com.king.gamescores.properties.PropertiesManager;
+import com.king.gamescores.util.Hashing;
+import com.king.gamescores.util.IntObjectMap;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Scores service partitioning the levels by hash across shards, each one owned by a single writer thread. Scores are
+ * appended to the bounded {@link ScoreRingBuffer} of the level's shard without any allocation and the shard thread
+ * applies them in order, so the top K of a level is updated without locks nor CAS retries however hot the level is.
+ * <p>
+ * The shard thread drains its buffer in runs, applies every score of a run to a private working copy of the affected
+ * rankings and then publishes one immutable {@link HighScoresSnapshot} per changed level into an int keyed table.
+ * Reads only look up the last published snapshot, so they never wait for a writer. Scores are therefore applied
+ * asynchronously, {@link #flush()} waits until every previous score is visible.
+ * <p>
+ * {@link #offerScore(int, int, int)} refuses a score when the buffer of its shard is full, letting the caller push
+ * back on the client, while {@link #registerScore(int, int, int)} waits for room.
+ * <p>
+ * The number of shards is set with the scores.shards property, 0 for one per available processor, and the capacity of
+ * the buffer of every shard with scores.shardCapacity.
+ */
+public class ShardedScoresService implements ScoresService {
+
+    private static final String MAX_SCORES_PER_LEVEL = "scores.maxScoresPerLevel";
+    private static final String SHARDS = "scores.shards";
+    private static final String SHARD_CAPACITY = "scores.shardCapacity";
+    private static final int DEFAULT_SHARD_CAPACITY = 16384;
+
+    // Maximum number of scores applied before the changed levels are published
+    private static final int MAX_RUN = 256;
+    private static final int INITIAL_LEVELS = 64;
+
+    protected final int maxScoresPerLevel;
+
+    private final Shard[] shards;
+
+    /**
+     * Constructs a {@link ShardedScoresService} with the default maximum number of scores per level and shards
+     */
+    public ShardedScoresService() {
+        this(PropertiesManager.getInstance().getInt(MAX_SCORES_PER_LEVEL),
+                PropertiesManager.getInstance().getInt(SHARDS, 0),
+                PropertiesManager.getInstance().getInt(SHARD_CAPACITY, DEFAULT_SHARD_CAPACITY));
+    }
+
+    /**
+     * Constructs a {@link ShardedScoresService} with the default buffer capacity and starts its shard threads
+     *
+     * @param maxScoresPerLevel the maximum number of scores kept per level
+     * @param shards            the number of shards, 0 for one per available processor
+     */
+    public ShardedScoresService(int maxScoresPerLevel, int shards) {
+        this(maxScoresPerLevel, shards, DEFAULT_SHARD_CAPACITY);
+    }
+
+    /**
+     * Constructs a {@link ShardedScoresService} and starts its shard threads
+     *
+     * @param maxScoresPerLevel the maximum number of scores kept per level
+     * @param shards            the number of shards, 0 for one per available processor
+     * @param capacity          the maximum number of scores queued per shard, rounded up to a power of two
+     */
+    public ShardedScoresService(int maxScoresPerLevel, int shards, int capacity) {
+        this.maxScoresPerLevel = maxScoresPerLevel;
+        int count = shards > 0 ? shards : Runtime.getRuntime().availableProcessors();
+        this.shards = new Shard[count];
+        for (int i = 0; i < count; i++) {
+            this.shards[i] = new Shard(i, capacity);
+        }
+    }
+
+    /**
+     * Registers a user's score to a level. The score is queued to the shard of the level, waiting for room if its
+     * buffer is full, and applied asynchronously. Only the highest score of each user counts and no more than
+     * maxScoresPerLevel scores are kept for each level.
+     *
+     * @param level  level of the score to register, 31 bit unsigned integer number
+     * @param userId userId of the score to register, 31 bit unsigned integer number
+     * @param score  score to register, 31 bit unsigned integer number
+     */
+    @Override
+    public void registerScore(int level, int userId, int score) {
+        shardOf(level).submit(level, userId, score);
+    }
+
+    /**
+     * Queues a user's score to the shard of the level, to be applied asynchronously
+     *
+     * @param level  level of the score to register, 31 bit unsigned integer number
+     * @param userId userId of the score to register, 31 bit unsigned integer number
+     * @param score  score to register, 31 bit unsigned integer number
+     * @return false if the buffer of the shard is full and the score has not been queued
+     */
+    @Override
+    public boolean offerScore(int level, int userId, int score) {
+        return shardOf(level).offer(level, userId, score);
+    }
+
+    /**
+     * Registers a group of users' scores to a level, queued to the shard of the level
+     *
+     * @param level   level of the scores to register, 31 bit unsigned integer number
+     * @param userIds userIds of the scores to register
+     * @param scores  scores to register, in the same order as the userIds
+     * @param offset  position of the first score of the group in the arrays
+     * @param length  number of scores of the group
+     */
+    @Override
+    public void registerScores(int level, int[] userIds, int[] scores, int offset, int length) {
+        Shard shard = shardOf(level);
+        for (int i = offset; i < offset + length; i++) {
+            shard.submit(level, userIds[i], scores[i]);
+        }
+    }
+
+    /**
+     * Retrieves the high scores for a specific level as last published by its shard. The result is a comma separated
+     * list in descending score order, users with the same score in ascending userId order. A request for a high score
+     * list of a level without any scores submitted will be an empty string.
+     *
+     * @param level 31 bit unsigned integer number
+     * @return CSV of <userid>=<score>
+     */
+    @Override
+    public String getHighScoresForLevel(int level) {
+        return getHighScoresSnapshot(level).toString();
+    }
+
+    /**
+     * Retrieves the high score list of a level as last published by its shard
+     *
+     * @param level 31 bit unsigned integer number
+     * @return the high score list of the level
+     */
+    @Override
+    public HighScoresSnapshot getHighScoresSnapshot(int level) {
+        HighScoresSnapshot snapshot = shardOf(level).published.get(level);
+        return snapshot != null ? snapshot : HighScoresSnapshot.EMPTY;
+    }
+
+    /**
+     * Waits until every score registered before this call has been applied and published
+     */
+    public void flush() {
+        for (Shard shard : shards) {
+            shard.flush();
+        }
+    }
+
+    /**
+     * Stops the shard threads once their buffers are drained. Scores registered afterwards are not applied.
+     */
+    public void shutdown() {
+        for (Shard shard : shards) {
+            shard.running = false;
+            LockSupport.unpark(shard.thread);
+        }
+    }
+
+    private Shard shardOf(int level) {
+        return shards[(Hashing.mix(level) & Integer.MAX_VALUE) % shards.length];
+    }
+
+    /**
+     * The levels of a shard and the thread which is their only writer
+     */
+    private final class Shard implements Runnable {
+
+        private final ScoreRingBuffer buffer;
+        private final AtomicLong submitted = new AtomicLong();
+        // Owned by the shard thread: the run being applied
+        private final int[] levels = new int[MAX_RUN];
+        private final int[] userIds = new int[MAX_RUN];
+        private final int[] scores = new int[MAX_RUN];
+        private final long[] enqueuedAt = new long[MAX_RUN];
+        // Owned by the shard thread: rankings changed in the current run, not yet published
+        private final IntObjectMap<long[]> changed = new IntObjectMap<>(MAX_RUN);
+        private final Thread thread;
+
+        // Written by the shard thread only, replaced when it grows
+        private volatile Published published = new Published(INITIAL_LEVELS);
+        private int publishedLevels;
+
+        private volatile long applied;
+        private volatile boolean waiting;
+        private volatile boolean running = true;
+
+        private Shard(int index, int capacity) {
+            buffer = new ScoreRingBuffer(capacity);
+            thread = new Thread(this, "scores-shard-" + index);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private boolean offer(int level, int userId, int score) {
+            if (!buffer.offer(level, userId, score)) {
+                return false;
+            }
+            submitted.incrementAndGet();
+            if (waiting) {
+                LockSupport.unpark(thread);
+            }
+            return true;
+        }
+
+        private void submit(int level, int userId, int score) {
+            if (offer(level, userId, score)) {
+                return;
+            }
+            Backoff backoff = new Backoff();
+            while (!offer(level, userId, score)) {
+                backoff.pause();
+            }
+        }
+
+        private void flush() {
+            long target = submitted.get();
+            Backoff backoff = new Backoff();
+            while (applied < target && running) {
+                backoff.pause();
+            }
+        }
+
+        @Override
+        public void run() {
+            long count = 0;
+            while (running || buffer.size() > 0) {
+                int run = buffer.drain(levels, userIds, scores, enqueuedAt, MAX_RUN);
+                if (run > 0) {
+                    for (int i = 0; i < run; i++) {
+                        apply(levels[i], userIds[i], scores[i]);
+                    }
+                    publish();
+                    count += run;
+                    applied = count;
+                } else {
+                    idle();
+                }
+            }
+        }
+
+        private void idle() {
+            waiting = true;
+            // A producer may have queued before seeing the flag, check again before parking
+            if (buffer.size() == 0 && running) {
+                LockSupport.park(this);
+            }
+            waiting = false;
+        }
+
+        private void apply(int level, int userId, int score) {
+            long[] ranking = changed.get(level);
+            if (ranking == null) {
+                HighScoresSnapshot snapshot = published.get(level);
+                ranking = snapshot != null ? snapshot.ranking() : Leaderboard.EMPTY;
+            }
+            long[] updated = Leaderboard.insert(ranking, userId, score, maxScoresPerLevel);
+            if (updated != ranking) {
+                changed.put(level, updated);
+            }
+        }
+
+        private void publish() {
+            if (changed.isEmpty()) {
+                return;
+            }
+            Published table = published;
+            for (int slot = 0; slot < changed.slots(); slot++) {
+                int level = changed.keyAt(slot);
+                if (level != 0) {
+                    HighScoresSnapshot snapshot = table.get(level);
+                    long version = snapshot != null ? snapshot.getVersion() + 1 : 1;
+                    if (table.put(level, HighScoresSnapshot.of(changed.valueAt(slot), version))
+                            && ++publishedLevels > table.capacity() / 2) {
+                        table = table.grow();
+                        published = table;
+                    }
+                }
+            }
+            changed.clear();
+        }
+    }
+
+    /**
+     * Open addressing table of the published snapshots of a shard, keyed by level without boxing. Written by the shard
+     * thread only and read concurrently: a slot is claimed by writing its level before its snapshot, and a reader reads
+     * the snapshot of a slot before its level, so a slot with a snapshot always shows its level. Entries are never
+     * removed, the table is replaced by a larger copy instead of being resized in place.
+     */
+    private static final class Published {
+
+        private final int[] levels;
+        private final AtomicReferenceArray<HighScoresSnapshot> snapshots;
+
+        private Published(int capacity) {
+            levels = new int[capacity];
+            snapshots = new AtomicReferenceArray<>(capacity);
+        }
+
+        private int capacity() {
+            return levels.length;
+        }
+
+        private HighScoresSnapshot get(int level) {
+            int mask = levels.length - 1;
+            int slot = Hashing.mix(level) & mask;
+            HighScoresSnapshot snapshot;
+            while ((snapshot = snapshots.get(slot)) != null) {
+                if (levels[slot] == level) {
+                    return snapshot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+
+        /**
+         * @return true if the level has been added, false if its snapshot has been replaced
+         */
+        private boolean put(int level, HighScoresSnapshot snapshot) {
+            int mask = levels.length - 1;
+            int slot = Hashing.mix(level) & mask;
+            while (snapshots.get(slot) != null) {
+                if (levels[slot] == level) {
+                    snapshots.set(slot, snapshot);
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+            levels[slot] = level;
+            snapshots.set(slot, snapshot);
+            return true;
+        }
+
+        private Published grow() {
+            Published grown = new Published(levels.length << 1);
+            for (int slot = 0; slot < levels.length; slot++) {
+                HighScoresSnapshot snapshot = snapshots.get(slot);
+                if (snapshot != null) {
+                    grown.put(levels[slot], snapshot);
+                }
+            }
+            return grown;
+        }
+    }
+}
@@ -1,19 +1,59 @@
 package com.king.gamescores.service;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import com.king.gamescores.properties.PropertiesManager;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.logging.Logger;
+
+import static java.util.logging.Level.WARNING;
 
 /**
  * The non-functional requirement to no persistence to disk forces me to create a thread-safe singleton with lazy
- * initialization with double check locking.
+ * initialization with double check locking. The scores are held by the {@link ScoresEngine} selected with the
+ * scores.engine property, the lock-free {@link PackedScoresService} by default. With scores.ingestion=async the
+ * engine is decorated by a {@link WriteBehindScoresService}. The metrics of the engine and of the ingestion are
+ * registered in the platform MBean server.
  */
-public class SingletonScoresService extends DefaultScoresService {
+public class SingletonScoresService implements ScoresService {
+
+    private static final Logger LOG = Logger.getLogger(SingletonScoresService.class.getName());
+
+    private static final String ENGINE = "scores.engine";
+    private static final String INGESTION = "scores.ingestion";
+    private static final String INGESTION_CAPACITY = "scores.ingestionCapacity";
+    private static final String INGESTION_DRAINERS = "scores.ingestionDrainers";
+    private static final String ASYNC_INGESTION = "async";
+    private static final String MBEAN_DOMAIN = "com.king.gamescores:type=";
 
     private static SingletonScoresService instance = null;
 
+    private final ScoresService engine;
+
     private SingletonScoresService() {
-        super();
-        scoresByLevel = new ConcurrentHashMap<>();
+        PropertiesManager propertiesManager = PropertiesManager.getInstance();
+        ScoresService scoresService = ScoresEngine.of(propertiesManager.getString(ENGINE, ScoresEngine.PACKED.name()))
+                .create();
+        if (scoresService instanceof PackedScoresServiceMXBean) {
+            registerMBean(scoresService, PackedScoresService.class.getSimpleName());
+        }
+        if (ASYNC_INGESTION.equalsIgnoreCase(propertiesManager.getString(INGESTION, "sync").trim())) {
+            WriteBehindScoresService writeBehind = new WriteBehindScoresService(scoresService,
+                    propertiesManager.getInt(INGESTION_CAPACITY, 65536),
+                    propertiesManager.getInt(INGESTION_DRAINERS, 1));
+            registerMBean(writeBehind, WriteBehindScoresService.class.getSimpleName());
+            scoresService = writeBehind;
+        }
+        engine = scoresService;
+    }
+
+    private static void registerMBean(Object mbean, String type) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(mbean, new ObjectName(MBEAN_DOMAIN + type));
+        } catch (JMException e) {
+            LOG.log(WARNING, type + " metrics cannot be registered", e);
+        }
     }
 
     /**
@@ -45,24 +85,38 @@ public class SingletonScoresService extends DefaultScoresService {
         return instance;
     }
 
-    /**
-     * Registers a user's scoreValue to a level. Because of memory reasons no more than maxNumber scores are to be
-     * registered for each level. The data structures are hash tables supporting full concurrency of retrievals and high
-     * expected concurrency for updates.
-     *
-     * @param level  level of the scoreValue to register, 31 bit unsigned integer number
-     * @param userId userId of the scoreValue to register, 31 bit unsigned integer number
-     * @param score  scoreValue to register, 31 bit unsigned integer number
-     */
     @Override
     public void registerScore(int level, int userId, int score) {
-        Map<Integer, Integer> scores = scoresByLevel.get(level);
-        if (scores != null) {
-            register(userId, score, scores);
-        } else {
-            scores = new ConcurrentHashMap<>(maxScoresPerLevel);
-            scores.put(userId, score);
-            scoresByLevel.put(level, scores);
-        }
+        engine.registerScore(level, userId, score);
+    }
+
+    @Override
+    public boolean offerScore(int level, int userId, int score) {
+        return engine.offerScore(level, userId, score);
+    }
+
+    @Override
+    public void registerScores(int level, int[] userIds, int[] scores, int offset, int length) {
+        engine.registerScores(level, userIds, scores, offset, length);
+    }
+
+    @Override
+    public String getHighScoresForLevel(int level) {
+        return engine.getHighScoresForLevel(level);
+    }
+
+    @Override
+    public HighScoresSnapshot getHighScoresSnapshot(int level) {
+        return engine.getHighScoresSnapshot(level);
+    }
+
+    @Override
+    public int getRank(int level, int userId) {
+        return engine.getRank(level, userId);
+    }
+
+    @Override
+    public HighScoresSnapshot getScoresAround(int level, int userId, int radius) {
+        return engine.getScoresAround(level, userId, radius);
     }
 }
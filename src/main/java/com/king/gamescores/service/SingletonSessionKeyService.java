@@ -0,0 +1,73 @@
+package com.king.gamescores.service;
+
+import com.king.gamescores.properties.PropertiesManager;
+
+import java.security.SignatureException;
+
+/**
+ * The session keys issued at login must be verified by the score handlers, so every handler shares this lazily
+ * initialized singleton. The keys are signed {@link TokenSessionKeyService} tokens by default, or
+ * {@link OpaqueSessionKeyService} random session ids with scores.sessionKeys=opaque.
+ */
+public class SingletonSessionKeyService implements SessionKeyService {
+
+    private static final String SESSION_KEYS = "scores.sessionKeys";
+    private static final String OPAQUE_SESSION_KEYS = "opaque";
+
+    private static volatile SingletonSessionKeyService instance = null;
+
+    private final SessionKeyService delegate;
+
+    private SingletonSessionKeyService() {
+        String sessionKeys = PropertiesManager.getInstance().getString(SESSION_KEYS, "token").trim();
+        delegate = OPAQUE_SESSION_KEYS.equalsIgnoreCase(sessionKeys)
+                ? new OpaqueSessionKeyService()
+                : new TokenSessionKeyService();
+    }
+
+    /**
+     * Lazy initialization with double check locking, like {@link SingletonScoresService#getInstance()}
+     *
+     * @return the {@link SingletonSessionKeyService} instance
+     */
+    public static SingletonSessionKeyService getInstance() {
+        if (instance == null) {
+            synchronized (SingletonSessionKeyService.class) {
+                if (instance == null) {
+                    instance = new SingletonSessionKeyService();
+                }
+            }
+        }
+        return instance;
+    }
+
+    @Override
+    public String generateSessionKey(int userId) throws SignatureException {
+        return delegate.generateSessionKey(userId);
+    }
+
+    @Override
+    public int getUserIdFromSessionKey(String sessionKey) throws SignatureException {
+        return delegate.getUserIdFromSessionKey(sessionKey);
+    }
+
+    @Override
+    public boolean isSessionKeyValid(String sessionKey) throws SignatureException {
+        return delegate.isSessionKeyValid(sessionKey);
+    }
+
+    @Override
+    public Session verifySessionKey(String sessionKey) throws SignatureException {
+        return delegate.verifySessionKey(sessionKey);
+    }
+
+    @Override
+    public boolean revokeSessionKey(String sessionKey) throws SignatureException {
+        return delegate.revokeSessionKey(sessionKey);
+    }
+
+    @Override
+    public boolean isRevocable() {
+        return delegate.isRevocable();
+    }
+}
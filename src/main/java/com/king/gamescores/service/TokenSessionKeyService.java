@@ -1,34 +1,64 @@
 package com.king.gamescores.service;
 
 import com.king.gamescores.properties.PropertiesManager;
+import com.king.gamescores.token.CompactToken;
+import com.king.gamescores.token.Signer;
 import com.king.gamescores.token.TokenBuilder;
 import com.king.gamescores.token.TokenParser;
+import com.king.gamescores.util.CachedClock;
 
+import java.nio.charset.StandardCharsets;
 import java.security.SignatureException;
+import java.time.DateTimeException;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
-import java.time.temporal.ChronoField;
 
 /**
  * Generates a token, a compact and self-contained way to securely generate the required unique session key. Contains a
  * payload and a signature. The payload contains the userId and when expires. Finally, the signature is the hash of the
  * the payload using the hash algorithm, which can be verified and trusted because it is digitally signed.
+ * <p>
+ * New session keys are {@link CompactToken} version 2 tokens unless scores.tokenVersion is 1. Version 1 tokens, the
+ * ISO date ones, are accepted until they expire whatever the version issued.
+ * <p>
+ * Verified sessions are kept in a {@link SessionCache} of scores.sessionCacheSize slots, 0 to disable it, so that the
+ * scores posted with the same session key do not compute its HMAC again.
  */
 public class TokenSessionKeyService implements SessionKeyService {
 
     private static final String SECRET_KEY = "scores.secretKey";
     private static final String SESSION_EXPIRATION = "scores.sessionExpiration";
+    private static final String TOKEN_VERSION = "scores.tokenVersion";
+    private static final String TOKEN_MAC_LENGTH = "scores.tokenMacLength";
+    private static final String SESSION_CACHE_SIZE = "scores.sessionCacheSize";
+    private static final int DEFAULT_SESSION_CACHE_SIZE = 4096;
+
+    // Length of the yyyy-MM-ddTHH:mm:ss expiration prefix
+    private static final int DATE_TIME_LENGTH = 19;
 
-    private final String secretKey;
     private final long expirationMS;
+    private final boolean compactTokens;
+    private final int macLength;
+    private final Signer signer;
+    private final TokenParser parser;
+    private final SessionCache cache;
 
     /**
      * Constructs a {@link TokenSessionKeyService}
      */
     public TokenSessionKeyService() {
         PropertiesManager propertiesManager = PropertiesManager.getInstance();
-        secretKey = propertiesManager.getString(SECRET_KEY);
+        String secretKey = propertiesManager.getString(SECRET_KEY);
         expirationMS = propertiesManager.getLong(SESSION_EXPIRATION);
+        compactTokens = propertiesManager.getInt(TOKEN_VERSION, CompactToken.VERSION) == CompactToken.VERSION;
+        macLength = propertiesManager.getInt(TOKEN_MAC_LENGTH, CompactToken.DEFAULT_MAC_LENGTH);
+        CompactToken.checkMacLength(macLength);
+        // Shared by every login and verification so that each thread initializes its Mac only once
+        signer = new Signer(secretKey.getBytes(StandardCharsets.UTF_8));
+        parser = TokenParser.parser().setSigner(signer);
+        int cacheSize = propertiesManager.getInt(SESSION_CACHE_SIZE, DEFAULT_SESSION_CACHE_SIZE);
+        cache = cacheSize > 0 ? new SessionCache(cacheSize) : null;
     }
 
     /**
@@ -40,10 +70,15 @@ public class TokenSessionKeyService implements SessionKeyService {
      */
     @Override
     public String generateSessionKey(int userId) throws SignatureException {
+        if (compactTokens) {
+            // Rounded up so that the session lasts at least the configured expiration
+            long expiration = (CachedClock.currentTimeMillis() + expirationMS + 999) / 1000;
+            return CompactToken.build(signer, userId, expiration, macLength);
+        }
         return TokenBuilder.builder()
-                .signWith(secretKey)
+                .signWith(signer)
                 .setUserId(String.valueOf(userId))
-                .setExpiration(LocalDateTime.now().plus(expirationMS, ChronoField.MILLI_OF_DAY.getBaseUnit()))
+                .setExpiration(localDateTime(CachedClock.currentTimeMillis() + expirationMS))
                 .build();
     }
 
@@ -57,11 +92,7 @@ public class TokenSessionKeyService implements SessionKeyService {
      */
     @Override
     public int getUserIdFromSessionKey(String sessionKey) throws SignatureException {
-        String payload = TokenParser.parser()
-                .setSigningKey(secretKey)
-                .parse(sessionKey);
-        String[] payloadParts = payload.split("\\" + TokenBuilder.SEPARATOR_CHAR);
-        return Integer.parseInt(payloadParts[0]);
+        return verifySessionKey(sessionKey).getUserId();
     }
 
     /**
@@ -73,16 +104,109 @@ public class TokenSessionKeyService implements SessionKeyService {
      */
     @Override
     public boolean isSessionKeyValid(String sessionKey) throws SignatureException {
-        return !isSessionKeyExpired(sessionKey);
+        return !verifySessionKey(sessionKey).isExpired(CachedClock.currentTimeMillis());
+    }
+
+    /**
+     * Verifies the signature of the given session key once, unless its session is cached, and reads its userId and
+     * expiration: at fixed offsets for version 2 tokens, without regular expressions nor intermediate strings for the
+     * common expiration format of version 1 tokens.
+     *
+     * @param sessionKey The session key in string format
+     * @return the session of the key, which may have expired
+     * @throws SignatureException if the session key is not valid
+     */
+    @Override
+    public Session verifySessionKey(String sessionKey) throws SignatureException {
+        if (cache == null) {
+            return parseSessionKey(sessionKey);
+        }
+        long now = CachedClock.currentTimeMillis();
+        Session session = cache.get(sessionKey, now);
+        if (session == null) {
+            session = parseSessionKey(sessionKey);
+            if (!session.isExpired(now)) {
+                cache.put(sessionKey, session);
+            }
+        }
+        return session;
+    }
+
+    private static LocalDateTime localDateTime(long millis) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000), (int) Math.floorMod(millis, 1000) * 1000000,
+                CachedClock.offset());
+    }
+
+    private Session parseSessionKey(String sessionKey) throws SignatureException {
+        if (sessionKey.indexOf(TokenBuilder.SEPARATOR_CHAR) < 0) {
+            CompactToken token = CompactToken.parse(signer, sessionKey, macLength);
+            return new Session(token.getUserId(), token.getExpiration() * 1000);
+        }
+        String payload = parser.parse(sessionKey);
+        int separator = payload.indexOf(TokenBuilder.SEPARATOR_CHAR);
+        if (separator <= 0) {
+            throw new SignatureException("Token payload does not have an expiration");
+        }
+        return new Session(parseUserId(payload, separator), parseExpiration(payload, separator + 1));
+    }
+
+    private static int parseUserId(String payload, int end) throws SignatureException {
+        long userId = 0;
+        for (int i = 0; i < end; i++) {
+            int digit = payload.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || (userId = userId * 10 + digit) > Integer.MAX_VALUE) {
+                throw new SignatureException("Token payload does not have a valid userId");
+            }
+        }
+        return (int) userId;
+    }
+
+    /**
+     * Reads the ISO-like local date-time expiration written by {@link TokenBuilder#setExpiration(LocalDateTime)}
+     * digit by digit, falling back to {@link DateTimeFormatter#ISO_DATE_TIME} for any other layout
+     */
+    private static long parseExpiration(String payload, int start) throws SignatureException {
+        try {
+            int length = payload.length() - start;
+            if (length >= DATE_TIME_LENGTH && payload.charAt(start + 4) == '-' && payload.charAt(start + 7) == '-'
+                    && payload.charAt(start + 10) == 'T' && payload.charAt(start + 13) == ':'
+                    && payload.charAt(start + 16) == ':'
+                    && (length == DATE_TIME_LENGTH || payload.charAt(start + DATE_TIME_LENGTH) == '.')) {
+                int nanos = 0;
+                int fraction = 0;
+                for (int i = start + DATE_TIME_LENGTH + 1; i < payload.length() && fraction < 9; i++, fraction++) {
+                    nanos = nanos * 10 + digit(payload, i);
+                }
+                for (; fraction < 9; fraction++) {
+                    nanos *= 10;
+                }
+                LocalDateTime expiration = LocalDateTime.of(number(payload, start, 4),
+                        number(payload, start + 5, 2), number(payload, start + 8, 2),
+                        number(payload, start + 11, 2), number(payload, start + 14, 2),
+                        number(payload, start + 17, 2), nanos);
+                return expiration.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            }
+            LocalDateTime expiration = LocalDateTime.from(
+                    DateTimeFormatter.ISO_DATE_TIME.parse(payload.substring(start)));
+            return expiration.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (DateTimeException | NumberFormatException e) {
+            throw new SignatureException("Token payload does not have a valid expiration", e);
+        }
+    }
+
+    private static int number(String payload, int start, int digits) {
+        int number = 0;
+        for (int i = start; i < start + digits; i++) {
+            number = number * 10 + digit(payload, i);
+        }
+        return number;
     }
 
-    private boolean isSessionKeyExpired(String sessionKey) throws SignatureException {
-        String payload = TokenParser.parser()
-                .setSigningKey(secretKey)
-                .parse(sessionKey);
-        String[] payloadParts = payload.split("\\" + TokenBuilder.SEPARATOR_CHAR);
-        String expiration = payloadParts[1];
-        LocalDateTime expirationDate = LocalDateTime.from(DateTimeFormatter.ISO_DATE_TIME.parse(expiration));
-        return expirationDate.isBefore(LocalDateTime.now());
+    private static int digit(String payload, int index) {
+        int digit = payload.charAt(index) - '0';
+        if (digit < 0 || digit > 9) {
+            throw new NumberFormatException("Not a digit at " + index);
+        }
+        return digit;
     }
 }
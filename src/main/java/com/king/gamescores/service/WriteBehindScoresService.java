@@ -0,0 +1,261 @@
+package com.king.gamescores.service;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Write-behind decorator of a {@link ScoresService}. Offered scores are queued in a bounded {@link ScoreRingBuffer}
+ * and applied by background drainer threads, so the request threads never wait for the scores engine. Every drainer
+ * dequeues a batch, groups it by level and registers every group with a single
+ * {@link ScoresService#registerScores(int, int[], int[], int, int)} call.
+ * <p>
+ * {@link #offerScore(int, int, int)} refuses a score when the buffer is full, letting the caller push back on the
+ * client, while {@link #registerScore(int, int, int)} applies it synchronously instead. Reads are served by the
+ * decorated service and see the queued scores once they are applied. Queue depth, throughput and apply lag are
+ * exposed through {@link WriteBehindScoresServiceMXBean}.
+ * <p>
+ * An idle drainer parks until a producer queues a score and unparks it, so an idle service costs no CPU.
+ */
+public class WriteBehindScoresService implements ScoresService, WriteBehindScoresServiceMXBean {
+
+    private static final int BATCH_SIZE = 512;
+
+    private final ScoresService scoresService;
+    private final ScoreRingBuffer buffer;
+    private final Drainer[] drainers;
+
+    private final AtomicLong submitted = new AtomicLong();
+    // Number of drainers parked or about to park, read by the producers after every queued score
+    private final AtomicInteger idleDrainers = new AtomicInteger();
+    private final AtomicLong applied = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    private volatile long applyLagNanos;
+    private volatile long maxApplyLagNanos;
+    private volatile boolean running = true;
+
+    /**
+     * Constructs a {@link WriteBehindScoresService} and starts its drainers
+     *
+     * @param scoresService the service the scores are applied to
+     * @param capacity      the maximum number of queued scores, rounded up to a power of two
+     * @param drainers      the number of drainer threads, at least 1
+     * @throws IllegalArgumentException if there is no drainer, the queued scores would never be applied
+     */
+    public WriteBehindScoresService(ScoresService scoresService, int capacity, int drainers) {
+        if (drainers < 1) {
+            throw new IllegalArgumentException("The number of drainers must be 1 or more, was " + drainers);
+        }
+        this.scoresService = scoresService;
+        buffer = new ScoreRingBuffer(capacity);
+        this.drainers = new Drainer[drainers];
+        for (int i = 0; i < drainers; i++) {
+            this.drainers[i] = new Drainer(i);
+        }
+    }
+
+    /**
+     * Queues a user's score to a level, to be applied by the drainers
+     *
+     * @param level  level of the score to register, 31 bit unsigned integer number
+     * @param userId userId of the score to register, 31 bit unsigned integer number
+     * @param score  score to register, 31 bit unsigned integer number
+     * @return false if the buffer is full and the score has not been queued
+     */
+    @Override
+    public boolean offerScore(int level, int userId, int score) {
+        if (buffer.offer(level, userId, score)) {
+            queued();
+            return true;
+        }
+        rejected.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Queues a user's score to a level, or registers it synchronously if the buffer is full
+     *
+     * @param level  level of the score to register, 31 bit unsigned integer number
+     * @param userId userId of the score to register, 31 bit unsigned integer number
+     * @param score  score to register, 31 bit unsigned integer number
+     */
+    @Override
+    public void registerScore(int level, int userId, int score) {
+        if (!buffer.offer(level, userId, score)) {
+            scoresService.registerScore(level, userId, score);
+            return;
+        }
+        queued();
+    }
+
+    private void queued() {
+        submitted.incrementAndGet();
+        if (idleDrainers.get() > 0) {
+            for (Drainer drainer : drainers) {
+                if (drainer.waiting) {
+                    LockSupport.unpark(drainer.thread);
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void registerScores(int level, int[] userIds, int[] scores, int offset, int length) {
+        scoresService.registerScores(level, userIds, scores, offset, length);
+    }
+
+    @Override
+    public String getHighScoresForLevel(int level) {
+        return scoresService.getHighScoresForLevel(level);
+    }
+
+    @Override
+    public HighScoresSnapshot getHighScoresSnapshot(int level) {
+        return scoresService.getHighScoresSnapshot(level);
+    }
+
+    @Override
+    public int getRank(int level, int userId) {
+        return scoresService.getRank(level, userId);
+    }
+
+    @Override
+    public HighScoresSnapshot getScoresAround(int level, int userId, int radius) {
+        return scoresService.getScoresAround(level, userId, radius);
+    }
+
+    /**
+     * Waits until every score queued before this call has been applied
+     */
+    public void flush() {
+        long target = submitted.get();
+        Backoff backoff = new Backoff();
+        while (applied.get() < target && running) {
+            backoff.pause();
+        }
+    }
+
+    /**
+     * Stops the drainers once the buffer is empty. Scores queued afterwards are not applied.
+     */
+    public void shutdown() {
+        running = false;
+        for (Drainer drainer : drainers) {
+            LockSupport.unpark(drainer.thread);
+        }
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return buffer.size();
+    }
+
+    @Override
+    public int getCapacity() {
+        return buffer.capacity();
+    }
+
+    @Override
+    public long getSubmitted() {
+        return submitted.get();
+    }
+
+    @Override
+    public long getApplied() {
+        return applied.get();
+    }
+
+    @Override
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    @Override
+    public long getApplyLagMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(applyLagNanos);
+    }
+
+    @Override
+    public long getMaxApplyLagMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxApplyLagNanos);
+    }
+
+    /**
+     * Dequeues batches of scores and applies them grouped by level
+     */
+    private final class Drainer implements Runnable {
+
+        private final int[] levels = new int[BATCH_SIZE];
+        private final int[] userIds = new int[BATCH_SIZE];
+        private final int[] scores = new int[BATCH_SIZE];
+        private final long[] enqueuedAt = new long[BATCH_SIZE];
+        private final long[] order = new long[BATCH_SIZE];
+        private final int[] groupUserIds = new int[BATCH_SIZE];
+        private final int[] groupScores = new int[BATCH_SIZE];
+        private final Thread thread;
+
+        private volatile boolean waiting;
+
+        private Drainer(int index) {
+            thread = new Thread(this, "scores-drainer-" + index);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                int count = buffer.drain(levels, userIds, scores, enqueuedAt, BATCH_SIZE);
+                if (count > 0) {
+                    apply(count);
+                } else if (running) {
+                    idle();
+                } else {
+                    return;
+                }
+            }
+        }
+
+        private void idle() {
+            waiting = true;
+            idleDrainers.incrementAndGet();
+            // A producer may have queued before seeing the flag, check again before parking
+            if (buffer.size() == 0 && running) {
+                LockSupport.park(this);
+            }
+            idleDrainers.decrementAndGet();
+            waiting = false;
+        }
+
+        private void apply(int count) {
+            long oldest = enqueuedAt[0];
+            for (int i = 0; i < count; i++) {
+                order[i] = (long) levels[i] << 32 | i;
+                oldest = Math.min(oldest, enqueuedAt[i]);
+            }
+            // Sorting by level keeps the submission order of the scores of every level
+            Arrays.sort(order, 0, count);
+            int start = 0;
+            for (int i = 0; i < count; i++) {
+                int index = (int) order[i];
+                groupUserIds[i] = userIds[index];
+                groupScores[i] = scores[index];
+                int level = (int) (order[i] >>> 32);
+                if (i == count - 1 || (int) (order[i + 1] >>> 32) != level) {
+                    scoresService.registerScores(level, groupUserIds, groupScores, start, i + 1 - start);
+                    start = i + 1;
+                }
+            }
+            long lag = System.nanoTime() - oldest;
+            applyLagNanos = lag;
+            if (lag > maxApplyLagNanos) {
+                maxApplyLagNanos = lag;
+            }
+            applied.addAndGet(count);
+        }
+    }
+}
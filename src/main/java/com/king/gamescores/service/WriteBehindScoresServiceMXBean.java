@@ -0,0 +1,42 @@
+package com.king.gamescores.service;
+
+/**
+ * Management interface of the {@link WriteBehindScoresService} ingestion metrics
+ */
+public interface WriteBehindScoresServiceMXBean {
+
+    /**
+     * @return the number of submissions waiting in the buffer
+     */
+    int getQueueDepth();
+
+    /**
+     * @return the maximum number of submissions the buffer can hold
+     */
+    int getCapacity();
+
+    /**
+     * @return the total number of submissions accepted into the buffer
+     */
+    long getSubmitted();
+
+    /**
+     * @return the total number of submissions applied to the scores
+     */
+    long getApplied();
+
+    /**
+     * @return the total number of submissions refused because the buffer was full
+     */
+    long getRejected();
+
+    /**
+     * @return the time the oldest submission of the last applied batch waited in the buffer, in milliseconds
+     */
+    long getApplyLagMillis();
+
+    /**
+     * @return the longest time a submission waited in the buffer, in milliseconds
+     */
+    long getMaxApplyLagMillis();
+}
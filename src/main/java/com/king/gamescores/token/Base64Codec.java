@@ -1,81 +1,224 @@
 package com.king.gamescores.token;
 
-import javax.xml.bind.DatatypeConverter;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 /**
- * Utility class for Base64 encoding and decoding
+ * Utility class for Base64 encoding and decoding with the URL and filename safe alphabet of RFC 4648 and without
+ * padding, the form used in session keys. Encoding and decoding work directly between byte arrays, strings and
+ * {@link ByteBuffer} regions, allocating nothing but the result when one is returned.
+ * <p>
+ * Decoding also accepts the standard alphabet and trailing padding, and rejects any other character with an
+ * {@link IllegalArgumentException}.
  */
 public final class Base64Codec {
 
+    private static final byte[] ALPHABET =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".getBytes(StandardCharsets.US_ASCII);
+    private static final int[] VALUES = new int[128];
+
+    static {
+        Arrays.fill(VALUES, -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            VALUES[ALPHABET[i]] = i;
+        }
+        VALUES['+'] = 62;
+        VALUES['/'] = 63;
+    }
+
     private Base64Codec() {
     }
 
-    public static String encode(byte[] data) {
-        String base64Text = DatatypeConverter.printBase64Binary(data);
-        byte[] bytes = base64Text.getBytes(StandardCharsets.UTF_8);
-        bytes = removePadding(bytes);
-
-        for (int i = 0; i < bytes.length; ++i) {
-            if (bytes[i] == 43) {
-                bytes[i] = 45;
-            } else if (bytes[i] == 47) {
-                bytes[i] = 95;
-            }
+    /**
+     * @param length number of bytes to encode
+     * @return the number of characters of their encoding
+     */
+    public static int encodedLength(int length) {
+        return (length / 3) * 4 + (length % 3 == 0 ? 0 : length % 3 + 1);
+    }
+
+    /**
+     * @param length number of characters to decode, without padding
+     * @return the number of bytes they decode to
+     * @throws IllegalArgumentException if no encoding has that length
+     */
+    public static int decodedLength(int length) {
+        if (length % 4 == 1) {
+            throw new IllegalArgumentException("Invalid Base64 length " + length);
         }
+        return (length / 4) * 3 + (length % 4 == 0 ? 0 : length % 4 - 1);
+    }
 
-        return new String(bytes, StandardCharsets.UTF_8);
+    public static String encode(byte[] data) {
+        byte[] encoded = new byte[encodedLength(data.length)];
+        encode(data, 0, data.length, encoded, 0);
+        return new String(encoded, StandardCharsets.US_ASCII);
     }
 
-    private static byte[] removePadding(byte[] bytes) {
-        byte[] result = bytes;
+    /**
+     * Encodes a region of a byte array into another one
+     *
+     * @param src       the bytes to encode
+     * @param offset    position of the first byte to encode
+     * @param length    number of bytes to encode
+     * @param dst       the destination of the encoded characters
+     * @param dstOffset position of the first encoded character in the destination
+     * @return the number of encoded characters written
+     */
+    public static int encode(byte[] src, int offset, int length, byte[] dst, int dstOffset) {
+        int position = dstOffset;
+        int end = offset + length;
+        int i = offset;
+        for (; i + 2 < end; i += 3) {
+            int bits = (src[i] & 0xFF) << 16 | (src[i + 1] & 0xFF) << 8 | src[i + 2] & 0xFF;
+            dst[position++] = ALPHABET[bits >>> 18];
+            dst[position++] = ALPHABET[(bits >>> 12) & 0x3F];
+            dst[position++] = ALPHABET[(bits >>> 6) & 0x3F];
+            dst[position++] = ALPHABET[bits & 0x3F];
+        }
+        int remaining = end - i;
+        if (remaining > 0) {
+            int bits = (src[i] & 0xFF) << 16 | (remaining == 2 ? (src[i + 1] & 0xFF) << 8 : 0);
+            dst[position++] = ALPHABET[bits >>> 18];
+            dst[position++] = ALPHABET[(bits >>> 12) & 0x3F];
+            if (remaining == 2) {
+                dst[position++] = ALPHABET[(bits >>> 6) & 0x3F];
+            }
+        }
+        return position - dstOffset;
+    }
 
-        int paddingCount = 0;
-        for (int i = bytes.length - 1; i > 0; i--) {
-            if (bytes[i] == '=') {
-                paddingCount++;
-            } else {
-                break;
+    /**
+     * Encodes the remaining bytes of a buffer into another one, advancing the position of both
+     *
+     * @param src the bytes to encode
+     * @param dst the destination of the encoded characters
+     * @return the number of encoded characters written
+     */
+    public static int encode(ByteBuffer src, ByteBuffer dst) {
+        int start = dst.position();
+        int bits = 0;
+        int count = 0;
+        while (src.hasRemaining()) {
+            bits = bits << 8 | (src.get() & 0xFF);
+            if (++count == 3) {
+                dst.put(ALPHABET[bits >>> 18]).put(ALPHABET[(bits >>> 12) & 0x3F])
+                        .put(ALPHABET[(bits >>> 6) & 0x3F]).put(ALPHABET[bits & 0x3F]);
+                bits = 0;
+                count = 0;
             }
         }
-        if (paddingCount > 0) {
-            result = new byte[bytes.length - paddingCount];
-            System.arraycopy(bytes, 0, result, 0, bytes.length - paddingCount);
+        if (count > 0) {
+            bits <<= 8 * (3 - count);
+            dst.put(ALPHABET[bits >>> 18]).put(ALPHABET[(bits >>> 12) & 0x3F]);
+            if (count == 2) {
+                dst.put(ALPHABET[(bits >>> 6) & 0x3F]);
+            }
         }
-
-        return result;
+        return dst.position() - start;
     }
 
     public static byte[] decode(String encoded) {
-        char[] chars = encoded.toCharArray();
-        chars = ensurePadding(chars);
-        for (int i = 0; i < chars.length; i++) {
-            if (chars[i] == '-') {
-                chars[i] = '+';
-            } else if (chars[i] == '_') {
-                chars[i] = '/';
+        int length = unpaddedLength(encoded, 0, encoded.length());
+        byte[] decoded = new byte[decodedLength(length)];
+        decode(encoded, 0, length, decoded, 0);
+        return decoded;
+    }
+
+    /**
+     * Decodes a region of a string into a caller supplied byte array
+     *
+     * @param src       the characters to decode
+     * @param offset    position of the first character to decode
+     * @param length    number of characters to decode, trailing padding included or not
+     * @param dst       the destination of the decoded bytes, with room for {@link #decodedLength(int)} bytes
+     * @param dstOffset position of the first decoded byte in the destination
+     * @return the number of decoded bytes written
+     * @throws IllegalArgumentException if the characters are not a valid encoding
+     */
+    public static int decode(CharSequence src, int offset, int length, byte[] dst, int dstOffset) {
+        int end = offset + unpaddedLength(src, offset, length);
+        int position = dstOffset;
+        int bits = 0;
+        int count = 0;
+        for (int i = offset; i < end; i++) {
+            bits = bits << 6 | value(src.charAt(i));
+            if (++count == 4) {
+                dst[position++] = (byte) (bits >>> 16);
+                dst[position++] = (byte) (bits >>> 8);
+                dst[position++] = (byte) bits;
+                bits = 0;
+                count = 0;
             }
         }
-        return DatatypeConverter.parseBase64Binary(new String(chars));
+        return finish(bits, count, dst, position) - dstOffset;
     }
 
-    private static char[] ensurePadding(char[] chars) {
-        char[] result = chars;
+    /**
+     * Decodes the remaining characters of a buffer into another one, advancing the position of both
+     *
+     * @param src the characters to decode, ASCII encoded, trailing padding included or not
+     * @param dst the destination of the decoded bytes
+     * @return the number of decoded bytes written
+     * @throws IllegalArgumentException if the characters are not a valid encoding
+     */
+    public static int decode(ByteBuffer src, ByteBuffer dst) {
+        int start = dst.position();
+        int bits = 0;
+        int count = 0;
+        int padding = 0;
+        while (src.hasRemaining()) {
+            byte b = src.get();
+            if (b == '=') {
+                padding++;
+                continue;
+            }
+            if (padding > 0) {
+                throw new IllegalArgumentException("Invalid Base64 padding");
+            }
+            bits = bits << 6 | value((char) (b & 0xFF));
+            if (++count == 4) {
+                dst.put((byte) (bits >>> 16)).put((byte) (bits >>> 8)).put((byte) bits);
+                bits = 0;
+                count = 0;
+            }
+        }
+        if (count == 1) {
+            throw new IllegalArgumentException("Invalid Base64 length");
+        } else if (count == 2) {
+            dst.put((byte) (bits >>> 4));
+        } else if (count == 3) {
+            dst.put((byte) (bits >>> 10)).put((byte) (bits >>> 2));
+        }
+        return dst.position() - start;
+    }
 
-        int paddingCount = 0;
-        int remainder = chars.length % 4;
-        if (remainder == 2 || remainder == 3) {
-            paddingCount = 4 - remainder;
+    private static int finish(int bits, int count, byte[] dst, int position) {
+        if (count == 1) {
+            throw new IllegalArgumentException("Invalid Base64 length");
+        } else if (count == 2) {
+            dst[position++] = (byte) (bits >>> 4);
+        } else if (count == 3) {
+            dst[position++] = (byte) (bits >>> 10);
+            dst[position++] = (byte) (bits >>> 2);
         }
+        return position;
+    }
 
-        if (paddingCount > 0) {
-            result = new char[chars.length + paddingCount];
-            System.arraycopy(chars, 0, result, 0, chars.length);
-            for (int i = 0; i < paddingCount; i++) {
-                result[chars.length + i] = '=';
-            }
+    private static int unpaddedLength(CharSequence src, int offset, int length) {
+        int padding = 0;
+        while (padding < 2 && length - padding > 0 && src.charAt(offset + length - padding - 1) == '=') {
+            padding++;
         }
+        return length - padding;
+    }
 
-        return result;
+    private static int value(char c) {
+        int value = c < 128 ? VALUES[c] : -1;
+        if (value < 0) {
+            throw new IllegalArgumentException("Invalid Base64 character '" + c + "'");
+        }
+        return value;
     }
 }
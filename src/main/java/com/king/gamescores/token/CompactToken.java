@@ -0,0 +1,121 @@
+package com.king.gamescores.token;
+
+import java.security.SignatureException;
+
+/**
+ * Version 2 session token: a fixed layout binary payload followed by a truncated HMAC of it, Base64 URL-safe encoded
+ * without padding.
+ * <pre>
+ * | version (byte) | userId (int) | expiration, epoch seconds (unsigned int) | HMAC-SHA512, first macLength bytes |
+ * </pre>
+ * With the default 12 bytes MAC the token takes 21 bytes, 28 characters, and is read at fixed offsets, without any
+ * separator nor date parsing. Version 1 tokens contain the {@link TokenBuilder#SEPARATOR_CHAR} this one never does.
+ */
+public final class CompactToken {
+
+    public static final byte VERSION = 2;
+
+    /**
+     * The default number of HMAC bytes kept in a token
+     */
+    public static final int DEFAULT_MAC_LENGTH = 12;
+    public static final int MIN_MAC_LENGTH = 8;
+    public static final int MAX_MAC_LENGTH = 64;
+
+    private static final int VERSION_OFFSET = 0;
+    private static final int USER_ID_OFFSET = 1;
+    private static final int EXPIRATION_OFFSET = 5;
+    private static final int PAYLOAD_LENGTH = 9;
+
+    private final int userId;
+    private final long expiration;
+
+    private CompactToken(int userId, long expiration) {
+        this.userId = userId;
+        this.expiration = expiration;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    /**
+     * @return the expiration of the token, in seconds since the epoch
+     */
+    public long getExpiration() {
+        return expiration;
+    }
+
+    /**
+     * Builds a token
+     *
+     * @param signer     signer of the secret key
+     * @param userId     the userId of the token
+     * @param expiration the expiration of the token, in seconds since the epoch
+     * @param macLength  the number of HMAC bytes kept, between {@value #MIN_MAC_LENGTH} and {@value #MAX_MAC_LENGTH}
+     * @return the token
+     * @throws SignatureException if there any issue with token payload signature generation
+     */
+    public static String build(Signer signer, int userId, long expiration, int macLength) throws SignatureException {
+        checkMacLength(macLength);
+        byte[] token = new byte[PAYLOAD_LENGTH + macLength];
+        token[VERSION_OFFSET] = VERSION;
+        writeInt(token, USER_ID_OFFSET, userId);
+        writeInt(token, EXPIRATION_OFFSET, (int) expiration);
+        signer.sign(token, 0, PAYLOAD_LENGTH, token, PAYLOAD_LENGTH, macLength);
+        return Base64Codec.encode(token);
+    }
+
+    /**
+     * Parses and validates a token
+     *
+     * @param signer    signer of the secret key
+     * @param token     the token to parse and validate
+     * @param macLength the number of HMAC bytes kept in the tokens
+     * @return the parsed token
+     * @throws SignatureException if the token is malformed, of another version or its signature does not match
+     */
+    public static CompactToken parse(Signer signer, String token, int macLength) throws SignatureException {
+        int length = Base64Codec.encodedLength(PAYLOAD_LENGTH + macLength);
+        if (token.length() != length) {
+            throw new SignatureException("Token must be " + length + " characters long. Found: " + token.length());
+        }
+        byte[] bytes = new byte[PAYLOAD_LENGTH + macLength];
+        try {
+            Base64Codec.decode(token, 0, length, bytes, 0);
+        } catch (IllegalArgumentException e) {
+            throw new SignatureException("Token is not valid Base64", e);
+        }
+        if (bytes[VERSION_OFFSET] != VERSION) {
+            throw new SignatureException("Unsupported token version " + bytes[VERSION_OFFSET]);
+        }
+        if (!signer.isValid(bytes, 0, PAYLOAD_LENGTH, bytes, PAYLOAD_LENGTH, macLength)) {
+            throw new SignatureException("Token signature does not match locally computed signature. Token " +
+                    "validity cannot be asserted and should not be trusted");
+        }
+        return new CompactToken(readInt(bytes, USER_ID_OFFSET), readInt(bytes, EXPIRATION_OFFSET) & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @param macLength the number of HMAC bytes to keep in a token
+     * @throws IllegalArgumentException if the length is out of range
+     */
+    public static void checkMacLength(int macLength) {
+        if (macLength < MIN_MAC_LENGTH || macLength > MAX_MAC_LENGTH) {
+            throw new IllegalArgumentException("MAC length must be between " + MIN_MAC_LENGTH + " and "
+                    + MAX_MAC_LENGTH + " bytes");
+        }
+    }
+
+    private static void writeInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF) << 24 | (bytes[offset + 1] & 0xFF) << 16 | (bytes[offset + 2] & 0xFF) << 8
+                | bytes[offset + 3] & 0xFF;
+    }
+}
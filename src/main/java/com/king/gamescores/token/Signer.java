@@ -8,6 +8,9 @@ import java.security.Key;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SignatureException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
 import static java.util.logging.Level.SEVERE;
@@ -19,14 +22,23 @@ import static java.util.logging.Level.SEVERE;
  * <p>
  * A {@link Mac} mechanism that is based on cryptographic hash functions is referred to as HMAC. HMAC can be used with
  * any cryptographic hash function, e.g., SHA512, in combination with a secret shared key.
+ * <p>
+ * Looking up the algorithm provider and initializing the key schedule of a {@link Mac} costs as much as signing a
+ * short payload, so the initialized {@link Mac}s are kept in a pool and borrowed for each signature, whatever thread
+ * signs: a virtual thread per request gets the same reuse as a pool of platform threads. A {@link Signer} is
+ * thread-safe and meant to be shared by everything signing with the same key.
  */
 public class Signer {
 
     private static final Logger LOG = Logger.getLogger(Signer.class.getName());
 
     private static final String ALGORITHM = "HmacSHA512";
+    // Idle Macs kept, more are created under a burst of concurrent signatures and dropped once returned
+    private static final int MAX_POOLED = 4 * Runtime.getRuntime().availableProcessors();
 
     private final Key key;
+    private final Queue<Mac> macs = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooled = new AtomicInteger();
 
     /**
      * Constructs a secret {@link SecretKeySpec} from the given byte array using the name of the secret key algorithm.
@@ -45,8 +57,63 @@ public class Signer {
      * @throws SignatureException if {@link Mac} has not been initialized.
      */
     public byte[] sign(byte[] payload) throws SignatureException {
-        Mac mac = getMacInstance();
-        return mac.doFinal(payload);
+        Mac mac = acquire();
+        try {
+            return mac.doFinal(payload);
+        } finally {
+            release(mac);
+        }
+    }
+
+    /**
+     * Signs part of a byte array, writing the first bytes of the signature into a byte array
+     *
+     * @param payload         array holding the payload
+     * @param offset          position of the payload in its array
+     * @param length          length of the payload
+     * @param signature       destination of the signature
+     * @param signatureOffset position of the signature in its array
+     * @param signatureLength number of signature bytes kept, no more than the HMAC length
+     * @throws SignatureException if {@link Mac} has not been initialized.
+     */
+    public void sign(byte[] payload, int offset, int length, byte[] signature, int signatureOffset,
+                     int signatureLength) throws SignatureException {
+        Mac mac = acquire();
+        try {
+            mac.update(payload, offset, length);
+            System.arraycopy(mac.doFinal(), 0, signature, signatureOffset, signatureLength);
+        } finally {
+            release(mac);
+        }
+    }
+
+    /**
+     * Validates in constant time if the first bytes of the signature of part of a byte array match the given ones
+     *
+     * @param payload         array holding the payload
+     * @param offset          position of the payload in its array
+     * @param length          length of the payload
+     * @param signature       array holding the truncated signature
+     * @param signatureOffset position of the signature in its array
+     * @param signatureLength length of the truncated signature, no more than the HMAC length
+     * @return true if the signature is valid for the given payload, false otherwise
+     * @throws SignatureException if {@link Mac} has not been initialized.
+     */
+    public boolean isValid(byte[] payload, int offset, int length, byte[] signature, int signatureOffset,
+                           int signatureLength) throws SignatureException {
+        byte[] computed;
+        Mac mac = acquire();
+        try {
+            mac.update(payload, offset, length);
+            computed = mac.doFinal();
+        } finally {
+            release(mac);
+        }
+        int difference = 0;
+        for (int i = 0; i < signatureLength; i++) {
+            difference |= computed[i] ^ signature[signatureOffset + i];
+        }
+        return difference == 0;
     }
 
     /**
@@ -58,16 +125,45 @@ public class Signer {
      * @throws SignatureException if {@link Mac} has not been initialized.
      */
     public boolean isValid(String payload, String base64Signature) throws SignatureException {
-        byte[] data = payload.getBytes(StandardCharsets.UTF_8);
-        byte[] signature = Base64Codec.decode(base64Signature);
-        Mac mac = getMacInstance();
-        byte[] computed = mac.doFinal(data);
+        return isValid(payload.getBytes(StandardCharsets.UTF_8), base64Signature);
+    }
+
+    /**
+     * Validates if the given signature in Base64 is valid for the given payload bytes
+     *
+     * @param payload         the payload bytes of the token to validate
+     * @param base64Signature the signature in Base64
+     * @return true if the signature is valid for the given payload, false otherwise
+     * @throws SignatureException if {@link Mac} has not been initialized.
+     */
+    public boolean isValid(byte[] payload, String base64Signature) throws SignatureException {
+        byte[] signature;
+        try {
+            signature = Base64Codec.decode(base64Signature);
+        } catch (IllegalArgumentException e) {
+            throw new SignatureException("Signature is not valid Base64", e);
+        }
+        byte[] computed;
+        Mac mac = acquire();
+        try {
+            computed = mac.doFinal(payload);
+        } finally {
+            release(mac);
+        }
         return MessageDigest.isEqual(computed, signature);
     }
 
-    private Mac getMacInstance() throws SignatureException {
+    /**
+     * Borrows an initialized {@link Mac} from the pool, initializing a new one when the pool is empty
+     */
+    private Mac acquire() throws SignatureException {
+        Mac mac = macs.poll();
+        if (mac != null) {
+            pooled.decrementAndGet();
+            return mac;
+        }
         try {
-            Mac mac = Mac.getInstance(ALGORITHM);
+            mac = Mac.getInstance(ALGORITHM);
             mac.init(key);
             return mac;
         } catch (NoSuchAlgorithmException | InvalidKeyException e) {
@@ -75,4 +171,16 @@ public class Signer {
             throw new SignatureException(e);
         }
     }
+
+    /**
+     * Returns a borrowed {@link Mac} to the pool, reset in case its use has been interrupted, unless the pool is full
+     */
+    private void release(Mac mac) {
+        mac.reset();
+        if (pooled.incrementAndGet() <= MAX_POOLED) {
+            macs.offer(mac);
+        } else {
+            pooled.decrementAndGet();
+        }
+    }
 }
@@ -20,8 +20,8 @@ public class TokenBuilder {
     // Token payload separator between userId and expiration
     public static final char SEPARATOR_CHAR = '|';
 
-    // Secret key byte array
-    private byte[] keyBytes;
+    // Signer of the secret key
+    private Signer signer;
     // Token payload string
     private String payload;
 
@@ -41,7 +41,18 @@ public class TokenBuilder {
      * @return the builder for method chaining
      */
     public TokenBuilder signWith(String secretKey) {
-        keyBytes = secretKey.getBytes(StandardCharsets.UTF_8);
+        signer = new Signer(secretKey.getBytes(StandardCharsets.UTF_8));
+        return this;
+    }
+
+    /**
+     * Signs the token with the given signer, reusing its initialized {@link javax.crypto.Mac} instances
+     *
+     * @param signer signer of the key to use to digitally sign the token.
+     * @return the builder for method chaining
+     */
+    public TokenBuilder signWith(Signer signer) {
+        this.signer = signer;
         return this;
     }
 
@@ -89,7 +100,6 @@ public class TokenBuilder {
         byte[] payloadBytes = payload.getBytes(StandardCharsets.UTF_8);
         String body = Base64Codec.encode(payloadBytes);
 
-        Signer signer = new Signer(keyBytes);
         byte[] sign = signer.sign(payloadBytes);
         String signature = Base64Codec.encode(sign);
 
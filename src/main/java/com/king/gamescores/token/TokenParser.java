@@ -16,8 +16,8 @@ public class TokenParser {
 
     private static final Logger LOG = Logger.getLogger(TokenParser.class.getName());
 
-    // Secret key byte array
-    private byte[] keyBytes;
+    // Signer of the secret key
+    private Signer signer;
 
     /**
      * Returns a new {@link TokenParser} instance that can be configured and then used to parse tokens
@@ -35,7 +35,19 @@ public class TokenParser {
      * @return the parser for method chaining
      */
     public TokenParser setSigningKey(String secretKey) {
-        this.keyBytes = secretKey.getBytes(StandardCharsets.UTF_8);
+        byte[] keyBytes = secretKey.getBytes(StandardCharsets.UTF_8);
+        this.signer = keyBytes.length > 0 ? new Signer(keyBytes) : null;
+        return this;
+    }
+
+    /**
+     * Validates the token payload with the given signer, reusing its initialized {@link javax.crypto.Mac} instances
+     *
+     * @param signer signer of the key used to digitally sign the token.
+     * @return the parser for method chaining
+     */
+    public TokenParser setSigner(Signer signer) {
+        this.signer = signer;
         return this;
     }
 
@@ -47,22 +59,15 @@ public class TokenParser {
      * @throws SignatureException if there any issue with token payload signature validation
      */
     public String parse(String token) throws SignatureException {
-        String base64Payload = null;
-        String base64Digest = null;
+        // The separator is located without copying the token, only its two parts are extracted
+        int separator = -1;
         int delimiterCount = 0;
-        StringBuilder sb = new StringBuilder(121);
-        char[] arr = token.toCharArray();
-        for (char c : arr) {
-            if (c == SEPARATOR_CHAR) {
-                CharSequence tokenSeq = Strings.clean(sb);
-                String tokenStr = tokenSeq != null ? tokenSeq.toString() : null;
+        for (int i = 0; i < token.length(); i++) {
+            if (token.charAt(i) == SEPARATOR_CHAR) {
                 if (delimiterCount == 0) {
-                    base64Payload = tokenStr;
+                    separator = i;
                 }
                 ++delimiterCount;
-                sb.setLength(0);
-            } else {
-                sb.append(c);
             }
         }
 
@@ -70,25 +75,30 @@ public class TokenParser {
             throw new SignatureException("Token must contain exactly 1 separator characters. Found: " + delimiterCount);
         }
 
-        if (sb.length() > 0) {
-            base64Digest = sb.toString();
-        }
+        CharSequence payloadSeq = Strings.clean(token.substring(0, separator));
+        String base64Payload = payloadSeq != null ? payloadSeq.toString() : null;
+        String base64Digest = separator < token.length() - 1 ? token.substring(separator + 1) : null;
 
         if (base64Payload == null) {
             throw new SignatureException("Token does not have a payload");
         }
 
         // Payload
-        String payload = new String(Base64Codec.decode(base64Payload), StandardCharsets.UTF_8);
+        byte[] payloadBytes;
+        try {
+            payloadBytes = Base64Codec.decode(base64Payload);
+        } catch (IllegalArgumentException e) {
+            throw new SignatureException("Token payload is not valid Base64", e);
+        }
+        String payload = new String(payloadBytes, StandardCharsets.UTF_8);
 
         // Signature
         if (base64Digest != null) {
-            if (keyBytes == null || keyBytes.length == 0) {
+            if (signer == null) {
                 throw new SignatureException("Secret key is mandatory");
             }
 
-            Signer signer = new Signer(keyBytes);
-            if (!signer.isValid(payload, base64Digest)) {
+            if (!signer.isValid(payloadBytes, base64Digest)) {
                 throw new SignatureException("Token signature does not match locally computed signature. Token " +
                         "validity cannot be asserted and should not be trusted");
             }
@@ -0,0 +1,101 @@
+package com.king.gamescores.util;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Utility class for a coarse wall clock, the current time read from a volatile field a background daemon thread updates
+ * every millisecond. Logins, session expiry checks and log lines read it instead of calling the system clock, resolving
+ * the time-zone and formatting the date every time: the time-zone offset and the formatted {@code yyyy-MM-dd HH:mm:ss}
+ * of the current second are computed once per second.
+ * <p>
+ * The cached time lags the system clock by up to a tick, a millisecond, more if the ticker thread is not scheduled.
+ */
+public final class CachedClock {
+
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final DateTimeFormatter SECOND_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static volatile long millis = System.currentTimeMillis();
+    private static volatile Second second = new Second(Math.floorDiv(millis, 1000));
+
+    static {
+        Thread ticker = new Thread(CachedClock::tick, "cached-clock");
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    private CachedClock() {
+    }
+
+    /**
+     * @return the cached current time, in milliseconds since the epoch
+     */
+    public static long currentTimeMillis() {
+        return millis;
+    }
+
+    /**
+     * @return the offset of the system default time-zone at the cached current second
+     */
+    public static ZoneOffset offset() {
+        return second.offset;
+    }
+
+    /**
+     * Appends a time as {@code yyyy-MM-dd HH:mm:ss.SSS} in the system default time-zone, formatting only the
+     * milliseconds when the time falls in the cached current second
+     *
+     * @param builder the destination of the formatted time
+     * @param time    the time to format, in milliseconds since the epoch
+     * @return the builder
+     */
+    public static StringBuilder appendTimestamp(StringBuilder builder, long time) {
+        long epochSecond = Math.floorDiv(time, 1000);
+        Second current = second;
+        String prefix = current.epochSecond == epochSecond ? current.formatted : new Second(epochSecond).formatted;
+        int millisOfSecond = (int) Math.floorMod(time, 1000);
+        builder.append(prefix).append('.');
+        if (millisOfSecond < 100) {
+            builder.append('0');
+        }
+        if (millisOfSecond < 10) {
+            builder.append('0');
+        }
+        return builder.append(millisOfSecond);
+    }
+
+    private static void tick() {
+        while (true) {
+            LockSupport.parkNanos(TICK_NANOS);
+            long now = System.currentTimeMillis();
+            long epochSecond = Math.floorDiv(now, 1000);
+            if (epochSecond != second.epochSecond) {
+                // Published before the millis, a reader of the new millis finds its second formatted
+                second = new Second(epochSecond);
+            }
+            millis = now;
+        }
+    }
+
+    /**
+     * A second with its time-zone offset and its formatted date-time
+     */
+    private static final class Second {
+
+        private final long epochSecond;
+        private final ZoneOffset offset;
+        private final String formatted;
+
+        private Second(long epochSecond) {
+            this.epochSecond = epochSecond;
+            offset = ZoneId.systemDefault().getRules().getOffset(Instant.ofEpochSecond(epochSecond));
+            formatted = SECOND_FORMAT.format(LocalDateTime.ofEpochSecond(epochSecond, 0, offset));
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.king.gamescores.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Utility class for gzip compression of response bodies
+ */
+public final class Gzip {
+
+    private Gzip() {
+    }
+
+    /**
+     * Compresses a byte array in gzip format
+     *
+     * @param data the bytes to compress, not modified
+     * @return the compressed bytes
+     */
+    public static byte[] compress(byte[] data) {
+        // Text lists compress to a fraction of their size, a third is a good first guess
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.length / 3 + 32);
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed, Math.max(512, Math.min(data.length, 8192)))) {
+            out.write(data);
+        } catch (IOException e) {
+            // Never thrown by an in-memory stream
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+}
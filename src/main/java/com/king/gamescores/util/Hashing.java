@@ -0,0 +1,24 @@
+package com.king.gamescores.util;
+
+/**
+ * Utility class for hashing primitive keys
+ */
+public final class Hashing {
+
+    private static final int GOLDEN_RATIO = 0x9E3779B9;
+
+    private Hashing() {
+    }
+
+    /**
+     * Spreads the bits of the given key so that consecutive ids, the common case for levels and users, do not end up
+     * in consecutive slots of an open addressing table
+     *
+     * @param key the key to hash
+     * @return the mixed hash of the key
+     */
+    public static int mix(int key) {
+        int h = key * GOLDEN_RATIO;
+        return h ^ (h >>> 16);
+    }
+}
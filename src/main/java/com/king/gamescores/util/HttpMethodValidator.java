@@ -11,13 +11,7 @@ import static java.net.HttpURLConnection.HTTP_BAD_METHOD;
 public class HttpMethodValidator {
 
     public static boolean isNotValid(HttpMethod methodExpected, HttpExchange exchange) throws IOException {
-        try {
-            HttpMethod method = HttpMethod.valueOf(exchange.getRequestMethod());
-            if (!methodExpected.equals(method)) {
-                ResponseHandler.code(HTTP_BAD_METHOD).handle(exchange);
-                return true;
-            }
-        } catch (IllegalArgumentException e) {
+        if (HttpMethod.of(exchange.getRequestMethod()) != methodExpected) {
             ResponseHandler.code(HTTP_BAD_METHOD).handle(exchange);
             return true;
         }
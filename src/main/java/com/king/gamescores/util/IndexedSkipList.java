@@ -0,0 +1,201 @@
+package com.king.gamescores.util;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Indexed skip list of distinct primitive long keys in ascending order. Besides the next node, each link stores its
+ * span, the number of keys it skips, so the position of a key and the key at a position are found in O(log n) like
+ * any insertion or removal.
+ * <p>
+ * Node levels are drawn with probability 1/4, so a key takes on average one node object, two arrays of 1.33 elements
+ * and the key itself, around 80 bytes on a 64 bit JVM with compressed oops. This class is not thread-safe.
+ */
+public final class IndexedSkipList {
+
+    private static final int MAX_LEVEL = 24;
+
+    private final Node head = new Node(Long.MIN_VALUE, MAX_LEVEL);
+    private final Node[] update = new Node[MAX_LEVEL];
+    private final int[] rankAt = new int[MAX_LEVEL];
+
+    private int level = 1;
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Adds a key
+     *
+     * @param key the key to add
+     * @return true if the key was added, false if it was already present
+     */
+    public boolean add(long key) {
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            rankAt[i] = i == level - 1 ? 0 : rankAt[i + 1];
+            while (x.next[i] != null && x.next[i].key < key) {
+                rankAt[i] += x.span[i];
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+        if (x.next[0] != null && x.next[0].key == key) {
+            return false;
+        }
+
+        int nodeLevel = randomLevel();
+        if (nodeLevel > level) {
+            for (int i = level; i < nodeLevel; i++) {
+                rankAt[i] = 0;
+                update[i] = head;
+                head.span[i] = size;
+            }
+            level = nodeLevel;
+        }
+        Node node = new Node(key, nodeLevel);
+        for (int i = 0; i < nodeLevel; i++) {
+            node.next[i] = update[i].next[i];
+            update[i].next[i] = node;
+            node.span[i] = update[i].span[i] - (rankAt[0] - rankAt[i]);
+            update[i].span[i] = rankAt[0] - rankAt[i] + 1;
+        }
+        for (int i = nodeLevel; i < level; i++) {
+            update[i].span[i]++;
+        }
+        size++;
+        return true;
+    }
+
+    /**
+     * Removes a key
+     *
+     * @param key the key to remove
+     * @return true if the key was removed, false if it was not present
+     */
+    public boolean remove(long key) {
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && x.next[i].key < key) {
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+        Node node = x.next[0];
+        if (node == null || node.key != key) {
+            return false;
+        }
+        for (int i = 0; i < level; i++) {
+            if (update[i].next[i] == node) {
+                update[i].span[i] += node.span[i] - 1;
+                update[i].next[i] = node.next[i];
+            } else {
+                update[i].span[i]--;
+            }
+        }
+        while (level > 1 && head.next[level - 1] == null) {
+            level--;
+        }
+        size--;
+        return true;
+    }
+
+    /**
+     * Returns the position of a key
+     *
+     * @param key the key
+     * @return the 0 based position of the key in ascending order, -1 if it is not present
+     */
+    public int indexOf(long key) {
+        Node x = head;
+        int rank = 0;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && x.next[i].key <= key) {
+                rank += x.span[i];
+                x = x.next[i];
+            }
+            if (x != head && x.key == key) {
+                return rank - 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the key at a position
+     *
+     * @param index the 0 based position, between 0 and {@link #size()}
+     * @return the key at the given position
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public long get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        Node x = head;
+        int traversed = 0;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && traversed + x.span[i] <= index + 1) {
+                traversed += x.span[i];
+                x = x.next[i];
+            }
+            if (traversed == index + 1) {
+                return x.key;
+            }
+        }
+        throw new IllegalStateException("Index " + index + " not found");
+    }
+
+    /**
+     * Copies consecutive keys starting at a position, walking the bottom level from there
+     *
+     * @param index  the 0 based position of the first key
+     * @param keys   the destination array
+     * @param offset the position of the first key in the destination array
+     * @param length the number of keys to copy, no more than the keys available from the index
+     * @throws IndexOutOfBoundsException if there are not enough keys from the index
+     */
+    public void copy(int index, long[] keys, int offset, int length) {
+        if (length <= 0) {
+            return;
+        }
+        if (index < 0 || index + length > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Length: " + length + ", Size: " + size);
+        }
+        Node x = head;
+        int traversed = 0;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && traversed + x.span[i] <= index + 1) {
+                traversed += x.span[i];
+                x = x.next[i];
+            }
+        }
+        for (int i = 0; i < length; i++) {
+            keys[offset + i] = x.key;
+            x = x.next[0];
+        }
+    }
+
+    private static int randomLevel() {
+        int level = 1;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (level < MAX_LEVEL && (random.nextInt() & 3) == 0) {
+            level++;
+        }
+        return level;
+    }
+
+    private static final class Node {
+
+        private final long key;
+        private final Node[] next;
+        private final int[] span;
+
+        private Node(long key, int level) {
+            this.key = key;
+            next = new Node[level];
+            span = new int[level];
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.king.gamescores.util;
+
+/**
+ * Open addressing hash map from int keys to int values, with linear probing and no boxing. Keys and values are kept
+ * in two parallel arrays, a few bytes per entry instead of the node plus two {@link Integer} instances of a
+ * {@link java.util.HashMap}.
+ * <p>
+ * The key 0 is reserved to mark free slots, which is never a problem for the 31 bit unsigned ids of levels and users.
+ * Entries can be iterated without allocation through their slots: {@link #slots()}, {@link #keyAt(int)} and
+ * {@link #valueAt(int)}. This class is not thread-safe.
+ */
+public final class IntIntMap {
+
+    private static final int MIN_CAPACITY = 4;
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+
+    /**
+     * Constructs an empty {@link IntIntMap} able to hold the expected number of entries without resizing
+     *
+     * @param expectedSize the expected number of entries
+     */
+    public IntIntMap(int expectedSize) {
+        int capacity = capacityFor(expectedSize);
+        keys = new int[capacity];
+        values = new int[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the value of the given key
+     *
+     * @param key          the key, not 0
+     * @param defaultValue value returned if the key is not present
+     * @return the value of the key or the defaultValue if the key is not present
+     */
+    public int get(int key, int defaultValue) {
+        int slot = find(key);
+        return slot >= 0 ? values[slot] : defaultValue;
+    }
+
+    public boolean containsKey(int key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * Associates the value to the key, replacing any previous value
+     *
+     * @param key   the key, not 0
+     * @param value the value
+     */
+    public void put(int key, int value) {
+        checkKey(key);
+        int mask = keys.length - 1;
+        int slot = Hashing.mix(key) & mask;
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > keys.length * 3 / 4) {
+            resize(keys.length << 1);
+        }
+    }
+
+    /**
+     * Removes the key
+     *
+     * @param key the key, not 0
+     * @return true if the key was present
+     */
+    public boolean remove(int key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return false;
+        }
+        // Backward shift deletion keeps the probe sequences of the following keys unbroken
+        int mask = keys.length - 1;
+        int free = slot;
+        int next = (free + 1) & mask;
+        while (keys[next] != 0) {
+            int home = Hashing.mix(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                keys[free] = keys[next];
+                values[free] = values[next];
+                free = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[free] = 0;
+        values[free] = 0;
+        size--;
+        return true;
+    }
+
+    /**
+     * @return the number of slots, occupied or not
+     */
+    public int slots() {
+        return keys.length;
+    }
+
+    /**
+     * @param slot a slot between 0 and {@link #slots()}
+     * @return the key of the slot, 0 if the slot is free
+     */
+    public int keyAt(int slot) {
+        return keys[slot];
+    }
+
+    /**
+     * @param slot an occupied slot between 0 and {@link #slots()}
+     * @return the value of the slot
+     */
+    public int valueAt(int slot) {
+        return values[slot];
+    }
+
+    private int find(int key) {
+        checkKey(key);
+        int mask = keys.length - 1;
+        int slot = Hashing.mix(key) & mask;
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[capacity];
+        values = new int[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = Hashing.mix(oldKeys[i]) & mask;
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * 3 / 4 < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static void checkKey(int key) {
+        if (key == 0) {
+            throw new IllegalArgumentException("0 is not a valid key");
+        }
+    }
+}
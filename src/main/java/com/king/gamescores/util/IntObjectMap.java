@@ -0,0 +1,193 @@
+package com.king.gamescores.util;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map from int keys to objects, with linear probing and no boxing of the keys. Each entry costs
+ * an int and a reference in two parallel arrays instead of a node plus an {@link Integer} instance.
+ * <p>
+ * The key 0 is reserved to mark free slots, which is never a problem for the 31 bit unsigned ids of levels and users.
+ * This class is not thread-safe, but {@link #get(int)} never fails while racing with a writer, so it can be used under
+ * an optimistic read of a {@link java.util.concurrent.locks.StampedLock} validated afterwards.
+ *
+ * @param <V> the type of the values
+ */
+public final class IntObjectMap<V> {
+
+    private int[] keys;
+    private Object[] values;
+    private int size;
+
+    /**
+     * Constructs an empty {@link IntObjectMap} able to hold the expected number of entries without resizing
+     *
+     * @param expectedSize the expected number of entries
+     */
+    public IntObjectMap(int expectedSize) {
+        int capacity = IntIntMap.capacityFor(expectedSize);
+        keys = new int[capacity];
+        values = new Object[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the value of the given key
+     *
+     * @param key the key, not 0
+     * @return the value of the key or null if the key is not present
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        checkKey(key);
+        // Read through locals, a racing resize may replace the arrays, whose result is discarded by the caller
+        int[] keys = this.keys;
+        Object[] values = this.values;
+        int length = Math.min(keys.length, values.length);
+        int mask = length - 1;
+        int slot = Hashing.mix(key) & mask;
+        for (int probes = 0; probes < length && keys[slot] != 0; probes++) {
+            if (keys[slot] == key) {
+                return (V) values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Associates the value to the key, replacing any previous value
+     *
+     * @param key   the key, not 0
+     * @param value the value, not null
+     * @return the previous value of the key, null if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        checkKey(key);
+        int mask = keys.length - 1;
+        int slot = Hashing.mix(key) & mask;
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                V previous = (V) values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > keys.length * 3 / 4) {
+            resize(keys.length << 1);
+        }
+        return null;
+    }
+
+    /**
+     * Removes the key
+     *
+     * @param key the key, not 0
+     * @return the removed value, null if the key was not present
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return null;
+        }
+        V removed = (V) values[slot];
+        // Backward shift deletion keeps the probe sequences of the following keys unbroken
+        int mask = keys.length - 1;
+        int free = slot;
+        int next = (free + 1) & mask;
+        while (keys[next] != 0) {
+            int home = Hashing.mix(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                keys[free] = keys[next];
+                values[free] = values[next];
+                free = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[free] = 0;
+        values[free] = null;
+        size--;
+        return removed;
+    }
+
+    /**
+     * Removes every key, keeping the current capacity
+     */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * @return the number of slots, occupied or not
+     */
+    public int slots() {
+        return keys.length;
+    }
+
+    /**
+     * @param slot a slot between 0 and {@link #slots()}
+     * @return the key of the slot, 0 if the slot is free
+     */
+    public int keyAt(int slot) {
+        return keys[slot];
+    }
+
+    /**
+     * @param slot a slot between 0 and {@link #slots()}
+     * @return the value of the slot, null if the slot is free
+     */
+    @SuppressWarnings("unchecked")
+    public V valueAt(int slot) {
+        return (V) values[slot];
+    }
+
+    private int find(int key) {
+        checkKey(key);
+        int mask = keys.length - 1;
+        int slot = Hashing.mix(key) & mask;
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new int[capacity];
+        values = new Object[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = Hashing.mix(oldKeys[i]) & mask;
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static void checkKey(int key) {
+        if (key == 0) {
+            throw new IllegalArgumentException("0 is not a valid key");
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.king.gamescores.util;
 
 import java.util.logging.Logger;
 
+import static java.util.logging.Level.FINE;
 import static java.util.logging.Level.SEVERE;
 
 /**
@@ -13,6 +14,11 @@ public final class ParamsValidator {
 
     public static final String SESSION_KEY = "sessionkey";
 
+    /**
+     * The result of parsing an invalid number
+     */
+    public static final int INVALID = -1;
+
     private static final String ERR_IS_NOT_NUMERIC = "'%s' must be a 31 bit unsigned integer number";
     private static final String ERR_SESSION_KEY_NOT_PROVIDED = SESSION_KEY + " has not been provided";
 
@@ -26,17 +32,45 @@ public final class ParamsValidator {
      * @return true if the given string is a valid numeric value
      */
     public static boolean isNumeric(String string) {
-        try {
-            int integer = Integer.parseInt(string);
-            if (integer < 1) {
-                LOG.log(SEVERE, String.format(ERR_IS_NOT_NUMERIC, string));
-                return false;
+        return parseNumber(string) != INVALID;
+    }
+
+    /**
+     * Parses a 31 bit unsigned integer number, greater than 0
+     *
+     * @param string the number, may be null
+     * @return the number, {@link #INVALID} if the string is not a valid one
+     */
+    public static int parseNumber(String string) {
+        int number = string == null ? INVALID : parseNumber(string, 0, string.length());
+        if (number == INVALID && LOG.isLoggable(FINE)) {
+            LOG.log(FINE, String.format(ERR_IS_NOT_NUMERIC, string));
+        }
+        return number;
+    }
+
+    /**
+     * Parses a 31 bit unsigned integer number, greater than 0, out of a region of a string, digit by digit without the
+     * NumberFormatException of {@link Integer#parseInt(String)}
+     *
+     * @param chars the characters holding the number
+     * @param start position of the first digit
+     * @param end   position after the last digit
+     * @return the number, {@link #INVALID} if the region is not a valid one
+     */
+    public static int parseNumber(CharSequence chars, int start, int end) {
+        if (start >= end) {
+            return INVALID;
+        }
+        int number = 0;
+        for (int i = start; i < end; i++) {
+            int digit = chars.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || number > (Integer.MAX_VALUE - digit) / 10) {
+                return INVALID;
             }
-        } catch (NumberFormatException e) {
-            LOG.log(SEVERE, String.format(ERR_IS_NOT_NUMERIC, string));
-            return false;
+            number = number * 10 + digit;
         }
-        return true;
+        return number == 0 ? INVALID : number;
     }
 
     /**
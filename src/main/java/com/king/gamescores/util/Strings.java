@@ -37,4 +37,36 @@ public final class Strings {
     public static boolean isNotEmpty(CharSequence str) {
         return str != null && str.length() > 0;
     }
+
+    /**
+     * Returns the number of decimal digits of a non negative number
+     *
+     * @param value the number
+     * @return its number of digits
+     */
+    public static int digits(int value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    /**
+     * Writes the ASCII decimal digits of a non negative number into a byte array, without any intermediate String
+     *
+     * @param value    the number
+     * @param bytes    the destination, with room for {@link #digits(int)} bytes at the position
+     * @param position where the first digit is written
+     * @return the position after the last digit
+     */
+    public static int writeDigits(int value, byte[] bytes, int position) {
+        int end = position + digits(value);
+        for (int i = end - 1; i >= position; i--) {
+            bytes[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return end;
+    }
 }
@@ -0,0 +1,35 @@
+package com.king.gamescores.handler;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class CompressionTest {
+
+    @Test
+    public void acceptsGzip() {
+        assertTrue(Compression.accepts(Collections.singletonList("gzip")));
+        assertTrue(Compression.accepts(Collections.singletonList("deflate, GZIP;q=0.5, br")));
+        assertTrue(Compression.accepts(Collections.singletonList("*")));
+        assertTrue(Compression.accepts(Arrays.asList("br", "gzip")));
+    }
+
+    @Test
+    public void refusesGzip() {
+        assertFalse(Compression.accepts(null));
+        assertFalse(Compression.accepts(Collections.singletonList("")));
+        assertFalse(Compression.accepts(Collections.singletonList("deflate, br")));
+        assertFalse(Compression.accepts(Collections.singletonList("gzip;q=0")));
+        assertFalse(Compression.accepts(Collections.singletonList("gzip; q=0.000, *")));
+        assertFalse(Compression.accepts(Collections.singletonList("*;q=0")));
+        assertFalse(Compression.accepts(Collections.singletonList("x-gzip")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeThresholdShouldFail() {
+        new Compression(-1);
+    }
+}
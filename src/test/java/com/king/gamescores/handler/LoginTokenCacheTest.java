@@ -0,0 +1,32 @@
+package com.king.gamescores.handler;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LoginTokenCacheTest {
+
+    private static final long NOW = 1_000_000L;
+
+    private final LoginTokenCache cache = new LoginTokenCache(16);
+
+    @Test
+    public void cachedTokenIsReturnedUntilItsReusePeriodEnds() {
+        cache.put(1, "token", NOW + 1000);
+
+        assertEquals("token", cache.get(1, NOW));
+        assertEquals("token", cache.get(1, NOW + 999));
+        assertNull(cache.get(1, NOW + 1000));
+        assertNull(cache.get(2, NOW));
+    }
+
+    @Test
+    public void tokenReplacesTheOneInItsSlot() {
+        LoginTokenCache single = new LoginTokenCache(1);
+        single.put(1, "first", NOW + 1000);
+        single.put(2, "second", NOW + 1000);
+
+        assertNull(single.get(1, NOW));
+        assertEquals("second", single.get(2, NOW));
+    }
+}
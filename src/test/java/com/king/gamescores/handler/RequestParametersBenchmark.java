@@ -0,0 +1,93 @@
+package com.king.gamescores.handler;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Single thread benchmark of the parameter extraction of POST /&lt;levelid&gt;/score, comparing the former
+ * ParameterFilter, reproduced here (a map per request, regular expression splits, every pair URL-decoded, the body read
+ * through a BufferedReader), against {@link RequestParameters}. Prints the throughput and the bytes allocated per
+ * request, measured with the allocation counter of the thread. Not a unit test, run its main method.
+ */
+public class RequestParametersBenchmark {
+
+    private static final String QUERY = "sessionkey=AAAAAQAAAGQAAAGSxWxo2KeP_V1Tn5cR";
+    private static final byte[] BODY = "1500".getBytes(StandardCharsets.US_ASCII);
+    private static final int WARMUP_ITERATIONS = 500000;
+    private static final int ITERATIONS = 2000000;
+
+    private static long sink;
+
+    public static void main(String[] args) throws IOException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+
+        for (int round = 0; round < 2; round++) {
+            int iterations = round == 0 ? WARMUP_ITERATIONS : ITERATIONS;
+
+            long allocated = threads.getThreadAllocatedBytes(thread);
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                Map<String, Object> parameters = filter(QUERY, new ByteArrayInputStream(BODY));
+                sink += ((String) parameters.get("sessionkey")).length()
+                        + Integer.parseInt((String) parameters.get("score"));
+            }
+            long filterNanos = System.nanoTime() - start;
+            long filterBytes = threads.getThreadAllocatedBytes(thread) - allocated;
+
+            allocated = threads.getThreadAllocatedBytes(thread);
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                sink += RequestParameters.query(QUERY, "sessionkey").length()
+                        + RequestParameters.readNumber(new ByteArrayInputStream(BODY));
+            }
+            long lazyNanos = System.nanoTime() - start;
+            long lazyBytes = threads.getThreadAllocatedBytes(thread) - allocated;
+
+            if (round > 0) {
+                System.out.printf("ParameterFilter:   %,d requests/s, %,d bytes/request%n",
+                        iterations * 1_000_000_000L / filterNanos, filterBytes / iterations);
+                System.out.printf("RequestParameters: %,d requests/s, %,d bytes/request%n",
+                        iterations * 1_000_000_000L / lazyNanos, lazyBytes / iterations);
+            }
+        }
+        System.out.println(sink == 0 ? "" : "done");
+    }
+
+    private static Map<String, Object> filter(String query, InputStream body) throws IOException {
+        Map<String, Object> parameters = new ConcurrentHashMap<>();
+        parse(query, parameters);
+        String line;
+        try (InputStreamReader isr = new InputStreamReader(body, StandardCharsets.UTF_8)) {
+            line = new BufferedReader(isr).readLine();
+        }
+        parse(line, parameters);
+        return parameters;
+    }
+
+    private static void parse(String query, Map<String, Object> parameters) throws IOException {
+        for (String pair : query.split("[&]")) {
+            String[] param = pair.split("[=]");
+            String key;
+            String value;
+            if (param.length == 1) {
+                key = URLDecoder.decode("score", "UTF-8");
+                value = URLDecoder.decode(param[0], "UTF-8");
+            } else {
+                key = URLDecoder.decode(param[0], "UTF-8");
+                value = URLDecoder.decode(param[1], "UTF-8");
+            }
+            if (!key.isEmpty() && !value.isEmpty() && !parameters.containsKey(key)) {
+                parameters.put(key, value);
+            }
+        }
+    }
+}
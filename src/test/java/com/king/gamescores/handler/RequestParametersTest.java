@@ -0,0 +1,64 @@
+package com.king.gamescores.handler;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static com.king.gamescores.util.ParamsValidator.INVALID;
+import static org.junit.Assert.*;
+
+public class RequestParametersTest {
+
+    @Test
+    public void findsTheParameter() {
+        assertEquals("abc", RequestParameters.query("sessionkey=abc", "sessionkey"));
+        assertEquals("abc", RequestParameters.query("around=3&sessionkey=abc&x=1", "sessionkey"));
+        assertEquals("3", RequestParameters.query("around=3&sessionkey=abc", "around"));
+        assertEquals("first", RequestParameters.query("sessionkey=first&sessionkey=second", "sessionkey"));
+    }
+
+    @Test
+    public void matchesTheWholeName() {
+        assertNull(RequestParameters.query("sessionkeyWrong=abc", "sessionkey"));
+        assertNull(RequestParameters.query("xsessionkey=abc", "sessionkey"));
+        assertNull(RequestParameters.query("sessionkey", "sessionkey"));
+        assertEquals("abc", RequestParameters.query("sessionkeyWrong=x&sessionkey=abc", "sessionkey"));
+    }
+
+    @Test
+    public void missingOrEmptyValuesAreNull() {
+        assertNull(RequestParameters.query((String) null, "sessionkey"));
+        assertNull(RequestParameters.query("", "sessionkey"));
+        assertNull(RequestParameters.query("sessionkey=", "sessionkey"));
+        assertNull(RequestParameters.query("sessionkey=&around=1", "sessionkey"));
+    }
+
+    @Test
+    public void decodesOnlyEncodedValues() {
+        assertEquals("1,2,3", RequestParameters.query("levels=1%2C2%2C3", "levels"));
+        assertEquals("a b", RequestParameters.query("q=a+b", "q"));
+        assertNull(RequestParameters.query("q=%zz", "q"));
+    }
+
+    @Test
+    public void readsTheNumberOfTheBody() throws IOException {
+        assertEquals(1500, RequestParameters.readNumber(body("1500")));
+        assertEquals(1500, RequestParameters.readNumber(body("1500\n")));
+        assertEquals(1500, RequestParameters.readNumber(body("1500\r\n")));
+        assertEquals(Integer.MAX_VALUE, RequestParameters.readNumber(body("2147483647")));
+    }
+
+    @Test
+    public void invalidBodiesShouldFail() throws IOException {
+        String[] bodies = {"", "0", "-1", "15a", "1500\n2", "2147483648", "99999999999", " 1500", "score"};
+        for (String body : bodies) {
+            assertEquals(body, INVALID, RequestParameters.readNumber(body(body)));
+        }
+    }
+
+    private static ByteArrayInputStream body(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.US_ASCII));
+    }
+}
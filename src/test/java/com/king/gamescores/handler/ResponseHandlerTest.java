@@ -0,0 +1,26 @@
+package com.king.gamescores.handler;
+
+import org.junit.Test;
+
+import static java.net.HttpURLConnection.HTTP_BAD_REQUEST;
+import static java.net.HttpURLConnection.HTTP_UNAVAILABLE;
+import static org.junit.Assert.*;
+
+public class ResponseHandlerTest {
+
+    @Test
+    public void usualCodesAreShared() {
+        assertSame(ResponseHandler.code(HTTP_BAD_REQUEST), ResponseHandler.code(HTTP_BAD_REQUEST));
+        assertNotSame(ResponseHandler.code(418), ResponseHandler.code(418));
+    }
+
+    @Test
+    public void sharedResponsesAreNotModified() {
+        ResponseHandler shared = ResponseHandler.code(HTTP_UNAVAILABLE);
+
+        assertNotSame(shared, shared.header("Retry-After", "1"));
+        assertNotSame(shared, shared.response("body"));
+        assertSame(shared, shared.response((String) null));
+        assertSame(shared, ResponseHandler.code(HTTP_UNAVAILABLE));
+    }
+}
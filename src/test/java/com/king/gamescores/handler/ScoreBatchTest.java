@@ -0,0 +1,61 @@
+package com.king.gamescores.handler;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class ScoreBatchTest {
+
+    private static final int USER_ID = 7;
+
+    @Test
+    public void readAndGroupByLevel() throws IOException {
+        ScoreBatch batch = read("2,100\r\n1,5,300\n\n2,6,200\n1,50", 10, true);
+
+        assertEquals(4, batch.lines());
+        assertEquals(4, batch.size());
+        assertEquals("1111", new String(batch.statuses(), StandardCharsets.US_ASCII));
+
+        batch.groupByLevel();
+
+        assertArrayEquals(new int[]{1, 1, 2, 2}, new int[]{batch.levelAt(0), batch.levelAt(1), batch.levelAt(2),
+                batch.levelAt(3)});
+        assertArrayEquals(new int[]{5, USER_ID, USER_ID, 6}, batch.userIds());
+        assertArrayEquals(new int[]{300, 50, 100, 200}, batch.scores());
+    }
+
+    @Test
+    public void malformedLinesAreRejected() throws IOException {
+        ScoreBatch batch = read("1,100\nabc\n0,100\n1\n1,2,3,4\n1,,3\n1,2147483648\n1,2147483647\n2,", 20, true);
+
+        assertEquals("100000010", new String(batch.statuses(), StandardCharsets.US_ASCII));
+        assertEquals(2, batch.size());
+    }
+
+    @Test
+    public void otherUsersLinesOfUntrustedSubmitterAreRejected() throws IOException {
+        ScoreBatch batch = read("1,100\n1,5,300\n2,7,200", 10, false);
+
+        assertEquals("100", new String(batch.statuses(), StandardCharsets.US_ASCII));
+        assertEquals(1, batch.size());
+        assertEquals(USER_ID, batch.userIds()[0]);
+    }
+
+    @Test
+    public void tooManyLinesShouldFail() throws IOException {
+        ScoreBatch batch = new ScoreBatch(2);
+
+        assertFalse(batch.read(new ByteArrayInputStream("1,1\n1,2\n1,3\n".getBytes(StandardCharsets.US_ASCII)),
+                USER_ID, false));
+    }
+
+    private ScoreBatch read(String body, int maxLines, boolean trusted) throws IOException {
+        ScoreBatch batch = new ScoreBatch(maxLines);
+        assertTrue(batch.read(new ByteArrayInputStream(body.getBytes(StandardCharsets.US_ASCII)), USER_ID, trusted));
+        return batch;
+    }
+}
@@ -50,4 +50,17 @@ public class PropertiesManagerTest {
     public void getPropertyLongNotDefinedShouldFail() {
         propertyLoader.getLong("scores.wromgproperty");
     }
+
+    @Test
+    public void getOptionalPropertyNotDefinedReturnsDefault() {
+        assertEquals("default", propertyLoader.getString("scores.wromgproperty", "default"));
+        assertEquals(7, propertyLoader.getInt("scores.wromgproperty", 7));
+        assertEquals(7L, propertyLoader.getLong("scores.wromgproperty", 7L));
+    }
+
+    @Test
+    public void getOptionalPropertyDefined() {
+        assertEquals("changeit", propertyLoader.getString("scores.secretKey", "default"));
+        assertEquals(propertyLoader.getInt("scores.maxScoresPerLevel"), propertyLoader.getInt("scores.maxScoresPerLevel", 7));
+    }
 }
@@ -0,0 +1,45 @@
+package com.king.gamescores.server;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ExecutorModeTest {
+
+    @Test
+    public void boundedWithoutQueueRefusesWhenWorkersAreBusy() throws InterruptedException {
+        AtomicInteger rejected = new AtomicInteger();
+        ExecutorService executor = ExecutorMode.BOUNDED.create(1, 0, (task, pool) -> rejected.incrementAndGet());
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            executor.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            executor.execute(() -> {
+            });
+
+            assertEquals(1, rejected.get());
+            assertEquals(0, ((ThreadPoolExecutor) executor).getQueue().size());
+        } finally {
+            release.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void boundedWithNegativeQueueShouldFail() {
+        ExecutorMode.BOUNDED.create(1, -1, (task, pool) -> {
+        });
+    }
+}
@@ -0,0 +1,107 @@
+package com.king.gamescores.server;
+
+import com.king.gamescores.handler.HighScoreHandler;
+import com.king.gamescores.service.PackedScoresService;
+import com.king.gamescores.service.ScoresService;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.LogManager;
+
+/**
+ * Throughput of GET /&lt;level&gt;/highscorelist over keep-alive connections, each client thread pipelining
+ * {@value #PIPELINE} requests at a time, against both transports. Not a unit test, run its main method.
+ */
+public class NioHttpServerBenchmark {
+
+    private static final int PORT = 8084;
+    private static final int CLIENTS = 16;
+    private static final int PIPELINE = 16;
+    private static final long DURATION_MS = 5000;
+    private static final byte[] REQUEST = "GET /1/highscorelist HTTP/1.1\r\nHost: localhost\r\n\r\n"
+            .getBytes(StandardCharsets.US_ASCII);
+
+    public static void main(String[] args) throws Exception {
+        // Logging every request would be measured instead of the transports
+        LogManager.getLogManager().reset();
+        ScoresService scoresService = new PackedScoresService(5);
+        for (int userId = 1; userId <= 5; userId++) {
+            scoresService.registerScore(1, userId, userId * 100);
+        }
+        int workers = Runtime.getRuntime().availableProcessors();
+        for (Transport transport : Transport.values()) {
+            ScoresServer server = ScoresServer.start(PORT, workers, transport)
+                    .highScoreHandler(new HighScoreHandler(scoresService));
+            try {
+                run(transport, 1);
+                run(transport, PIPELINE);
+            } finally {
+                server.stopServer(0);
+            }
+        }
+    }
+
+    private static void run(Transport transport, int pipeline) throws Exception {
+        int responseLength = responseLength();
+        AtomicLong responses = new AtomicLong();
+        long end = System.currentTimeMillis() + DURATION_MS;
+        Thread[] clients = new Thread[CLIENTS];
+        for (int i = 0; i < CLIENTS; i++) {
+            clients[i] = new Thread(() -> {
+                byte[] requests = new byte[REQUEST.length * pipeline];
+                for (int j = 0; j < pipeline; j++) {
+                    System.arraycopy(REQUEST, 0, requests, j * REQUEST.length, REQUEST.length);
+                }
+                byte[] buffer = new byte[responseLength * pipeline];
+                try (Socket socket = new Socket("localhost", PORT)) {
+                    socket.setTcpNoDelay(true);
+                    OutputStream out = socket.getOutputStream();
+                    DataInputStream in = new DataInputStream(socket.getInputStream());
+                    while (System.currentTimeMillis() < end) {
+                        out.write(requests);
+                        in.readFully(buffer);
+                        responses.addAndGet(pipeline);
+                    }
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            clients[i].start();
+        }
+        for (Thread client : clients) {
+            client.join();
+        }
+        System.out.printf("%-10s pipeline %2d: %,d requests/s%n", transport, pipeline,
+                responses.get() * 1000 / DURATION_MS);
+    }
+
+    /**
+     * @return the length of a whole response, read until its body with a connection closed by the server
+     */
+    private static int responseLength() throws IOException {
+        try (Socket socket = new Socket("localhost", PORT)) {
+            socket.getOutputStream().write("GET /1/highscorelist HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n"
+                    .getBytes(StandardCharsets.US_ASCII));
+            InputStream in = socket.getInputStream();
+            String response = new String(readAll(in), StandardCharsets.US_ASCII);
+            // The same response without the Connection: close header
+            return response.replace("Connection: close\r\n", "").length();
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            bytes.write(buffer, 0, read);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,245 @@
+package com.king.gamescores.server;
+
+import com.king.gamescores.handler.BatchScoreHandler;
+import com.king.gamescores.handler.HighScoreHandler;
+import com.king.gamescores.handler.LoginHandler;
+import com.king.gamescores.handler.ScoreHandler;
+import com.king.gamescores.service.PackedScoresService;
+import com.king.gamescores.service.ScoresService;
+import com.king.gamescores.service.SessionKeyService;
+import com.sun.net.httpserver.HttpExchange;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.king.gamescores.server.HttpMethod.GET;
+import static com.king.gamescores.server.HttpMethod.POST;
+import static java.net.HttpURLConnection.*;
+import static org.junit.Assert.*;
+
+public class NioHttpServerTest {
+
+    private static final int PORT = 8083;
+    private static final String BASE_URL = String.format("http://localhost:%d", PORT);
+    private static final int USER_ID = 3;
+    private static final String TOKEN = "token";
+
+    private final SessionKeyService sessionKeyService = new SessionKeyService() {
+        public String generateSessionKey(int userId) {
+            return TOKEN;
+        }
+
+        public int getUserIdFromSessionKey(String sessionKey) {
+            return USER_ID;
+        }
+
+        public boolean isSessionKeyValid(String sessionKey) {
+            return true;
+        }
+    };
+
+    private final ScoresService scoresService = new PackedScoresService(5);
+
+    private ScoresServer scoresServer;
+
+    @Before
+    public void setUp() throws IOException {
+        scoresServer = ScoresServer.start(PORT, 2, Transport.NIO)
+                .loginHandler(new LoginHandler(sessionKeyService))
+                .scoreHandler(new ScoreHandler(sessionKeyService, scoresService))
+                .highScoreHandler(new HighScoreHandler(scoresService))
+                .batchScoreHandler(new BatchScoreHandler(sessionKeyService, scoresService, new int[]{USER_ID}));
+    }
+
+    @After
+    public void tierDown() {
+        scoresServer.stopServer(0);
+    }
+
+    @Test
+    public void loginScoreAndHighScoreList() throws IOException {
+        HttpURLConnection conn = open("/%d/login", USER_ID);
+        assertEquals(HTTP_OK, conn.getResponseCode());
+        assertEquals(TOKEN, read(conn.getInputStream()));
+
+        conn = open("/%d/score?sessionkey=%s", 2, TOKEN);
+        conn.setRequestMethod(POST.toString());
+        conn.setDoOutput(true);
+        try (OutputStream out = conn.getOutputStream()) {
+            out.write("1500".getBytes(StandardCharsets.UTF_8));
+        }
+        assertEquals(HTTP_OK, conn.getResponseCode());
+
+        conn = open("/%d/highscorelist", 2);
+        assertEquals(HTTP_OK, conn.getResponseCode());
+        assertEquals("3=1500", read(conn.getInputStream()));
+    }
+
+    @Test
+    public void batchScores() throws IOException {
+        HttpURLConnection conn = open("/scores?sessionkey=%s", TOKEN);
+        conn.setRequestMethod(POST.toString());
+        conn.setDoOutput(true);
+        try (OutputStream out = conn.getOutputStream()) {
+            out.write("4,10,100\n4,11,200\nwrong\n".getBytes(StandardCharsets.UTF_8));
+        }
+        assertEquals(HTTP_OK, conn.getResponseCode());
+        assertEquals("110", read(conn.getInputStream()));
+
+        conn = open("/%d/highscorelist", 4);
+        assertEquals("11=200,10=100", read(conn.getInputStream()));
+    }
+
+    @Test
+    public void wrongMethodAndPathShouldFail() throws IOException {
+        HttpURLConnection conn = open("/%d/login", USER_ID);
+        conn.setRequestMethod(POST.toString());
+        assertEquals(HTTP_BAD_METHOD, conn.getResponseCode());
+
+        assertEquals(HTTP_BAD_REQUEST, open("/%d/log", USER_ID).getResponseCode());
+    }
+
+    @Test
+    public void pipelinedRequestsAreAnsweredInOrder() throws IOException {
+        scoresService.registerScore(7, 1, 10);
+        try (Socket socket = new Socket("localhost", PORT)) {
+            String requests = "GET /7/highscorelist HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                    + "POST /7/score?sessionkey=token HTTP/1.1\r\nHost: localhost\r\nContent-Length: 2\r\n\r\n20"
+                    + "GET /7/highscorelist HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n";
+            socket.getOutputStream().write(requests.getBytes(StandardCharsets.US_ASCII));
+
+            String responses = read(socket.getInputStream());
+
+            int first = responses.indexOf("HTTP/1.1 200 OK");
+            int second = responses.indexOf("HTTP/1.1 200 OK", first + 1);
+            int third = responses.indexOf("HTTP/1.1 200 OK", second + 1);
+            assertTrue(first == 0 && second > 0 && third > 0);
+            assertTrue(responses.substring(first, second).endsWith("\r\n\r\n1=10"));
+            assertTrue(responses.substring(third).contains("Connection: close"));
+            assertTrue(responses.substring(third).endsWith("\r\n\r\n3=20,1=10"));
+        }
+    }
+
+    @Test
+    public void blockingHandlerDoesNotStallItsEventLoop() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        scoresServer.highScoreHandler(new HighScoreHandler(scoresService) {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                if (exchange.getRequestURI().getPath().startsWith("/9/")) {
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                super.handle(exchange);
+            }
+        });
+        // The connections are handed round-robin to the 2 event loops, the first and the third share one
+        try (Socket blocked = new Socket("localhost", PORT);
+             Socket other = new Socket("localhost", PORT);
+             Socket sameLoop = new Socket("localhost", PORT)) {
+            blocked.getOutputStream().write("GET /9/highscorelist HTTP/1.1\r\nConnection: close\r\n\r\n"
+                    .getBytes(StandardCharsets.US_ASCII));
+            sameLoop.getOutputStream().write("GET /1/highscorelist HTTP/1.1\r\nConnection: close\r\n\r\n"
+                    .getBytes(StandardCharsets.US_ASCII));
+            other.getOutputStream().write("GET /2/highscorelist HTTP/1.1\r\nConnection: close\r\n\r\n"
+                    .getBytes(StandardCharsets.US_ASCII));
+            sameLoop.setSoTimeout(2000);
+            other.setSoTimeout(2000);
+
+            assertTrue(read(sameLoop.getInputStream()).startsWith("HTTP/1.1 200 OK"));
+            assertTrue(read(other.getInputStream()).startsWith("HTTP/1.1 200 OK"));
+
+            release.countDown();
+            assertTrue(read(blocked.getInputStream()).startsWith("HTTP/1.1 200 OK"));
+        }
+    }
+
+    @Test
+    public void malformedRequestShouldFail() throws IOException {
+        try (Socket socket = new Socket("localhost", PORT)) {
+            socket.getOutputStream().write("nonsense\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+
+            assertTrue(read(socket.getInputStream()).startsWith("HTTP/1.1 400 Bad Request"));
+        }
+    }
+
+    @Test
+    public void chunkedBodyIsDecoded() throws IOException {
+        try (Socket socket = new Socket("localhost", PORT)) {
+            String request = "POST /scores?sessionkey=token HTTP/1.1\r\nTransfer-Encoding: chunked\r\n"
+                    + "Connection: close\r\n\r\n"
+                    + "9;name=value\r\n4,10,100\n\r\n"
+                    + "A\r\n4,11,200\nw\r\n5 \r\nrong\n\r\n"
+                    + "0\r\nTrailer: ignored\r\n\r\n";
+            socket.getOutputStream().write(request.getBytes(StandardCharsets.US_ASCII));
+
+            String response = read(socket.getInputStream());
+
+            assertTrue(response.startsWith("HTTP/1.1 200 OK"));
+            assertTrue(response.endsWith("\r\n\r\n110"));
+        }
+        assertEquals("11=200,10=100", read(open("/%d/highscorelist", 4).getInputStream()));
+    }
+
+    @Test
+    public void malformedChunkShouldFail() throws IOException {
+        try (Socket socket = new Socket("localhost", PORT)) {
+            socket.getOutputStream().write(("POST /scores?sessionkey=token HTTP/1.1\r\nTransfer-Encoding: chunked\r\n"
+                    + "\r\nzz\r\n4,10,100\n\r\n0\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+
+            assertTrue(read(socket.getInputStream()).startsWith("HTTP/1.1 400 Bad Request"));
+        }
+    }
+
+    @Test
+    public void expectedBodyIsAskedFor() throws IOException {
+        try (Socket socket = new Socket("localhost", PORT)) {
+            socket.setSoTimeout(2000);
+            socket.getOutputStream().write(("POST /8/score?sessionkey=token HTTP/1.1\r\nContent-Length: 2\r\n"
+                    + "Expect: 100-continue\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            String interim = "HTTP/1.1 100 Continue\r\n\r\n";
+            byte[] received = new byte[interim.length()];
+            int length = 0;
+            for (int read; length < received.length
+                    && (read = socket.getInputStream().read(received, length, received.length - length)) > 0; ) {
+                length += read;
+            }
+            assertEquals(interim, new String(received, 0, length, StandardCharsets.US_ASCII));
+
+            socket.getOutputStream().write("30".getBytes(StandardCharsets.US_ASCII));
+
+            assertTrue(read(socket.getInputStream()).startsWith("HTTP/1.1 200 OK"));
+        }
+        assertEquals("3=30", read(open("/%d/highscorelist", 8).getInputStream()));
+    }
+
+    private HttpURLConnection open(String path, Object... args) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL(BASE_URL + String.format(path, args)).openConnection();
+        conn.setRequestMethod(GET.toString());
+        return conn;
+    }
+
+    private String read(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            bytes.write(buffer, 0, read);
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
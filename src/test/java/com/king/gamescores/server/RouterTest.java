@@ -0,0 +1,64 @@
+package com.king.gamescores.server;
+
+import org.junit.Test;
+
+import static com.king.gamescores.util.ParamsValidator.INVALID;
+import static org.junit.Assert.*;
+
+public class RouterTest {
+
+    @Test
+    public void routesTheEndpoints() {
+        assertRoute(Route.LOGIN, 0, 3, "/3/login");
+        assertRoute(Route.SCORE, 7, 0, "/7/score");
+        assertRoute(Route.HIGH_SCORE_LIST, 12, 0, "/12/highscorelist");
+        assertRoute(Route.RANK, 2, 45, "/2/rank/45");
+        assertRoute(Route.MULTI_HIGH_SCORE_LIST, 0, 0, "/highscorelist");
+        assertRoute(Route.LOGOUT, 0, 0, "/logout");
+        assertRoute(Route.BATCH_SCORE, 0, 0, "/scores");
+    }
+
+    @Test
+    public void ignoresTrailingSlashes() {
+        assertRoute(Route.LOGIN, 0, 3, "/3/login/");
+        assertRoute(Route.RANK, 2, 45, "/2/rank/45//");
+        assertRoute(Route.BATCH_SCORE, 0, 0, "/scores/");
+    }
+
+    @Test
+    public void invalidIdsKeepTheirRoute() {
+        assertRoute(Route.LOGIN, 0, INVALID, "/abc/login");
+        assertRoute(Route.HIGH_SCORE_LIST, INVALID, 0, "/-2/highscorelist");
+        assertRoute(Route.SCORE, INVALID, 0, "/0/score");
+        assertRoute(Route.SCORE, INVALID, 0, "/2147483648/score");
+        assertRoute(Route.SCORE, Integer.MAX_VALUE, 0, "/2147483647/score");
+        assertRoute(Route.RANK, 1, INVALID, "/1/rank/+2");
+        assertFalse(Router.route("/1/rank/x").hasValidIds());
+        assertTrue(Router.route("/1/rank/2").hasValidIds());
+    }
+
+    @Test
+    public void unknownPathsShouldFail() {
+        String[] paths = {null, "", "/", "//", "login", "/login", "/3/logins", "/3/scor", "/3/login/x", "/1//login",
+                "/1/rank", "/1/rank/2/3", "/1/ranked/2", "/highscorelists", "/scores/batch", "/../etc/passwd"};
+        for (String path : paths) {
+            assertEquals(path, Route.UNKNOWN, Router.route(path).getRoute());
+        }
+    }
+
+    @Test
+    public void resolvesTheMethodsWithoutExceptions() {
+        assertEquals(HttpMethod.GET, HttpMethod.of("GET"));
+        assertEquals(HttpMethod.POST, HttpMethod.of("POST"));
+        assertNull(HttpMethod.of("get"));
+        assertNull(HttpMethod.of("PROPFIND"));
+        assertNull(HttpMethod.of(null));
+    }
+
+    private static void assertRoute(Route route, int level, int userId, String path) {
+        RequestContext context = Router.route(path);
+        assertEquals(path, route, context.getRoute());
+        assertEquals(path, level, context.getLevel());
+        assertEquals(path, userId, context.getUserId());
+    }
+}
@@ -1,24 +1,40 @@
 package com.king.gamescores.server;
 
+import com.king.gamescores.handler.BatchScoreHandler;
 import com.king.gamescores.handler.HighScoreHandler;
 import com.king.gamescores.handler.LoginHandler;
+import com.king.gamescores.handler.LogoutHandler;
+import com.king.gamescores.handler.MultiHighScoreHandler;
+import com.king.gamescores.handler.RankHandler;
 import com.king.gamescores.handler.ScoreHandler;
 import com.king.gamescores.log.ScoresLogger;
 import com.king.gamescores.service.DefaultScoresService;
+import com.king.gamescores.service.PackedScoresService;
 import com.king.gamescores.service.ScoresService;
 import com.king.gamescores.service.SessionKeyService;
+import com.king.gamescores.service.TokenSessionKeyService;
 import com.king.gamescores.util.Strings;
 import org.junit.After;
 import org.junit.Test;
 
+import javax.management.JMX;
+import javax.management.ObjectName;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.security.SignatureException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -63,6 +79,14 @@ public class ScoresServerTest {
         public boolean isSessionKeyValid(String sessionKey) {
             return true;
         }
+
+        public boolean revokeSessionKey(String sessionKey) {
+            return EXPECTED_TOKEN.equals(sessionKey);
+        }
+
+        public boolean isRevocable() {
+            return true;
+        }
     };
 
     // Mock ScoresService
@@ -92,6 +116,19 @@ public class ScoresServerTest {
         assertFalse(Strings.isNotEmpty(response));
     }
 
+    @Test
+    public void loginUnknownMethodShouldFail() throws IOException {
+        scoresServer = ScoresServer.start(PORT, 1).loginHandler(new LoginHandler(sessionKeyService));
+        URL url = new URL(String.format(BASE_URL.concat("/%s/login"), EXPECTED_USER_ID));
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        conn.setRequestMethod("DELETE");
+
+        conn.connect();
+        int responseCode = conn.getResponseCode();
+
+        assertEquals(HTTP_BAD_METHOD, responseCode);
+    }
+
     @Test
     public void loginNotGetMethodShouldFail() throws IOException {
         scoresServer = ScoresServer.start(PORT, 1).loginHandler(new LoginHandler(sessionKeyService));
@@ -153,6 +190,87 @@ public class ScoresServerTest {
         assertEquals(EXPECTED_TOKEN, token);
     }
 
+    @Test
+    public void loginReusesTheSessionKeyOfTheUser() throws IOException {
+        SessionKeyService counting = new SessionKeyService() {
+            private int issued;
+
+            public synchronized String generateSessionKey(int userId) {
+                return userId + "-" + ++issued;
+            }
+
+            public int getUserIdFromSessionKey(String sessionKey) {
+                return EXPECTED_USER_ID;
+            }
+
+            public boolean isSessionKeyValid(String sessionKey) {
+                return true;
+            }
+        };
+        scoresServer = ScoresServer.start(PORT, 1).loginHandler(new LoginHandler(counting, 60000, 50, 16));
+
+        String first = login(EXPECTED_USER_ID);
+        String second = login(EXPECTED_USER_ID);
+        String other = login(EXPECTED_USER_ID + 1);
+
+        assertEquals(EXPECTED_USER_ID + "-1", first);
+        assertEquals(first, second);
+        assertEquals((EXPECTED_USER_ID + 1) + "-2", other);
+    }
+
+    @Test
+    public void logoutSuccessful() throws IOException {
+        scoresServer = ScoresServer.start(PORT, 1).logoutHandler(new LogoutHandler(sessionKeyService));
+        URL url = new URL(String.format(BASE_URL.concat("/logout?sessionkey=%s"), EXPECTED_TOKEN));
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        conn.setRequestMethod(POST.toString());
+
+        conn.connect();
+        int responseCode = conn.getResponseCode();
+
+        assertEquals(HTTP_OK, responseCode);
+    }
+
+    @Test
+    public void logoutUnknownSessionKeyShouldFail() throws IOException {
+        scoresServer = ScoresServer.start(PORT, 1).logoutHandler(new LogoutHandler(sessionKeyService));
+        URL url = new URL(String.format(BASE_URL.concat("/logout?sessionkey=%s"), "unknown"));
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        conn.setRequestMethod(POST.toString());
+
+        conn.connect();
+        int responseCode = conn.getResponseCode();
+
+        assertEquals(HTTP_UNAUTHORIZED, responseCode);
+    }
+
+    @Test
+    public void logoutNotRevocableSessionKeyShouldFail() throws IOException, SignatureException {
+        SessionKeyService tokens = new TokenSessionKeyService();
+        scoresServer = ScoresServer.start(PORT, 1).logoutHandler(new LogoutHandler(tokens));
+        URL url = new URL(String.format(BASE_URL.concat("/logout?sessionkey=%s"), tokens.generateSessionKey(1)));
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        conn.setRequestMethod(POST.toString());
+
+        conn.connect();
+        int responseCode = conn.getResponseCode();
+
+        assertEquals(HTTP_NOT_IMPLEMENTED, responseCode);
+    }
+
+    @Test
+    public void logoutNotRevocableWithoutSessionKeyShouldFail() throws IOException {
+        scoresServer = ScoresServer.start(PORT, 1).logoutHandler(new LogoutHandler(new TokenSessionKeyService()));
+        URL url = new URL(BASE_URL.concat("/logout"));
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        conn.setRequestMethod(POST.toString());
+
+        conn.connect();
+        int responseCode = conn.getResponseCode();
+
+        assertEquals(HTTP_NOT_IMPLEMENTED, responseCode);
+    }
+
     @Test
     public void scoreNotPostMethodShouldFail() throws IOException {
         scoresServer = ScoresServer.start(PORT, 1)
@@ -255,6 +373,143 @@ public class ScoresServerTest {
         assertFalse(Strings.isNotEmpty(response));
     }
 
+    @Test
+    public void scoreIngestionFullShouldFail() throws IOException {
+        ScoresService fullScoresService = new ScoresService() {
+            @Override
+            public void registerScore(int level, int userId, int score) {
+            }
+
+            @Override
+            public boolean offerScore(int level, int userId, int score) {
+                return false;
+            }
+
+            @Override
+            public String getHighScoresForLevel(int level) {
+                return "";
+            }
+        };
+        scoresServer = ScoresServer.start(PORT, 1).scoreHandler(new ScoreHandler(sessionKeyService, fullScoresService));
+        URL url = new URL(String.format(BASE_URL.concat("/%d/score?sessionkey=%s"), EXPECTED_LEVEL, EXPECTED_TOKEN));
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        conn.setRequestMethod(POST.toString());
+        setRequestBody(conn, String.valueOf(EXPECTED_SCORE));
+
+        conn.connect();
+        int responseCode = conn.getResponseCode();
+
+        assertEquals(HTTP_UNAVAILABLE, responseCode);
+        assertEquals("1", conn.getHeaderField("Retry-After"));
+    }
+
+    @Test
+    public void boundedExecutorFullShouldFail() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ScoresService blockingScoresService = new ScoresService() {
+            @Override
+            public void registerScore(int level, int userId, int score) {
+            }
+
+            @Override
+            public String getHighScoresForLevel(int level) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return EXPECTED_HIGH_SCORE;
+            }
+        };
+        scoresServer = ScoresServer.start(PORT, 1, ExecutorMode.BOUNDED, 1)
+                .highScoreHandler(new HighScoreHandler(blockingScoresService));
+        RequestExecutorMXBean metrics = JMX.newMXBeanProxy(ManagementFactory.getPlatformMBeanServer(),
+                new ObjectName("com.king.gamescores:type=RequestExecutor"), RequestExecutorMXBean.class);
+        ExecutorService clients = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> running = clients.submit(() -> getHighScores(EXPECTED_LEVEL));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<String> queued = clients.submit(() -> getHighScores(EXPECTED_LEVEL));
+            while (metrics.getQueueDepth() == 0) {
+                Thread.sleep(1);
+            }
+
+            URL url = new URL(String.format(BASE_URL.concat("/%d/highscorelist"), EXPECTED_LEVEL));
+            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+            conn.setRequestMethod(GET.toString());
+            conn.connect();
+
+            assertEquals(HTTP_UNAVAILABLE, conn.getResponseCode());
+            assertEquals("1", conn.getHeaderField("Retry-After"));
+            release.countDown();
+            assertEquals(EXPECTED_HIGH_SCORE, running.get(5, TimeUnit.SECONDS));
+            assertEquals(EXPECTED_HIGH_SCORE, queued.get(5, TimeUnit.SECONDS));
+            assertEquals(2, metrics.getExecuted());
+            assertEquals(1, metrics.getRejected());
+        } finally {
+            release.countDown();
+            clients.shutdownNow();
+        }
+    }
+
+    @Test
+    public void highScoreListNotModifiedShouldBeAnswered304() throws IOException {
+        ScoresService packedScoresService = new PackedScoresService();
+        packedScoresService.registerScore(EXPECTED_LEVEL, EXPECTED_USER_ID, EXPECTED_SCORE);
+        scoresServer = ScoresServer.start(PORT, 1).highScoreHandler(new HighScoreHandler(packedScoresService));
+        URL url = new URL(String.format(BASE_URL.concat("/%d/highscorelist"), EXPECTED_LEVEL));
+
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        assertEquals(HTTP_OK, conn.getResponseCode());
+        assertEquals("3=1500", getResponse(conn));
+        String eTag = conn.getHeaderField("ETag");
+        assertNotNull(eTag);
+
+        conn = (HttpURLConnection) url.openConnection();
+        conn.setRequestProperty("If-None-Match", eTag);
+        assertEquals(HTTP_NOT_MODIFIED, conn.getResponseCode());
+        assertEquals(eTag, conn.getHeaderField("ETag"));
+
+        packedScoresService.registerScore(EXPECTED_LEVEL, 4, EXPECTED_SCORE + 1);
+        conn = (HttpURLConnection) url.openConnection();
+        conn.setRequestProperty("If-None-Match", eTag);
+        assertEquals(HTTP_OK, conn.getResponseCode());
+        assertEquals("4=1501,3=1500", getResponse(conn));
+        assertNotEquals(eTag, conn.getHeaderField("ETag"));
+    }
+
+    @Test
+    public void highScoreListIsCompressedForClientsAcceptingGzip() throws IOException {
+        ScoresService packedScoresService = new PackedScoresService();
+        packedScoresService.registerScore(EXPECTED_LEVEL, EXPECTED_USER_ID, EXPECTED_SCORE);
+        scoresServer = ScoresServer.start(PORT, 1).highScoreHandler(new HighScoreHandler(packedScoresService, 1));
+        URL url = new URL(String.format(BASE_URL.concat("/%d/highscorelist"), EXPECTED_LEVEL));
+
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        conn.setRequestProperty("Accept-Encoding", "gzip");
+        assertEquals(HTTP_OK, conn.getResponseCode());
+        assertEquals("gzip", conn.getHeaderField("Content-Encoding"));
+        assertEquals("Accept-Encoding", conn.getHeaderField("Vary"));
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(new GZIPInputStream(conn.getInputStream()),
+                StandardCharsets.UTF_8))) {
+            assertEquals("3=1500", br.readLine());
+        }
+        String gzipETag = conn.getHeaderField("ETag");
+
+        conn = (HttpURLConnection) url.openConnection();
+        assertEquals(HTTP_OK, conn.getResponseCode());
+        assertNull(conn.getHeaderField("Content-Encoding"));
+        assertEquals("3=1500", getResponse(conn));
+        assertNotEquals(gzipETag, conn.getHeaderField("ETag"));
+
+        conn = (HttpURLConnection) url.openConnection();
+        conn.setRequestProperty("Accept-Encoding", "gzip");
+        conn.setRequestProperty("If-None-Match", gzipETag);
+        assertEquals(HTTP_NOT_MODIFIED, conn.getResponseCode());
+    }
+
     @Test
     public void highScoreListNotGetMethodShouldFail() throws IOException {
         scoresServer = ScoresServer.start(PORT, 1).highScoreHandler(new HighScoreHandler(scoresService));
@@ -316,6 +571,187 @@ public class ScoresServerTest {
         assertEquals(EXPECTED_HIGH_SCORE, response);
     }
 
+    @Test
+    public void rankSuccessful() throws IOException {
+        ScoresService rankedScoresService = new PackedScoresService(5, "*");
+        rankedScoresService.registerScore(EXPECTED_LEVEL, 1, 100);
+        rankedScoresService.registerScore(EXPECTED_LEVEL, EXPECTED_USER_ID, EXPECTED_SCORE);
+        scoresServer = ScoresServer.start(PORT, 1).rankHandler(new RankHandler(rankedScoresService));
+        URL url = new URL(String.format(BASE_URL.concat("/%d/rank/%d"), EXPECTED_LEVEL, EXPECTED_USER_ID));
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        conn.setRequestMethod(GET.toString());
+
+        conn.connect();
+        int responseCode = conn.getResponseCode();
+        String response = getResponse(conn);
+
+        assertEquals(HTTP_OK, responseCode);
+        assertEquals("1", response);
+    }
+
+    @Test
+    public void rankAroundSuccessful() throws IOException {
+        ScoresService rankedScoresService = new PackedScoresService(5, "*");
+        rankedScoresService.registerScore(EXPECTED_LEVEL, 1, 100);
+        rankedScoresService.registerScore(EXPECTED_LEVEL, EXPECTED_USER_ID, EXPECTED_SCORE);
+        scoresServer = ScoresServer.start(PORT, 1).rankHandler(new RankHandler(rankedScoresService));
+        URL url = new URL(String.format(BASE_URL.concat("/%d/rank/%d?around=1"), EXPECTED_LEVEL, 1));
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        conn.setRequestMethod(GET.toString());
+
+        conn.connect();
+        int responseCode = conn.getResponseCode();
+        String response = getResponse(conn);
+
+        assertEquals(HTTP_OK, responseCode);
+        assertEquals(EXPECTED_USER_ID + "=" + EXPECTED_SCORE + ",1=100", response);
+    }
+
+    @Test
+    public void rankAroundZeroRespondsTheUserScore() throws IOException {
+        ScoresService rankedScoresService = new PackedScoresService(5, "*");
+        rankedScoresService.registerScore(EXPECTED_LEVEL, 1, 100);
+        rankedScoresService.registerScore(EXPECTED_LEVEL, EXPECTED_USER_ID, EXPECTED_SCORE);
+        rankedScoresService.registerScore(EXPECTED_LEVEL, 2, 50);
+        scoresServer = ScoresServer.start(PORT, 1).rankHandler(new RankHandler(rankedScoresService));
+        URL url = new URL(String.format(BASE_URL.concat("/%d/rank/%d?around=0"), EXPECTED_LEVEL, 1));
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        conn.setRequestMethod(GET.toString());
+
+        conn.connect();
+        int responseCode = conn.getResponseCode();
+        String response = getResponse(conn);
+
+        assertEquals(HTTP_OK, responseCode);
+        assertEquals("1=100", response);
+    }
+
+    @Test
+    public void rankNotRankedUserShouldFail() throws IOException {
+        scoresServer = ScoresServer.start(PORT, 1).rankHandler(new RankHandler(new PackedScoresService(5, "*")));
+        URL url = new URL(String.format(BASE_URL.concat("/%d/rank/%d"), EXPECTED_LEVEL, EXPECTED_USER_ID));
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        conn.setRequestMethod(GET.toString());
+
+        conn.connect();
+        int responseCode = conn.getResponseCode();
+        String response = getResponse(conn);
+
+        assertEquals(HTTP_NOT_FOUND, responseCode);
+        assertFalse(Strings.isNotEmpty(response));
+    }
+
+    @Test
+    public void multiHighScoreListSuccessful() throws IOException {
+        ScoresService levelsScoresService = new PackedScoresService(5);
+        levelsScoresService.registerScore(1, 4, 1200);
+        levelsScoresService.registerScore(1, 7, 900);
+        levelsScoresService.registerScore(3, 4, 10);
+        scoresServer = ScoresServer.start(PORT, 1)
+                .multiHighScoreHandler(new MultiHighScoreHandler(levelsScoresService));
+        URL url = new URL(BASE_URL.concat("/highscorelist?levels=3,2,1"));
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        conn.setRequestMethod(GET.toString());
+
+        conn.connect();
+        int responseCode = conn.getResponseCode();
+        String response = getResponse(conn);
+
+        assertEquals(HTTP_OK, responseCode);
+        assertEquals("3:4=10" + "2:" + "1:4=1200,7=900", response);
+    }
+
+    @Test
+    public void multiHighScoreListSignedLevelShouldFail() throws IOException {
+        scoresServer = ScoresServer.start(PORT, 1)
+                .multiHighScoreHandler(new MultiHighScoreHandler(new PackedScoresService(5)));
+        URL url = new URL(BASE_URL.concat("/highscorelist?levels=1,-2"));
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        conn.setRequestMethod(GET.toString());
+
+        conn.connect();
+        int responseCode = conn.getResponseCode();
+        String response = getResponse(conn);
+
+        assertEquals(HTTP_BAD_REQUEST, responseCode);
+        assertFalse(Strings.isNotEmpty(response));
+    }
+
+    @Test
+    public void batchScoreSuccessful() throws IOException {
+        ScoresService batchScoresService = new PackedScoresService(5);
+        scoresServer = ScoresServer.start(PORT, 1)
+                .batchScoreHandler(new BatchScoreHandler(sessionKeyService, batchScoresService,
+                        new int[]{EXPECTED_USER_ID}));
+        URL url = new URL(String.format(BASE_URL.concat("/scores?sessionkey=%s"), EXPECTED_TOKEN));
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        conn.setRequestMethod(POST.toString());
+        setRequestBody(conn, "1,1500\n1,4,1200\nwrong\n2,5,10\n");
+
+        conn.connect();
+        int responseCode = conn.getResponseCode();
+        String response = getResponse(conn);
+
+        assertEquals(HTTP_OK, responseCode);
+        assertEquals("1101", response);
+        assertEquals(EXPECTED_USER_ID + "=1500,4=1200", batchScoresService.getHighScoresForLevel(1));
+        assertEquals("5=10", batchScoresService.getHighScoresForLevel(2));
+    }
+
+    @Test
+    public void batchScoreOfOtherUserFromPlayerShouldBeRejected() throws IOException {
+        ScoresService batchScoresService = new PackedScoresService(5);
+        scoresServer = ScoresServer.start(PORT, 1)
+                .batchScoreHandler(new BatchScoreHandler(sessionKeyService, batchScoresService));
+        URL url = new URL(String.format(BASE_URL.concat("/scores?sessionkey=%s"), EXPECTED_TOKEN));
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        conn.setRequestMethod(POST.toString());
+        setRequestBody(conn, "1,1500\n1,4,1200\n");
+
+        conn.connect();
+        int responseCode = conn.getResponseCode();
+        String response = getResponse(conn);
+
+        assertEquals(HTTP_OK, responseCode);
+        assertEquals("10", response);
+        assertEquals(EXPECTED_USER_ID + "=1500", batchScoresService.getHighScoresForLevel(1));
+    }
+
+    @Test
+    public void batchScoreMissingSessionKeyShouldFail() throws IOException {
+        scoresServer = ScoresServer.start(PORT, 1)
+                .batchScoreHandler(new BatchScoreHandler(sessionKeyService, new PackedScoresService(5)));
+        URL url = new URL(BASE_URL.concat("/scores"));
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        conn.setRequestMethod(POST.toString());
+        setRequestBody(conn, "1,1500\n");
+
+        conn.connect();
+        int responseCode = conn.getResponseCode();
+        String response = getResponse(conn);
+
+        assertEquals(HTTP_BAD_REQUEST, responseCode);
+        assertFalse(Strings.isNotEmpty(response));
+    }
+
+    private String login(int userId) throws IOException {
+        URL url = new URL(String.format(BASE_URL.concat("/%d/login"), userId));
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        conn.setRequestMethod(GET.toString());
+        conn.connect();
+        assertEquals(HTTP_OK, conn.getResponseCode());
+        return getResponse(conn);
+    }
+
+    private String getHighScores(int level) throws IOException {
+        URL url = new URL(String.format(BASE_URL.concat("/%d/highscorelist"), level));
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        conn.setRequestMethod(GET.toString());
+        conn.connect();
+        assertEquals(HTTP_OK, conn.getResponseCode());
+        return getResponse(conn);
+    }
+
     private void setRequestBody(HttpURLConnection conn, String body) throws IOException {
         conn.setDoOutput(true);
         conn.setRequestProperty("Content-Type", "text/plain; charset=utf-8");
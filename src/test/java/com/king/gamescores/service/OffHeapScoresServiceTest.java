@@ -0,0 +1,123 @@
+package com.king.gamescores.service;
+
+import com.king.gamescores.util.Strings;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+public class OffHeapScoresServiceTest {
+
+    private ScoresService scoresService;
+
+    @Before
+    public void setUp() {
+        scoresService = new OffHeapScoresService(5, 4);
+    }
+
+    @Test
+    public void emptyScores() {
+        String result = scoresService.getHighScoresForLevel(1);
+
+        Assert.assertFalse(Strings.isNotEmpty(result));
+        Assert.assertSame(HighScoresSnapshot.EMPTY, scoresService.getHighScoresSnapshot(1));
+    }
+
+    @Test
+    public void registerLessThanMaxScores() {
+        int level = 1;
+        scoresService.registerScore(level, 1, 15);
+        scoresService.registerScore(level, 2, 4);
+        scoresService.registerScore(level, 2, 43);
+        scoresService.registerScore(level, 3, 11);
+        scoresService.registerScore(level, 4, 2);
+        String expectedResult = "2=43,1=15,3=11,4=2";
+
+        String result = scoresService.getHighScoresForLevel(level);
+
+        Assert.assertEquals(expectedResult, result);
+    }
+
+    @Test
+    public void registerMoreThanMaxScores() {
+        int level = 1;
+        scoresService.registerScore(level, 1, 1);
+        scoresService.registerScore(level, 2, 2);
+        scoresService.registerScore(level, 3, 3);
+        scoresService.registerScore(level, 4, 4);
+        scoresService.registerScore(level, 5, 5);
+        scoresService.registerScore(level, 6, 1);
+        scoresService.registerScore(level, 5, 6);
+        scoresService.registerScore(level, 6, 7);
+        scoresService.registerScore(level, 7, 8);
+        scoresService.registerScore(level, 7, 7);
+        scoresService.registerScore(level, 8, 3);
+        String expectedResult = "7=8,6=7,5=6,4=4,3=3";
+
+        String result = scoresService.getHighScoresForLevel(level);
+
+        Assert.assertEquals(expectedResult, result);
+        Assert.assertEquals(8, scoresService.getHighScoresSnapshot(level).getVersion());
+    }
+
+    @Test
+    public void snapshotIsKeptUntilTheLevelChanges() {
+        int level = 1;
+        scoresService.registerScore(level, 1, 15);
+        HighScoresSnapshot snapshot = scoresService.getHighScoresSnapshot(level);
+        byte[] gzipBytes = snapshot.getGzipBytes();
+
+        scoresService.registerScore(level, 1, 10);
+
+        Assert.assertSame(snapshot, scoresService.getHighScoresSnapshot(level));
+        Assert.assertSame(gzipBytes, scoresService.getHighScoresSnapshot(level).getGzipBytes());
+
+        scoresService.registerScores(level, new int[]{2}, new int[]{20}, 0, 1);
+
+        Assert.assertNotSame(snapshot, scoresService.getHighScoresSnapshot(level));
+        Assert.assertEquals("2=20,1=15", scoresService.getHighScoresForLevel(level));
+        Assert.assertEquals(2, scoresService.getHighScoresSnapshot(level).getVersion());
+    }
+
+    @Test
+    public void sameResultsAsPackedScoresServiceWithManyLevels() {
+        ScoresService packed = new PackedScoresService(5);
+        int levels = 20000;
+        for (int i = 0; i < 200000; i++) {
+            int level = (i * 7919) % levels + 1;
+            int userId = (i * 31) % 97 + 1;
+            int score = (i * 104729) % 1009 + 1;
+            scoresService.registerScore(level, userId, score);
+            packed.registerScore(level, userId, score);
+        }
+
+        for (int level = 1; level <= levels; level++) {
+            Assert.assertEquals(packed.getHighScoresForLevel(level), scoresService.getHighScoresForLevel(level));
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void registerScoreMultithreaded() throws ExecutionException, InterruptedException {
+        ScoresService expected = new PackedScoresService(5);
+        for (int i = 1; i <= 10000; i++) {
+            expected.registerScore(i % 3000 + 1, i % 13 + 1, i);
+        }
+
+        CompletableFuture<Void>[] futures = new CompletableFuture[8];
+        for (int t = 0; t < futures.length; t++) {
+            futures[t] = CompletableFuture.runAsync(() -> {
+                for (int i = 1; i <= 10000; i++) {
+                    scoresService.registerScore(i % 3000 + 1, i % 13 + 1, i);
+                }
+            });
+        }
+        CompletableFuture.allOf(futures).get();
+
+        for (int level = 1; level <= 3000; level++) {
+            Assert.assertEquals(expected.getHighScoresForLevel(level), scoresService.getHighScoresForLevel(level));
+        }
+    }
+}
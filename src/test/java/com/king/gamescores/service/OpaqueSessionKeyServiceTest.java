@@ -0,0 +1,117 @@
+package com.king.gamescores.service;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.security.SignatureException;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class OpaqueSessionKeyServiceTest {
+
+    private static final long EXPIRATION_MS = 30000;
+
+    private final OpaqueSessionKeyService sessionKeyService = new OpaqueSessionKeyService(EXPIRATION_MS, 4);
+
+    @After
+    public void tearDown() {
+        sessionKeyService.shutdown();
+    }
+
+    @Test
+    public void generateSessionKey() throws SignatureException {
+        long before = System.currentTimeMillis();
+
+        String sessionKey = sessionKeyService.generateSessionKey(42);
+        Session session = sessionKeyService.verifySessionKey(sessionKey);
+
+        assertEquals(11, sessionKey.length());
+        assertEquals(42, session.getUserId());
+        assertEquals(42, sessionKeyService.getUserIdFromSessionKey(sessionKey));
+        assertTrue(sessionKeyService.isSessionKeyValid(sessionKey));
+        assertTrue(session.getExpiresAt() >= before + EXPIRATION_MS);
+        assertTrue(session.getExpiresAt() <= System.currentTimeMillis() + EXPIRATION_MS + 1000);
+    }
+
+    @Test
+    public void generateDistinctSessionKeys() throws SignatureException {
+        Set<String> sessionKeys = new HashSet<>();
+        for (int userId = 1; userId <= 5000; userId++) {
+            assertTrue(sessionKeys.add(sessionKeyService.generateSessionKey(userId)));
+        }
+
+        assertEquals(5000, sessionKeyService.size());
+        int userId = 0;
+        for (String sessionKey : sessionKeys) {
+            userId += sessionKeyService.getUserIdFromSessionKey(sessionKey);
+        }
+        assertEquals(5000 * 5001 / 2, userId);
+    }
+
+    @Test(expected = SignatureException.class)
+    public void unknownSessionKeyShouldFail() throws SignatureException {
+        sessionKeyService.verifySessionKey("AAAAAAAAAAE");
+    }
+
+    @Test(expected = SignatureException.class)
+    public void malformedSessionKeyShouldFail() throws SignatureException {
+        sessionKeyService.verifySessionKey("AAAAAAAAA$E");
+    }
+
+    @Test
+    public void revokeSessionKey() throws SignatureException {
+        String sessionKey = sessionKeyService.generateSessionKey(7);
+        String otherSessionKey = sessionKeyService.generateSessionKey(7);
+
+        assertTrue(sessionKeyService.revokeSessionKey(sessionKey));
+        assertFalse(sessionKeyService.revokeSessionKey(sessionKey));
+
+        try {
+            sessionKeyService.verifySessionKey(sessionKey);
+            fail("A revoked session key should not be valid");
+        } catch (SignatureException e) {
+            // Expected
+        }
+        assertEquals(7, sessionKeyService.getUserIdFromSessionKey(otherSessionKey));
+    }
+
+    @Test
+    public void expireSessionKeys() throws SignatureException {
+        String sessionKey = sessionKeyService.generateSessionKey(9);
+        String revokedSessionKey = sessionKeyService.generateSessionKey(10);
+        sessionKeyService.revokeSessionKey(revokedSessionKey);
+        long expiration = sessionKeyService.verifySessionKey(sessionKey).getExpiresAt() / 1000;
+
+        sessionKeyService.expire(expiration);
+        assertEquals(9, sessionKeyService.getUserIdFromSessionKey(sessionKey));
+
+        sessionKeyService.expire(expiration + 1);
+        assertEquals(0, sessionKeyService.size());
+        try {
+            sessionKeyService.verifySessionKey(sessionKey);
+            fail("An expired session key should not be valid");
+        } catch (SignatureException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void keepSessionKeysOfALaterWheelTurn() throws SignatureException {
+        OpaqueSessionKeyService longSessions = new OpaqueSessionKeyService(600000, 1);
+        try {
+            String sessionKey = longSessions.generateSessionKey(3);
+            long expiration = longSessions.verifySessionKey(sessionKey).getExpiresAt() / 1000;
+
+            // A whole turn of the wheel earlier the slot of the session is swept, but it has not expired yet
+            longSessions.expire(expiration + 1 - 512);
+            assertEquals(3, longSessions.getUserIdFromSessionKey(sessionKey));
+
+            longSessions.expire(expiration + 1);
+            assertEquals(0, longSessions.size());
+        } finally {
+            longSessions.shutdown();
+        }
+    }
+}
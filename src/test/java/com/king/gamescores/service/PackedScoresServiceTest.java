@@ -0,0 +1,356 @@
+package com.king.gamescores.service;
+
+import com.king.gamescores.util.Strings;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.GZIPInputStream;
+
+public class PackedScoresServiceTest {
+
+    private static final int MAX_THREADS = 16;
+    private static final int MAX_USERS = 1000;
+
+    private ScoresService scoresService;
+
+    @Before
+    public void setUp() {
+        scoresService = new PackedScoresService();
+    }
+
+    @Test
+    public void emptyScores() {
+        String result = scoresService.getHighScoresForLevel(1);
+
+        Assert.assertFalse(Strings.isNotEmpty(result));
+    }
+
+    @Test
+    public void registerLessThanMaxScores() {
+        int level = 1;
+        scoresService.registerScore(level, 1, 15);
+        scoresService.registerScore(level, 2, 4);
+        scoresService.registerScore(level, 2, 43);
+        scoresService.registerScore(level, 3, 11);
+        scoresService.registerScore(level, 4, 2);
+        String expectedResult = "2=43,1=15,3=11,4=2";
+
+        String result = scoresService.getHighScoresForLevel(level);
+
+        Assert.assertEquals(expectedResult, result);
+    }
+
+    @Test
+    public void registerMoreThanMaxScores() {
+        int level = 1;
+        scoresService.registerScore(level, 1, 1);
+        scoresService.registerScore(level, 2, 2);
+        scoresService.registerScore(level, 3, 3);
+        scoresService.registerScore(level, 4, 4);
+        scoresService.registerScore(level, 5, 5);
+        scoresService.registerScore(level, 6, 1);
+        scoresService.registerScore(level, 5, 6);
+        scoresService.registerScore(level, 6, 7);
+        scoresService.registerScore(level, 7, 8);
+        scoresService.registerScore(level, 7, 7);
+        scoresService.registerScore(level, 8, 3);
+        String expectedResult = "7=8,6=7,5=6,4=4,3=3";
+
+        String result = scoresService.getHighScoresForLevel(level);
+
+        Assert.assertEquals(expectedResult, result);
+    }
+
+    @Test
+    public void equalScoresAreOrderedByUserId() {
+        int level = 1;
+        scoresService.registerScore(level, 9, 12);
+        scoresService.registerScore(level, 3, 12);
+        scoresService.registerScore(level, 5, 12);
+        scoresService.registerScore(level, 1, 20);
+        scoresService.registerScore(level, 7, 12);
+        scoresService.registerScore(level, 2, 12);
+        String expectedResult = "1=20,2=12,3=12,5=12,7=12";
+
+        String result = scoresService.getHighScoresForLevel(level);
+
+        Assert.assertEquals(expectedResult, result);
+    }
+
+    @Test
+    public void lowerScoreOfAUserIsIgnored() {
+        int level = 1;
+        scoresService.registerScore(level, 1, 10);
+        scoresService.registerScore(level, 2, 5);
+        scoresService.registerScore(level, 1, 3);
+        String expectedResult = "1=10,2=5";
+
+        String result = scoresService.getHighScoresForLevel(level);
+
+        Assert.assertEquals(expectedResult, result);
+    }
+
+    @Test
+    public void levelsAreIndependent() {
+        scoresService.registerScore(1, 1, 10);
+        scoresService.registerScore(2, 2, 20);
+
+        Assert.assertEquals("1=10", scoresService.getHighScoresForLevel(1));
+        Assert.assertEquals("2=20", scoresService.getHighScoresForLevel(2));
+    }
+
+    @Test
+    public void snapshotIsRebuiltOnlyWhenTheTopScoresChange() {
+        int level = 1;
+        Assert.assertSame(HighScoresSnapshot.EMPTY, scoresService.getHighScoresSnapshot(level));
+
+        scoresService.registerScore(level, 1, 10);
+        scoresService.registerScore(level, 2, 20);
+        HighScoresSnapshot snapshot = scoresService.getHighScoresSnapshot(level);
+        scoresService.registerScore(level, 1, 5);
+        scoresService.registerScore(level, 2, 20);
+
+        Assert.assertSame(snapshot, scoresService.getHighScoresSnapshot(level));
+        Assert.assertEquals(2, snapshot.getVersion());
+        Assert.assertArrayEquals("2=20,1=10".getBytes(StandardCharsets.UTF_8), snapshot.getBytes());
+
+        scoresService.registerScore(level, 1, 30);
+        HighScoresSnapshot changed = scoresService.getHighScoresSnapshot(level);
+
+        Assert.assertEquals(3, changed.getVersion());
+        Assert.assertEquals("1=30,2=20", changed.toString());
+    }
+
+    @Test
+    public void registerScoresMergesTheGroup() {
+        int level = 1;
+        scoresService.registerScore(level, 1, 10);
+        HighScoresSnapshot before = scoresService.getHighScoresSnapshot(level);
+
+        scoresService.registerScores(level, new int[]{9, 2, 3, 2, 4, 5, 6, 9}, new int[]{0, 20, 5, 30, 1, 7, 8, 9},
+                1, 6);
+
+        Assert.assertEquals("2=30,1=10,6=8,5=7,3=5", scoresService.getHighScoresForLevel(level));
+        Assert.assertEquals(before.getVersion() + 1, scoresService.getHighScoresSnapshot(level).getVersion());
+    }
+
+    @Test
+    public void registerScoresSameAsOneByOne() {
+        ScoresService oneByOne = new PackedScoresService(5);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int round = 0; round < 2000; round++) {
+            int level = round % 20 + 1;
+            int[] userIds = new int[random.nextInt(12)];
+            int[] scores = new int[userIds.length];
+            for (int i = 0; i < userIds.length; i++) {
+                userIds[i] = random.nextInt(1, 15);
+                scores[i] = random.nextInt(1, 200);
+                oneByOne.registerScore(level, userIds[i], scores[i]);
+            }
+            scoresService.registerScores(level, userIds, scores, 0, userIds.length);
+
+            Assert.assertEquals(oneByOne.getHighScoresForLevel(level), scoresService.getHighScoresForLevel(level));
+        }
+    }
+
+    @Test
+    public void rankInTopScores() {
+        int level = 1;
+        scoresService.registerScore(level, 1, 10);
+        scoresService.registerScore(level, 2, 20);
+        scoresService.registerScore(level, 3, 30);
+
+        Assert.assertEquals(1, scoresService.getRank(level, 3));
+        Assert.assertEquals(3, scoresService.getRank(level, 1));
+        Assert.assertEquals(0, scoresService.getRank(level, 4));
+        Assert.assertEquals("3=30,2=20", scoresService.getScoresAround(level, 3, 1).toString());
+    }
+
+    @Test
+    public void rankInFullRankingMode() {
+        int level = 2;
+        ScoresService ranked = new PackedScoresService(5, "2, 3");
+        for (int userId = 1; userId <= 1000; userId++) {
+            ranked.registerScore(level, userId, userId * 10);
+        }
+        ranked.registerScore(level, 1, 5);
+        ranked.registerScore(level, 1, 20000);
+        ranked.registerScore(1, 1, 10);
+
+        Assert.assertEquals("1=20000,1000=10000,999=9990,998=9980,997=9970", ranked.getHighScoresForLevel(level));
+        Assert.assertEquals(1, ranked.getRank(level, 1));
+        Assert.assertEquals(2, ranked.getRank(level, 1000));
+        Assert.assertEquals(1000, ranked.getRank(level, 2));
+        Assert.assertEquals(0, ranked.getRank(level, 1001));
+        Assert.assertEquals("501=5010,500=5000,499=4990", ranked.getScoresAround(level, 500, 1).toString());
+        Assert.assertEquals("3=30,2=20", ranked.getScoresAround(level, 2, 1).toString());
+        Assert.assertTrue(ranked.getScoresAround(level, 1001, 1).isEmpty());
+        Assert.assertEquals(1, ranked.getRank(1, 1));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void registerScoreMultithreadedKeepsTheTopScores() throws ExecutionException, InterruptedException {
+        int level = 1;
+        int[][] users = new int[MAX_THREADS][MAX_USERS];
+        int[][] scores = new int[MAX_THREADS][MAX_USERS];
+        ScoresService expected = new DefaultScoresService();
+        // Distinct scores so the expected ranking does not depend on tie breaking
+        List<Integer> distinctScores = new ArrayList<>(MAX_THREADS * MAX_USERS);
+        for (int i = 1; i <= MAX_THREADS * MAX_USERS; i++) {
+            distinctScores.add(i);
+        }
+        Collections.shuffle(distinctScores);
+        Map<Integer, Integer> best = new HashMap<>();
+        for (int t = 0; t < MAX_THREADS; t++) {
+            for (int i = 0; i < MAX_USERS; i++) {
+                users[t][i] = ThreadLocalRandom.current().nextInt(1, MAX_USERS);
+                scores[t][i] = distinctScores.get(t * MAX_USERS + i);
+                best.merge(users[t][i], scores[t][i], Math::max);
+            }
+        }
+        best.forEach((userId, score) -> expected.registerScore(level, userId, score));
+
+        CompletableFuture<Void>[] futures = new CompletableFuture[MAX_THREADS];
+        for (int t = 0; t < MAX_THREADS; t++) {
+            final int thread = t;
+            futures[t] = CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < MAX_USERS; i++) {
+                    scoresService.registerScore(level, users[thread][i], scores[thread][i]);
+                }
+            });
+        }
+        CompletableFuture.allOf(futures).get();
+
+        Assert.assertEquals(expected.getHighScoresForLevel(level), scoresService.getHighScoresForLevel(level));
+    }
+
+    @Test
+    public void coldLevelsAreEvictedOverMemoryBudget() {
+        PackedScoresService budgeted = new PackedScoresService(5, "", 64 * 1024);
+        int hotLevel = 1;
+        budgeted.registerScore(hotLevel, 1, 100);
+        for (int level = 2; level <= 5000; level++) {
+            budgeted.registerScore(level, 1, level);
+            budgeted.getHighScoresSnapshot(hotLevel);
+        }
+
+        Assert.assertTrue(budgeted.getEvictions() > 0);
+        Assert.assertTrue(budgeted.getUsedBytes() <= 65 * 1024);
+        Assert.assertTrue(budgeted.getLevels() < 5000);
+        Assert.assertEquals("1=100", budgeted.getHighScoresForLevel(hotLevel));
+        Assert.assertEquals("1=5000", budgeted.getHighScoresForLevel(5000));
+    }
+
+    @Test
+    public void usedBytesAreReleasedOnEviction() {
+        PackedScoresService budgeted = new PackedScoresService(5, "", 1);
+        budgeted.registerScore(1, 1, 100);
+        budgeted.registerScore(2, 1, 100);
+        budgeted.registerScore(3, 1, 100);
+
+        Assert.assertEquals(2, budgeted.getEvictions());
+        Assert.assertEquals(1, budgeted.getLevels());
+        Assert.assertEquals(Leaderboard.LEVEL_OVERHEAD + Leaderboard.footprint(budgeted.getHighScoresSnapshot(3)),
+                budgeted.getUsedBytes());
+        Assert.assertEquals("", budgeted.getHighScoresForLevel(1));
+        Assert.assertEquals("1=100", budgeted.getHighScoresForLevel(3));
+    }
+
+    @Test
+    public void rankedLevelsAreEvictedWithTheirRanking() {
+        PackedScoresService budgeted = new PackedScoresService(5, "*", 64 * 1024);
+        int hotLevel = 1;
+        budgeted.registerScore(hotLevel, 1, 100);
+        int[] userIds = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+        int[] scores = new int[userIds.length];
+        for (int level = 2; level <= 5000; level++) {
+            // Ten ranked users per level, created by a single access
+            Arrays.fill(scores, level);
+            budgeted.registerScores(level, userIds, scores, 0, userIds.length);
+            budgeted.getRank(hotLevel, 1);
+        }
+
+        Assert.assertTrue(budgeted.getEvictions() > 0);
+        Assert.assertTrue(budgeted.getUsedBytes() <= 65 * 1024);
+        Assert.assertEquals(1, budgeted.getRank(hotLevel, 1));
+        Assert.assertEquals(10, budgeted.getRank(5000, 10));
+        Assert.assertEquals(0, budgeted.getRank(2, 1));
+    }
+
+    @Test
+    public void rankingBytesAreReleasedOnEviction() {
+        PackedScoresService budgeted = new PackedScoresService(5, "*", 1);
+        budgeted.registerScore(1, 1, 100);
+        budgeted.registerScore(1, 2, 50);
+        budgeted.registerScore(2, 1, 100);
+
+        Assert.assertEquals(1, budgeted.getEvictions());
+        Assert.assertEquals(0, budgeted.getRank(1, 1));
+        Assert.assertEquals(Leaderboard.LEVEL_OVERHEAD + Leaderboard.footprint(budgeted.getHighScoresSnapshot(2))
+                + LevelRanking.RANKING_OVERHEAD + LevelRanking.USER_BYTES, budgeted.getUsedBytes());
+    }
+
+    @Test
+    public void versionsAreNotRepeatedAfterEviction() {
+        PackedScoresService budgeted = new PackedScoresService(5, "", 1);
+        budgeted.registerScore(1, 1, 100);
+        HighScoresSnapshot evicted = budgeted.getHighScoresSnapshot(1);
+        budgeted.registerScore(2, 1, 100);
+        budgeted.registerScore(1, 2, 200);
+        HighScoresSnapshot recreated = budgeted.getHighScoresSnapshot(1);
+
+        Assert.assertEquals("2=200", recreated.toString());
+        Assert.assertNotEquals(evicted.getVersion(), recreated.getVersion());
+        Assert.assertNotEquals(evicted.getETag(), recreated.getETag());
+    }
+
+    @Test
+    public void eTagsFollowTheVersions() {
+        scoresService.registerScore(1, 1, 100);
+        HighScoresSnapshot first = scoresService.getHighScoresSnapshot(1);
+        scoresService.registerScore(1, 2, 50);
+        HighScoresSnapshot second = scoresService.getHighScoresSnapshot(1);
+
+        Assert.assertNotNull(first.getETag());
+        Assert.assertNotEquals(first.getETag(), second.getETag());
+        Assert.assertSame(second.getETag(), scoresService.getHighScoresSnapshot(1).getETag());
+        Assert.assertNotNull(HighScoresSnapshot.EMPTY.getETag());
+        Assert.assertNull(HighScoresSnapshot.of("1=100").getETag());
+    }
+
+    @Test
+    public void snapshotsAreCompressedOnce() throws IOException {
+        for (int userId = 1; userId <= 5; userId++) {
+            scoresService.registerScore(1, userId, userId * 100);
+        }
+        HighScoresSnapshot snapshot = scoresService.getHighScoresSnapshot(1);
+
+        byte[] compressed = snapshot.getGzipBytes();
+        Assert.assertSame(compressed, snapshot.getGzipBytes());
+        Assert.assertNotEquals(snapshot.getETag(), snapshot.getGzipETag());
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            ByteArrayOutputStream plain = new ByteArrayOutputStream();
+            byte[] buffer = new byte[256];
+            for (int read; (read = in.read(buffer)) > 0; ) {
+                plain.write(buffer, 0, read);
+            }
+            Assert.assertArrayEquals(snapshot.getBytes(), plain.toByteArray());
+        }
+    }
+}
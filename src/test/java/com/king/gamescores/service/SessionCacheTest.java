@@ -0,0 +1,39 @@
+package com.king.gamescores.service;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SessionCacheTest {
+
+    private static final long NOW = 1_000_000L;
+
+    private final SessionCache cache = new SessionCache(16);
+
+    @Test
+    public void cachedSessionIsReturned() {
+        Session session = new Session(1, NOW + 1000);
+        cache.put("key", session);
+
+        assertSame(session, cache.get(new String(new char[]{'k', 'e', 'y'}), NOW));
+        assertNull(cache.get("kez", NOW));
+        assertNull(cache.get("key2", NOW));
+    }
+
+    @Test
+    public void expiredSessionIsNotReturned() {
+        cache.put("key", new Session(1, NOW - 1));
+
+        assertNull(cache.get("key", NOW));
+    }
+
+    @Test
+    public void sessionReplacesTheOneInItsSlot() {
+        SessionCache single = new SessionCache(1);
+        single.put("first", new Session(1, NOW + 1000));
+        single.put("second", new Session(2, NOW + 1000));
+
+        assertNull(single.get("first", NOW));
+        assertEquals(2, single.get("second", NOW).getUserId());
+    }
+}
@@ -0,0 +1,52 @@
+package com.king.gamescores.service;
+
+import java.security.SignatureException;
+
+/**
+ * Single thread benchmark of the session key services: logins, a session key issued, and score submissions, the
+ * session key verified in turn for every session. The sessions far outnumber the slots of the session cache of the
+ * {@link TokenSessionKeyService}, so nearly every verification computes the HMAC, as it does for the first score of
+ * every session. Not a unit test, run its main method.
+ */
+public class SessionKeyServiceBenchmark {
+
+    private static final long EXPIRATION_MS = 600000;
+    private static final int SESSIONS = 100000;
+    private static final int VERIFICATIONS = 1000000;
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws SignatureException {
+        SessionKeyService token = new TokenSessionKeyService();
+        OpaqueSessionKeyService opaque = new OpaqueSessionKeyService(EXPIRATION_MS, 16);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                run("Token ", token, round == ROUNDS - 1);
+                run("Opaque", opaque, round == ROUNDS - 1);
+            }
+        } finally {
+            opaque.shutdown();
+        }
+    }
+
+    private static void run(String name, SessionKeyService sessionKeyService, boolean print)
+            throws SignatureException {
+        String[] sessionKeys = new String[SESSIONS];
+        long start = System.nanoTime();
+        for (int i = 0; i < SESSIONS; i++) {
+            sessionKeys[i] = sessionKeyService.generateSessionKey(i + 1);
+        }
+        long logins = System.nanoTime() - start;
+
+        long userIds = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < VERIFICATIONS; i++) {
+            userIds += sessionKeyService.verifySessionKey(sessionKeys[i % SESSIONS]).getUserId();
+        }
+        long verifications = System.nanoTime() - start;
+
+        if (print) {
+            System.out.printf("%s logins: %,d/s, verifications: %,d/s (%d)%n", name,
+                    SESSIONS * 1_000_000_000L / logins, VERIFICATIONS * 1_000_000_000L / verifications, userIds);
+        }
+    }
+}
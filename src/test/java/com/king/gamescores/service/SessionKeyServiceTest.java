@@ -1,16 +1,26 @@
 package com.king.gamescores.service;
 
+import com.king.gamescores.token.CompactToken;
+import com.king.gamescores.token.Signer;
+import com.king.gamescores.token.TokenBuilder;
 import com.king.gamescores.util.Strings;
 import org.junit.Test;
 
+import java.nio.charset.StandardCharsets;
 import java.security.SignatureException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 
 import static com.king.gamescores.token.TokenBuilder.SEPARATOR_CHAR;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 public class SessionKeyServiceTest {
 
+    private static final String SECRET_KEY = "changeit";
+    private static final long EXPIRATION_MS = 30000;
+
     private final SessionKeyService sessionKeyService = new TokenSessionKeyService();
 
     @Test
@@ -24,6 +34,79 @@ public class SessionKeyServiceTest {
         assertTrue(sessionKeyService.isSessionKeyValid(sessionKey));
     }
 
+    @Test
+    public void verifySessionKey() throws SignatureException {
+        int userId = 42;
+        long before = System.currentTimeMillis();
+
+        Session session = sessionKeyService.verifySessionKey(sessionKeyService.generateSessionKey(userId));
+
+        assertEquals(userId, session.getUserId());
+        assertTrue(session.getExpiresAt() >= before + EXPIRATION_MS - 1);
+        // Compact tokens round the expiration up to the second
+        assertTrue(session.getExpiresAt() <= System.currentTimeMillis() + EXPIRATION_MS + 1000);
+        assertFalse(session.isExpired(System.currentTimeMillis()));
+    }
+
+    @Test
+    public void verifyExpiredSessionKey() throws SignatureException {
+        LocalDateTime expiration = LocalDateTime.of(2020, 4, 2, 20, 44, 0, 500000000);
+        String sessionKey = TokenBuilder.builder()
+                .signWith(SECRET_KEY)
+                .setUserId("7")
+                .setExpiration(expiration)
+                .build();
+
+        Session session = sessionKeyService.verifySessionKey(sessionKey);
+
+        assertEquals(7, session.getUserId());
+        assertEquals(expiration.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(), session.getExpiresAt());
+        assertTrue(session.isExpired(System.currentTimeMillis()));
+        assertFalse(sessionKeyService.isSessionKeyValid(sessionKey));
+    }
+
+    @Test
+    public void generateCompactSessionKey() throws SignatureException {
+        String sessionKey = sessionKeyService.generateSessionKey(Integer.MAX_VALUE);
+
+        assertEquals(28, sessionKey.length());
+        assertEquals(-1, sessionKey.indexOf(SEPARATOR_CHAR));
+        assertEquals(Integer.MAX_VALUE, sessionKeyService.verifySessionKey(sessionKey).getUserId());
+    }
+
+    @Test
+    public void verifyExpiredCompactSessionKey() throws SignatureException {
+        Signer signer = new Signer(SECRET_KEY.getBytes(StandardCharsets.UTF_8));
+        long expiration = System.currentTimeMillis() / 1000 - 1;
+        String sessionKey = CompactToken.build(signer, 7, expiration, CompactToken.DEFAULT_MAC_LENGTH);
+
+        Session session = sessionKeyService.verifySessionKey(sessionKey);
+
+        assertEquals(7, session.getUserId());
+        assertEquals(expiration * 1000, session.getExpiresAt());
+        assertFalse(sessionKeyService.isSessionKeyValid(sessionKey));
+    }
+
+    @Test(expected = SignatureException.class)
+    public void verifyTamperedCompactSessionKeyShouldFail() throws SignatureException {
+        String sessionKey = sessionKeyService.generateSessionKey(1);
+        // Second character holds bits of the userId
+        char tampered = sessionKey.charAt(1) == 'A' ? 'B' : 'A';
+
+        sessionKeyService.verifySessionKey(sessionKey.charAt(0) + String.valueOf(tampered) + sessionKey.substring(2));
+    }
+
+    @Test(expected = SignatureException.class)
+    public void verifySessionKeySignedWithAnotherKeyShouldFail() throws SignatureException {
+        String sessionKey = TokenBuilder.builder()
+                .signWith("another")
+                .setUserId("7")
+                .setExpiration(LocalDateTime.now())
+                .build();
+
+        sessionKeyService.verifySessionKey(sessionKey);
+    }
+
     @Test(expected = SignatureException.class)
     public void getUserIdFromInvalidSessionKeyShouldFail() throws SignatureException {
         String sessionKey = String.format("fsfsdfsfpj342%skn2nmfsn2", SEPARATOR_CHAR);
@@ -0,0 +1,108 @@
+package com.king.gamescores.service;
+
+import com.king.gamescores.util.Strings;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+public class ShardedScoresServiceTest {
+
+    private ShardedScoresService scoresService;
+
+    @Before
+    public void setUp() {
+        scoresService = new ShardedScoresService(5, 4);
+    }
+
+    @After
+    public void tearDown() {
+        scoresService.shutdown();
+    }
+
+    @Test
+    public void emptyScores() {
+        String result = scoresService.getHighScoresForLevel(1);
+
+        Assert.assertFalse(Strings.isNotEmpty(result));
+        Assert.assertSame(HighScoresSnapshot.EMPTY, scoresService.getHighScoresSnapshot(1));
+    }
+
+    @Test
+    public void registerMoreThanMaxScores() {
+        int level = 1;
+        scoresService.registerScore(level, 1, 1);
+        scoresService.registerScore(level, 2, 2);
+        scoresService.registerScore(level, 3, 3);
+        scoresService.registerScore(level, 4, 4);
+        scoresService.registerScore(level, 5, 5);
+        scoresService.registerScore(level, 6, 1);
+        scoresService.registerScore(level, 5, 6);
+        scoresService.registerScore(level, 6, 7);
+        scoresService.registerScore(level, 7, 8);
+        scoresService.registerScore(level, 7, 7);
+        scoresService.registerScore(level, 8, 3);
+        scoresService.registerScores(level, new int[]{3, 9}, new int[]{9, 2}, 0, 2);
+        String expectedResult = "3=9,7=8,6=7,5=6,4=4";
+
+        scoresService.flush();
+        String result = scoresService.getHighScoresForLevel(level);
+
+        Assert.assertEquals(expectedResult, result);
+        Assert.assertTrue(scoresService.getHighScoresSnapshot(level).getVersion() > 0);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void registerScoreMultithreaded() throws ExecutionException, InterruptedException {
+        ScoresService expected = new PackedScoresService(5);
+        for (int i = 1; i <= 10000; i++) {
+            expected.registerScore(i % 3000 + 1, i % 13 + 1, i);
+            expected.registerScore(7, i % 101 + 1, i % 977);
+        }
+
+        CompletableFuture<Void>[] futures = new CompletableFuture[8];
+        for (int t = 0; t < futures.length; t++) {
+            futures[t] = CompletableFuture.runAsync(() -> {
+                for (int i = 1; i <= 10000; i++) {
+                    scoresService.registerScore(i % 3000 + 1, i % 13 + 1, i);
+                    scoresService.registerScore(7, i % 101 + 1, i % 977);
+                }
+            });
+        }
+        CompletableFuture.allOf(futures).get();
+        scoresService.flush();
+
+        for (int level = 1; level <= 3000; level++) {
+            Assert.assertEquals(expected.getHighScoresForLevel(level), scoresService.getHighScoresForLevel(level));
+        }
+    }
+
+    @Test
+    public void offerScoreToFullShardShouldFail() {
+        ShardedScoresService bounded = new ShardedScoresService(5, 1, 2);
+        bounded.shutdown();
+
+        // The stopped shard thread may still drain a few scores before it exits
+        int offered = 0;
+        while (offered < 1_000_000 && bounded.offerScore(1, 1, ++offered)) {
+        }
+
+        Assert.assertTrue(offered < 1_000_000);
+    }
+
+    @Test
+    public void publishManyLevels() {
+        for (int level = 1; level <= 5000; level++) {
+            scoresService.registerScore(level, level, level);
+        }
+        scoresService.flush();
+
+        for (int level = 1; level <= 5000; level++) {
+            Assert.assertEquals(level + "=" + level, scoresService.getHighScoresForLevel(level));
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.king.gamescores.service;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class WriteBehindScoresServiceTest {
+
+    private WriteBehindScoresService scoresService;
+
+    @After
+    public void tearDown() {
+        if (scoresService != null) {
+            scoresService.shutdown();
+        }
+    }
+
+    @Test
+    public void offeredScoresAreApplied() {
+        scoresService = new WriteBehindScoresService(new PackedScoresService(5), 16, 1);
+        int level = 1;
+        for (int userId = 1; userId <= 8; userId++) {
+            Assert.assertTrue(scoresService.offerScore(level, userId, userId * 10));
+        }
+        scoresService.offerScore(2, 1, 5);
+
+        scoresService.flush();
+
+        Assert.assertEquals("8=80,7=70,6=60,5=50,4=40", scoresService.getHighScoresForLevel(level));
+        Assert.assertEquals("1=5", scoresService.getHighScoresForLevel(2));
+        Assert.assertEquals(9, scoresService.getApplied());
+        Assert.assertEquals(0, scoresService.getQueueDepth());
+    }
+
+    @Test
+    public void fullBufferRefusesOffers() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        // The only drainer is kept busy applying the first score while the buffer fills up
+        scoresService = new WriteBehindScoresService(new PackedScoresService(5) {
+            @Override
+            public void registerScores(int level, int[] userIds, int[] scores, int offset, int length) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.registerScores(level, userIds, scores, offset, length);
+            }
+        }, 4, 1);
+        try {
+            Assert.assertTrue(scoresService.offerScore(2, 1, 1));
+            while (scoresService.getQueueDepth() > 0) {
+                Thread.sleep(1);
+            }
+            for (int userId = 1; userId <= 4; userId++) {
+                Assert.assertTrue(scoresService.offerScore(1, userId, userId));
+            }
+
+            Assert.assertFalse(scoresService.offerScore(1, 5, 5));
+            Assert.assertEquals(4, scoresService.getQueueDepth());
+            Assert.assertEquals(1, scoresService.getRejected());
+
+            scoresService.registerScore(1, 6, 6);
+            Assert.assertEquals("6=6", scoresService.getHighScoresForLevel(1));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void noDrainerShouldFail() {
+        new WriteBehindScoresService(new PackedScoresService(5), 4, 0);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void registerScoreMultithreaded() throws ExecutionException, InterruptedException {
+        scoresService = new WriteBehindScoresService(new PackedScoresService(5), 1024, 2);
+        ScoresService expected = new PackedScoresService(5);
+        for (int i = 1; i <= 10000; i++) {
+            expected.registerScore(i % 300 + 1, i % 13 + 1, i);
+        }
+
+        CompletableFuture<Void>[] futures = new CompletableFuture[8];
+        for (int t = 0; t < futures.length; t++) {
+            futures[t] = CompletableFuture.runAsync(() -> {
+                for (int i = 1; i <= 10000; i++) {
+                    scoresService.registerScore(i % 300 + 1, i % 13 + 1, i);
+                }
+            });
+        }
+        CompletableFuture.allOf(futures).get();
+        scoresService.flush();
+
+        for (int level = 1; level <= 300; level++) {
+            Assert.assertEquals(expected.getHighScoresForLevel(level), scoresService.getHighScoresForLevel(level));
+        }
+    }
+}
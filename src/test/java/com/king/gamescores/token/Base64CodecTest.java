@@ -0,0 +1,65 @@
+package com.king.gamescores.token;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class Base64CodecTest {
+
+    @Test
+    public void encodeAndDecodeLikeTheJdkUrlEncoder() {
+        Random random = new Random(11);
+        for (int length = 0; length < 100; length++) {
+            byte[] data = new byte[length];
+            random.nextBytes(data);
+            String expected = Base64.getUrlEncoder().withoutPadding().encodeToString(data);
+
+            String encoded = Base64Codec.encode(data);
+
+            assertEquals(expected, encoded);
+            assertEquals(expected.length(), Base64Codec.encodedLength(length));
+            assertArrayEquals(data, Base64Codec.decode(encoded));
+            assertArrayEquals(data, Base64Codec.decode(Base64.getEncoder().encodeToString(data)));
+        }
+    }
+
+    @Test
+    public void encodeAndDecodeBufferRegions() {
+        byte[] data = "session|2020-04-02T20:44:00".getBytes(StandardCharsets.UTF_8);
+        byte[] encoded = new byte[2 + Base64Codec.encodedLength(data.length - 3)];
+
+        int written = Base64Codec.encode(data, 3, data.length - 3, encoded, 2);
+        String expected = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("sion|2020-04-02T20:44:00".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(expected, new String(encoded, 2, written, StandardCharsets.US_ASCII));
+
+        byte[] decoded = new byte[data.length];
+        int read = Base64Codec.decode(expected, 0, expected.length(), decoded, 3);
+        assertEquals(data.length - 3, read);
+        assertEquals("sion|2020-04-02T20:44:00", new String(decoded, 3, read, StandardCharsets.UTF_8));
+
+        ByteBuffer chars = ByteBuffer.allocate(64);
+        Base64Codec.encode(ByteBuffer.wrap(data), chars);
+        chars.flip();
+        ByteBuffer bytes = ByteBuffer.allocate(64);
+        Base64Codec.decode(chars, bytes);
+        assertEquals(new String(data, StandardCharsets.UTF_8),
+                new String(bytes.array(), 0, bytes.position(), StandardCharsets.UTF_8));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decodeInvalidCharacterShouldFail() {
+        Base64Codec.decode("ab$d");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decodeInvalidLengthShouldFail() {
+        Base64Codec.decode("abcde");
+    }
+}
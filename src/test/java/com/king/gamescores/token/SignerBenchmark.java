@@ -0,0 +1,90 @@
+package com.king.gamescores.token;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Single thread benchmark of logins, token build plus token parse, comparing a new {@link Signer} per token, which
+ * looks up and initializes a {@link javax.crypto.Mac} every time, against a shared {@link Signer} reusing its pooled
+ * {@link javax.crypto.Mac}s. On JDK 21 or newer the shared {@link Signer} is also measured with a virtual thread per
+ * login, which must keep the reuse. Not a unit test, run its main method.
+ */
+public class SignerBenchmark {
+
+    private static final String SECRET_KEY = "changeit";
+    private static final int WARMUP_ITERATIONS = 200000;
+    private static final int ITERATIONS = 500000;
+
+    public static void main(String[] args) throws Exception {
+        Signer signer = new Signer(SECRET_KEY.getBytes(StandardCharsets.UTF_8));
+        TokenParser sharedParser = TokenParser.parser().setSigner(signer);
+        LocalDateTime expiration = LocalDateTime.now().plusMinutes(10);
+
+        for (int round = 0; round < 2; round++) {
+            int iterations = round == 0 ? WARMUP_ITERATIONS : ITERATIONS;
+
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                String token = TokenBuilder.builder().signWith(SECRET_KEY).setUserId(String.valueOf(i))
+                        .setExpiration(expiration).build();
+                TokenParser.parser().setSigningKey(SECRET_KEY).parse(token);
+            }
+            long perSignature = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                String token = TokenBuilder.builder().signWith(signer).setUserId(String.valueOf(i))
+                        .setExpiration(expiration).build();
+                sharedParser.parse(token);
+            }
+            long shared = System.nanoTime() - start;
+
+            long virtual = virtualThreads(signer, sharedParser, expiration, iterations);
+
+            if (round > 0) {
+                System.out.printf("Mac per signature: %,d logins/s%n", iterations * 1_000_000_000L / perSignature);
+                System.out.printf("Shared Signer:     %,d logins/s%n", iterations * 1_000_000_000L / shared);
+                if (virtual > 0) {
+                    System.out.printf("Virtual threads:   %,d logins/s%n", iterations * 1_000_000_000L / virtual);
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs the logins with the shared {@link Signer} on a new virtual thread each
+     *
+     * @return the elapsed nanoseconds, 0 if virtual threads are not available
+     */
+    private static long virtualThreads(Signer signer, TokenParser parser, LocalDateTime expiration, int iterations)
+            throws Exception {
+        ExecutorService executor;
+        try {
+            // Looked up by reflection, the sources target Java 8
+            executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        List<Future<?>> logins = new ArrayList<>(iterations);
+        for (int i = 0; i < iterations; i++) {
+            String userId = String.valueOf(i);
+            logins.add(executor.submit(() -> {
+                String token = TokenBuilder.builder().signWith(signer).setUserId(userId)
+                        .setExpiration(expiration).build();
+                return parser.parse(token);
+            }));
+        }
+        for (Future<?> login : logins) {
+            login.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        executor.shutdown();
+        return elapsed;
+    }
+}
@@ -0,0 +1,32 @@
+package com.king.gamescores.util;
+
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import static org.junit.Assert.*;
+
+public class CachedClockTest {
+
+    @Test
+    public void currentTimeMillisFollowsTheSystemClock() throws InterruptedException {
+        long before = System.currentTimeMillis();
+        Thread.sleep(20);
+
+        long now = CachedClock.currentTimeMillis();
+
+        assertTrue(now >= before);
+        assertTrue(now <= System.currentTimeMillis());
+    }
+
+    @Test
+    public void appendTimestamp() {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+        long now = CachedClock.currentTimeMillis();
+        for (long time : new long[]{now, now - 7, now + 1000 + 45, 0, 1585860240500L}) {
+            assertEquals(format.format(new Date(time)),
+                    CachedClock.appendTimestamp(new StringBuilder(), time).toString());
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.king.gamescores.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+public class IndexedSkipListTest {
+
+    @Test
+    public void emptyList() {
+        IndexedSkipList list = new IndexedSkipList();
+
+        assertEquals(0, list.size());
+        assertEquals(-1, list.indexOf(1));
+        assertFalse(list.remove(1));
+    }
+
+    @Test
+    public void duplicatedKeysAreIgnored() {
+        IndexedSkipList list = new IndexedSkipList();
+
+        assertTrue(list.add(5));
+        assertFalse(list.add(5));
+        assertEquals(1, list.size());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void getOutOfRangeShouldFail() {
+        IndexedSkipList list = new IndexedSkipList();
+        list.add(1);
+
+        list.get(1);
+    }
+
+    @Test
+    public void behavesLikeASortedSet() {
+        IndexedSkipList list = new IndexedSkipList();
+        TreeSet<Long> expected = new TreeSet<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            long key = random.nextInt(5000) - 2500;
+            if (random.nextInt(3) > 0) {
+                assertEquals(expected.add(key), list.add(key));
+            } else {
+                assertEquals(expected.remove(key), list.remove(key));
+            }
+        }
+
+        assertEquals(expected.size(), list.size());
+        List<Long> keys = new ArrayList<>(expected);
+        for (int i = 0; i < keys.size(); i++) {
+            assertEquals((long) keys.get(i), list.get(i));
+            assertEquals(i, list.indexOf(keys.get(i)));
+        }
+        long[] copied = new long[10];
+        list.copy(keys.size() - 10, copied, 0, 10);
+        for (int i = 0; i < 10; i++) {
+            assertEquals((long) keys.get(keys.size() - 10 + i), copied[i]);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.king.gamescores.util;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class IntIntMapTest {
+
+    @Test
+    public void putAndGet() {
+        IntIntMap map = new IntIntMap(2);
+        map.put(1, 10);
+        map.put(2, 20);
+        map.put(1, 11);
+
+        assertEquals(2, map.size());
+        assertEquals(11, map.get(1, -1));
+        assertEquals(20, map.get(2, -1));
+        assertEquals(-1, map.get(3, -1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroKeyShouldFail() {
+        new IntIntMap(2).put(0, 1);
+    }
+
+    @Test
+    public void behavesLikeAHashMap() {
+        IntIntMap map = new IntIntMap(4);
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            int key = random.nextInt(2000) + 1;
+            if (random.nextBoolean()) {
+                map.put(key, i);
+                expected.put(key, i);
+            } else {
+                assertEquals(expected.remove(key) != null, map.remove(key));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        expected.forEach((key, value) -> assertEquals((int) value, map.get(key, -1)));
+        int iterated = 0;
+        for (int slot = 0; slot < map.slots(); slot++) {
+            if (map.keyAt(slot) != 0) {
+                assertEquals((int) expected.get(map.keyAt(slot)), map.valueAt(slot));
+                iterated++;
+            }
+        }
+        assertEquals(expected.size(), iterated);
+    }
+
+    @Test
+    public void intObjectMapBehavesLikeAHashMap() {
+        IntObjectMap<String> map = new IntObjectMap<>(4);
+        Map<Integer, String> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 100000; i++) {
+            int key = random.nextInt(2000) + 1;
+            if (random.nextBoolean()) {
+                assertEquals(expected.put(key, "v" + i), map.put(key, "v" + i));
+            } else {
+                assertEquals(expected.remove(key), map.remove(key));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        expected.forEach((key, value) -> assertEquals(value, map.get(key)));
+
+        map.clear();
+
+        assertTrue(map.isEmpty());
+        expected.keySet().forEach(key -> assertNull(map.get(key)));
+    }
+}
@@ -0,0 +1,29 @@
+package com.king.gamescores.util;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class StringsTest {
+
+    @Test
+    public void digits() {
+        assertEquals(1, Strings.digits(0));
+        assertEquals(1, Strings.digits(9));
+        assertEquals(2, Strings.digits(10));
+        assertEquals(10, Strings.digits(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void writeDigits() {
+        byte[] bytes = new byte[12];
+        int position = Strings.writeDigits(0, bytes, 0);
+        bytes[position++] = ',';
+        position = Strings.writeDigits(Integer.MAX_VALUE, bytes, position);
+
+        assertEquals(bytes.length, position);
+        assertEquals("0,2147483647", new String(bytes, StandardCharsets.US_ASCII));
+    }
+}